@@ -0,0 +1,266 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable compressed sparse row (CSR) snapshot of a TownGraph, used by the shortest path searches.
+ * Towns are numbered 0 through size() - 1. The Roads leaving Town v are the arcs
+ * offsets[v] through offsets[v + 1] - 1, where targets[a] is the Town at the far end of arc a
+ * and weights[a] is its length. Every undirected Road is stored as two arcs, one in each direction.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class CompactGraph {
+
+	//The graph version this snapshot was built from
+	final long version;
+
+	//towns[v] is the Town numbered v
+	final Town[] towns;
+
+	//Reverse lookup from Town name to number, by open addressing: each slot holds a Town's number plus one,
+	//or 0 if empty. Kept primitive so a lookup neither boxes nor allocates
+	private final int[] slots;
+	private final int mask;
+
+	//CSR arrays: arcs of Town v occupy [offsets[v], offsets[v + 1])
+	final int[] offsets;
+	final int[] targets;
+	final int[] weights;
+
+	//roads[a] is the Road that arc a was built from
+	final Road[] roads;
+
+	//Town positions in radians, NaN where unknown. Null when no Town has a position
+	final double[] latitude;
+	final double[] longitude;
+
+	/**
+	 * Build a snapshot from a graph's name index and adjacency maps
+	 * @param version the graph version being captured
+	 * @param townMap the graph's Towns, in the order they should be numbered
+	 * @param adjacency the graph's adjacency maps
+	 */
+	CompactGraph(long version, Map<String, Town> townMap, Map<Town, LinkedHashMap<Town, Road>> adjacency) {
+		this.version = version;
+
+		int n = townMap.size();
+		towns = townMap.values().toArray(new Town[n]);
+		slots = new int[capacity(n)];
+		mask = slots.length - 1;
+		offsets = new int[n + 1];
+
+		//Number the Towns, and lay out where each Town's arcs begin using a running total of degrees
+		for (int v = 0; v < n; v++) {
+			insert(v);
+			offsets[v + 1] = offsets[v] + adjacency.get(towns[v]).size();
+		}
+
+		//Copy the Town positions, if any, for the A* distance bound
+		latitude = radians(towns, true);
+		longitude = radians(towns, false);
+
+		targets = new int[offsets[n]];
+		weights = new int[offsets[n]];
+		roads = new Road[offsets[n]];
+
+		//Fill each Town's arcs from its adjacency map
+		for (int v = 0; v < n; v++) {
+			int arc = offsets[v];
+			for (Map.Entry<Town, Road> entry : adjacency.get(towns[v]).entrySet()) {
+				targets[arc] = indexOf(entry.getKey().getName());
+				weights[arc] = entry.getValue().getWeight();
+				roads[arc] = entry.getValue();
+				arc++;
+			}
+		}
+	}
+
+	/**
+	 * Build a snapshot straight from its arrays, as saved in a snapshot file
+	 * @param version the graph version being captured
+	 * @param towns the Towns, in numbered order
+	 * @param offsets where each Town's arcs begin, followed by the number of arcs
+	 * @param targets the far end of each arc
+	 * @param weights the length of each arc
+	 * @param roads the Road each arc was built from
+	 */
+	CompactGraph(long version, Town[] towns, int[] offsets, int[] targets, int[] weights, Road[] roads) {
+		this.version = version;
+		this.towns = towns;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.roads = roads;
+
+		slots = new int[capacity(towns.length)];
+		mask = slots.length - 1;
+		for (int v = 0; v < towns.length; v++) {
+			insert(v);
+		}
+
+		latitude = radians(towns, true);
+		longitude = radians(towns, false);
+	}
+
+	/**
+	 * Build a copy of this snapshot with its Towns renumbered. Each Town keeps its arcs in the same order
+	 * @param order the old numbers of the Towns, in their new order
+	 * @return the renumbered snapshot, for the same graph version
+	 */
+	CompactGraph renumber(int[] order) {
+		int n = towns.length;
+		int[] newNumber = new int[n];
+		Town[] newTowns = new Town[n];
+		int[] newOffsets = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			newNumber[order[v]] = v;
+			newTowns[v] = towns[order[v]];
+			newOffsets[v + 1] = newOffsets[v] + offsets[order[v] + 1] - offsets[order[v]];
+		}
+
+		int[] newTargets = new int[targets.length];
+		int[] newWeights = new int[weights.length];
+		Road[] newRoads = new Road[roads.length];
+		for (int v = 0; v < n; v++) {
+			int arc = newOffsets[v];
+			for (int old = offsets[order[v]]; old < offsets[order[v] + 1]; old++) {
+				newTargets[arc] = newNumber[targets[old]];
+				newWeights[arc] = weights[old];
+				newRoads[arc] = roads[old];
+				arc++;
+			}
+		}
+		return new CompactGraph(version, newTowns, newOffsets, newTargets, newWeights, newRoads);
+	}
+
+	/**
+	 * Size the name table so it is never more than half full
+	 * @param n the number of Towns
+	 * @return the number of slots, a power of two
+	 */
+	private static int capacity(int n) {
+		return Math.max(2, Integer.highestOneBit(Math.max(1, n) * 2 - 1) << 1);
+	}
+
+	/**
+	 * Spread a name's hash code across the table
+	 * @param name the name
+	 * @return the mixed hash
+	 */
+	private static int hash(String name) {
+		int h = name.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Add a Town to the name table
+	 * @param v the Town's number
+	 */
+	private void insert(int v) {
+		int slot = hash(towns[v].getName()) & mask;
+		while (slots[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		slots[slot] = v + 1;
+	}
+
+	/**
+	 * Convert the Towns' latitudes or longitudes to radians
+	 * @param towns the Towns
+	 * @param latitudes true for latitudes, false for longitudes
+	 * @return the positions in radians, NaN where unknown, or null if no Town has a position
+	 */
+	private static double[] radians(Town[] towns, boolean latitudes) {
+		double[] positions = null;
+		for (int v = 0; v < towns.length; v++) {
+			if (towns[v].hasCoordinates()) {
+				if (positions == null) {
+					positions = new double[towns.length];
+					Arrays.fill(positions, Double.NaN);
+				}
+				positions[v] = Math.toRadians(latitudes ? towns[v].getLatitude() : towns[v].getLongitude());
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * Get the number of Towns in the snapshot
+	 * @return the number of Towns
+	 */
+	public int size() {
+		return towns.length;
+	}
+
+	/**
+	 * Get the number of arcs in the snapshot, which is twice the number of Roads
+	 * @return the number of arcs
+	 */
+	public int arcCount() {
+		return targets.length;
+	}
+
+	/**
+	 * Get the number assigned to a Town
+	 * @param town the Town to look up
+	 * @return the Town's number, or -1 if the Town is not in the snapshot
+	 */
+	public int indexOf(Town town) {
+		return town == null ? -1 : indexOf(town.getName());
+	}
+
+	/**
+	 * Get the number assigned to the Town with a given name, without building a Town to look it up
+	 * @param name the Town's name
+	 * @return the Town's number, or -1 if no Town by that name is in the snapshot
+	 */
+	public int indexOf(String name) {
+		if (name == null) return -1;
+		for (int slot = hash(name) & mask; ; slot = (slot + 1) & mask) {
+			int entry = slots[slot];
+			if (entry == 0) return -1;
+			if (towns[entry - 1].getName().equals(name)) return entry - 1;
+		}
+	}
+
+	/**
+	 * Get the Town with a given number
+	 * @param v the Town's number
+	 * @return the Town numbered v
+	 */
+	public Town getTown(int v) {
+		return towns[v];
+	}
+
+	/**
+	 * Check whether a Town's position is known
+	 * @param v the Town's number
+	 * @return true if the Town has a latitude and longitude
+	 */
+	public boolean hasCoordinates(int v) {
+		return latitude != null && !Double.isNaN(latitude[v]);
+	}
+
+	/**
+	 * Get a lower bound on the road distance between two Towns from their great-circle distance.
+	 * The bound is rounded down so it never exceeds a whole-mile road length
+	 * @param u the number of the first Town
+	 * @param t the number of the second Town
+	 * @return the lower bound in miles, or 0 if either Town's position is unknown
+	 */
+	int geoBound(int u, int t) {
+		if (latitude == null || Double.isNaN(latitude[u]) || Double.isNaN(latitude[t])) return 0;
+		return (int) Town.greatCircleMiles(latitude[u], longitude[u], latitude[t], longitude[t]);
+	}
+
+	/**
+	 * Get the graph version this snapshot was built from
+	 * @return the graph version
+	 */
+	public long getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,644 @@
+import java.util.Arrays;
+
+/**
+ * A contraction hierarchy over a CompactGraph, for answering route queries much faster than Dijkstra's algorithm.
+ * Preprocessing ranks every Town by importance and contracts them from least to most important. Contracting a
+ * Town removes it from the remaining graph, adding a shortcut between two of its neighbors wherever the route
+ * through it was the only shortest one. A query then runs a bidirectional search that only ever moves up the ranking,
+ * and unpacks the shortcuts on the route it finds back into the original Roads.
+ *
+ * A hierarchy answers queries for the snapshot it was built from; once the graph changes it must be rebuilt.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class ContractionHierarchy {
+
+	//Witness searches give up after settling this many Towns, adding a shortcut that might not be needed.
+	//Extra shortcuts cost a little query time but never change a result. Simulated contractions only
+	//estimate priorities, so they use a tighter limit
+	private static final int WITNESS_SETTLE_LIMIT = 64;
+	private static final int SIMULATION_SETTLE_LIMIT = 16;
+
+	final CompactGraph graph;
+
+	//rank[v] is the position of Town v in the contraction order. Higher ranks are more important
+	final int[] rank;
+
+	//Edges of the hierarchy: every original Road once, followed by the shortcuts.
+	//An original edge records its arc; a shortcut records -1 and the two edges it replaces,
+	//the first joining edgeFrom to the contracted Town and the second joining it to edgeTo
+	private int edgeCount;
+	private int[] edgeFrom;
+	private int[] edgeTo;
+	private int[] edgeWeight;
+	private int[] edgeArc;
+	private int[] edgeFirst;
+	private int[] edgeSecond;
+
+	//Upward graph in CSR form: for each Town, the edges leading to Towns of higher rank
+	private int[] upOffsets;
+	private int[] upTargets;
+	private int[] upWeights;
+	private int[] upEdges;
+
+	//Working adjacency lists used while contracting, discarded afterward
+	private int[][] adjacent;
+	private int[] adjacentSize;
+	private boolean[] contracted;
+
+	//targetMark[w] == targetStamp marks w as a Town the current witness search is looking for
+	private int[] targetMark;
+	private int targetStamp;
+
+	/**
+	 * Create an empty hierarchy for a snapshot
+	 * @param graph the snapshot to be contracted
+	 */
+	private ContractionHierarchy(CompactGraph graph) {
+		this.graph = graph;
+		rank = new int[graph.size()];
+	}
+
+	/**
+	 * Build a contraction hierarchy for a snapshot. This is an offline step whose cost is repaid across many queries
+	 * @param graph the snapshot to contract
+	 * @return the contraction hierarchy
+	 */
+	public static ContractionHierarchy build(CompactGraph graph) {
+		ContractionHierarchy hierarchy = new ContractionHierarchy(graph);
+		hierarchy.contractAll();
+		hierarchy.buildUpwardGraph();
+
+		//The working lists are no longer needed
+		hierarchy.adjacent = null;
+		hierarchy.adjacentSize = null;
+		hierarchy.contracted = null;
+		return hierarchy;
+	}
+
+	/**
+	 * Get the hierarchy's arrays, for saving it: the ranks, the six edge arrays and the four upward graph arrays
+	 * @return the arrays, in that order
+	 */
+	int[][] toArrays() {
+		return new int[][] { rank,
+				Arrays.copyOf(edgeFrom, edgeCount), Arrays.copyOf(edgeTo, edgeCount), Arrays.copyOf(edgeWeight, edgeCount),
+				Arrays.copyOf(edgeArc, edgeCount), Arrays.copyOf(edgeFirst, edgeCount), Arrays.copyOf(edgeSecond, edgeCount),
+				upOffsets, upTargets, upWeights, upEdges };
+	}
+
+	/**
+	 * Restore a hierarchy from the arrays given by toArrays
+	 * @param graph the snapshot the hierarchy was built from
+	 * @param arrays the hierarchy's arrays
+	 * @return the hierarchy
+	 * @throws IllegalArgumentException if the arrays do not fit the snapshot
+	 */
+	static ContractionHierarchy fromArrays(CompactGraph graph, int[][] arrays) {
+		if (arrays.length != 11 || arrays[0].length != graph.size() || arrays[7].length != graph.size() + 1) {
+			throw new IllegalArgumentException("Hierarchy does not match the graph");
+		}
+
+		ContractionHierarchy hierarchy = new ContractionHierarchy(graph);
+		System.arraycopy(arrays[0], 0, hierarchy.rank, 0, hierarchy.rank.length);
+		hierarchy.edgeCount = arrays[1].length;
+		hierarchy.edgeFrom = arrays[1];
+		hierarchy.edgeTo = arrays[2];
+		hierarchy.edgeWeight = arrays[3];
+		hierarchy.edgeArc = arrays[4];
+		hierarchy.edgeFirst = arrays[5];
+		hierarchy.edgeSecond = arrays[6];
+		hierarchy.upOffsets = arrays[7];
+		hierarchy.upTargets = arrays[8];
+		hierarchy.upWeights = arrays[9];
+		hierarchy.upEdges = arrays[10];
+		return hierarchy;
+	}
+
+	/**
+	 * Get the snapshot this hierarchy was built from
+	 * @return the contracted snapshot
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Get the number of shortcuts added during contraction
+	 * @return the number of shortcuts
+	 */
+	public int getShortcutCount() {
+		return edgeCount - graph.arcCount() / 2;
+	}
+
+	/**
+	 * Contract every Town in order of importance. A Town's priority is its edge difference, the number of
+	 * shortcuts contracting it would add less the number of edges it would remove, plus the number of its
+	 * neighbors already contracted, which spreads contraction evenly across the graph. Priorities are
+	 * updated lazily: a Town is re-checked when it reaches the front of the queue.
+	 */
+	private void contractAll() {
+		int n = graph.size();
+		int arcs = graph.arcCount();
+
+		int capacity = Math.max(16, arcs);
+		edgeFrom = new int[capacity];
+		edgeTo = new int[capacity];
+		edgeWeight = new int[capacity];
+		edgeArc = new int[capacity];
+		edgeFirst = new int[capacity];
+		edgeSecond = new int[capacity];
+
+		adjacent = new int[n][];
+		adjacentSize = new int[n];
+		contracted = new boolean[n];
+		targetMark = new int[n];
+		for (int v = 0; v < n; v++) {
+			adjacent[v] = new int[Math.max(4, graph.offsets[v + 1] - graph.offsets[v])];
+		}
+
+		//Each Road appears as two arcs; keep only the one leading to the higher-numbered Town
+		for (int u = 0; u < n; u++) {
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+				if (u < v) addEdge(u, v, graph.weights[arc], arc, -1, -1);
+			}
+		}
+
+		int[] contractedNeighbors = new int[n];
+		SearchWorkspace witness = new SearchWorkspace();
+		IndexedMinHeap order = new IndexedMinHeap(n);
+		for (int v = 0; v < n; v++) {
+			order.push(v, contract(v, witness, true));
+		}
+
+		int nextRank = 0;
+		while (!order.isEmpty()) {
+			int v = order.poll();
+
+			//Re-check the priority, which may have risen since it was queued
+			int priority = contract(v, witness, true) + contractedNeighbors[v];
+			if (!order.isEmpty() && priority > order.peekKey()) {
+				order.push(v, priority);
+				continue;
+			}
+
+			contract(v, witness, false);
+			contracted[v] = true;
+			rank[v] = nextRank++;
+
+			//Detach v from its neighbors' working lists. A neighbor joined to v by several edges
+			//is only counted the first time
+			for (int i = 0; i < adjacentSize[v]; i++) {
+				int u = other(adjacent[v][i], v);
+				if (!contracted[u] && removeAdjacent(u, v)) contractedNeighbors[u]++;
+			}
+		}
+	}
+
+	/**
+	 * Remove every edge joining a Town to a contracted neighbor from the Town's working list
+	 * @param u the Town whose list is pruned
+	 * @param v the contracted neighbor
+	 * @return true if any edge was removed
+	 */
+	private boolean removeAdjacent(int u, int v) {
+		int[] edges = adjacent[u];
+		int kept = 0;
+		for (int i = 0; i < adjacentSize[u]; i++) {
+			if (other(edges[i], u) != v) edges[kept++] = edges[i];
+		}
+		boolean removed = kept < adjacentSize[u];
+		adjacentSize[u] = kept;
+		return removed;
+	}
+
+	/**
+	 * Contract a Town, or simulate contracting it. For each pair of uncontracted neighbors, a witness search looks
+	 * for a route between them that avoids the Town and is no longer than the route through it.
+	 * Where none is found, the route through the Town is the shortest and a shortcut must replace it.
+	 *
+	 * @param v the Town to contract
+	 * @param witness the workspace for witness searches
+	 * @param simulate true to only count the shortcuts, false to add them
+	 * @return the edge difference: shortcuts added less the edges removed
+	 */
+	private int contract(int v, SearchWorkspace witness, boolean simulate) {
+		int[] edges = adjacent[v];
+		int size = adjacentSize[v];
+		int shortcuts = 0;
+		int removed = 0;
+
+		for (int i = 0; i < size; i++) {
+			int first = edges[i];
+			int u = other(first, v);
+			if (contracted[u]) continue;
+			removed++;
+
+			//Mark u's partners as the witness search's targets. The longest route through v
+			//from u bounds the search, and stays -1 if u has no partner
+			targetStamp++;
+			int targets = 0;
+			int maxDistance = -1;
+			for (int j = i + 1; j < size; j++) {
+				int w = other(edges[j], v);
+				if (!contracted[w] && w != u) {
+					maxDistance = Math.max(maxDistance, edgeWeight[first] + edgeWeight[edges[j]]);
+					if (targetMark[w] != targetStamp) {
+						targetMark[w] = targetStamp;
+						targets++;
+					}
+				}
+			}
+			if (maxDistance == -1) continue;
+
+			witnessSearch(witness, u, v, maxDistance, targets,
+					simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+
+			//Pairs are taken once each, pairing u only with neighbors listed after it
+			for (int j = i + 1; j < size; j++) {
+				int second = edges[j];
+				int w = other(second, v);
+				if (contracted[w] || w == u) continue;
+
+				int through = edgeWeight[first] + edgeWeight[second];
+				if (witness.distanceOf(w) <= through) continue;
+
+				shortcuts++;
+				if (!simulate) addEdge(u, w, through, -1, first, second);
+			}
+		}
+
+		return shortcuts - removed;
+	}
+
+	/**
+	 * Run a Dijkstra search from a Town through the uncontracted graph, avoiding the Town being contracted.
+	 * The search stops once every target is settled, at the distance bound, or after settling a fixed number of Towns
+	 *
+	 * @param witness the workspace to search in
+	 * @param source the Town to search from
+	 * @param avoid the Town being contracted
+	 * @param maxDistance the distance beyond which a witness is of no use
+	 * @param targets the number of marked target Towns
+	 * @param settleLimit the most Towns to settle
+	 */
+	private void witnessSearch(SearchWorkspace witness, int source, int avoid, int maxDistance, int targets,
+			int settleLimit) {
+		witness.begin(rank.length, source);
+		witness.label(source, 0, -1, -1);
+		witness.queue.push(source, 0);
+
+		while (!witness.queue.isEmpty() && witness.settled < settleLimit) {
+			int x = witness.queue.poll();
+			witness.settled++;
+			int dx = witness.distance[x];
+			if (dx > maxDistance) break;
+			if (targetMark[x] == targetStamp && --targets == 0) break;
+
+			for (int i = 0; i < adjacentSize[x]; i++) {
+				int e = adjacent[x][i];
+				int y = other(e, x);
+				if (y == avoid || contracted[y]) continue;
+
+				int newDistance = dx + edgeWeight[e];
+				if (newDistance < witness.distanceOf(y)) {
+					witness.label(y, newDistance, x, e);
+					witness.queue.push(y, newDistance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add an edge to the hierarchy and to both endpoints' working adjacency lists
+	 * @param from one end of the edge
+	 * @param to the other end of the edge
+	 * @param weight the edge's length
+	 * @param arc the original arc, or -1 for a shortcut
+	 * @param first for a shortcut, the edge joining from to the contracted Town
+	 * @param second for a shortcut, the edge joining the contracted Town to to
+	 */
+	private void addEdge(int from, int to, int weight, int arc, int first, int second) {
+		if (edgeCount == edgeFrom.length) {
+			int capacity = edgeCount * 2;
+			edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+			edgeTo = Arrays.copyOf(edgeTo, capacity);
+			edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+			edgeArc = Arrays.copyOf(edgeArc, capacity);
+			edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+			edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+		}
+
+		int e = edgeCount++;
+		edgeFrom[e] = from;
+		edgeTo[e] = to;
+		edgeWeight[e] = weight;
+		edgeArc[e] = arc;
+		edgeFirst[e] = first;
+		edgeSecond[e] = second;
+
+		appendAdjacent(from, e);
+		appendAdjacent(to, e);
+	}
+
+	/**
+	 * Append an edge to a Town's working adjacency list
+	 * @param v the Town
+	 * @param e the edge
+	 */
+	private void appendAdjacent(int v, int e) {
+		if (adjacentSize[v] == adjacent[v].length) {
+			adjacent[v] = Arrays.copyOf(adjacent[v], adjacent[v].length * 2);
+		}
+		adjacent[v][adjacentSize[v]++] = e;
+	}
+
+	/**
+	 * Get the far end of an edge
+	 * @param e the edge
+	 * @param v the near end of the edge
+	 * @return the Town at the other end
+	 */
+	private int other(int e, int v) {
+		return edgeFrom[e] == v ? edgeTo[e] : edgeFrom[e];
+	}
+
+	/**
+	 * Lay out the upward graph, in which each edge is stored only at its lower-ranked end
+	 */
+	private void buildUpwardGraph() {
+		int n = rank.length;
+		upOffsets = new int[n + 1];
+
+		for (int e = 0; e < edgeCount; e++) {
+			upOffsets[lower(e) + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			upOffsets[v + 1] += upOffsets[v];
+		}
+
+		upTargets = new int[edgeCount];
+		upWeights = new int[edgeCount];
+		upEdges = new int[edgeCount];
+		int[] next = Arrays.copyOf(upOffsets, n);
+
+		for (int e = 0; e < edgeCount; e++) {
+			int low = lower(e);
+			int slot = next[low]++;
+			upTargets[slot] = other(e, low);
+			upWeights[slot] = edgeWeight[e];
+			upEdges[slot] = e;
+		}
+	}
+
+	/**
+	 * Get the lower-ranked end of an edge
+	 * @param e the edge
+	 * @return the end of the edge with the lower rank
+	 */
+	private int lower(int e) {
+		return rank[edgeFrom[e]] < rank[edgeTo[e]] ? edgeFrom[e] : edgeTo[e];
+	}
+
+	/**
+	 * Find the shortest route between two Towns. A search moves upward from each end, and the route passes
+	 * through the highest-ranked Town where the two meet. Each side stops once its next Town is no closer
+	 * than the best meeting found
+	 *
+	 * @param source the number of the source Town
+	 * @param target the number of the target Town
+	 * @param forward the workspace for the search from the source
+	 * @param backward the workspace for the search from the target
+	 * @return the shortest route, or null if the target cannot be reached
+	 */
+	Route route(int source, int target, SearchWorkspace forward, SearchWorkspace backward) {
+		int n = rank.length;
+		forward.begin(n, source);
+		backward.begin(n, target);
+		forward.label(source, 0, -1, -1);
+		forward.queue.push(source, 0);
+		backward.label(target, 0, -1, -1);
+		backward.queue.push(target, 0);
+
+		long best = source == target ? 0 : Long.MAX_VALUE;
+		int meeting = source == target ? source : -1;
+
+		while (true) {
+			boolean forwardLive = !forward.queue.isEmpty() && forward.queue.peekKey() < best;
+			boolean backwardLive = !backward.queue.isEmpty() && backward.queue.peekKey() < best;
+			if (!forwardLive && !backwardLive) break;
+
+			SearchWorkspace side = !backwardLive || (forwardLive && forward.queue.peekKey() <= backward.queue.peekKey())
+					? forward : backward;
+			SearchWorkspace other = side == forward ? backward : forward;
+
+			int u = side.queue.poll();
+			side.settled++;
+			int du = side.distance[u];
+
+			for (int slot = upOffsets[u]; slot < upOffsets[u + 1]; slot++) {
+				int v = upTargets[slot];
+				int newDistance = du + upWeights[slot];
+
+				if (newDistance < side.distanceOf(v)) {
+					side.label(v, newDistance, u, upEdges[slot]);
+					side.queue.push(v, newDistance);
+
+					if (other.reached(v) && (long) newDistance + other.distance[v] < best) {
+						best = (long) newDistance + other.distance[v];
+						meeting = v;
+					}
+				}
+			}
+		}
+
+		if (meeting == -1) return null;
+		return unpackRoute(forward, backward, meeting, (int) best);
+	}
+
+	/**
+	 * Compute the distances from each of a set of sources to each of a set of targets with bucket-based
+	 * many-to-many search. An upward search from each target leaves an entry in a bucket at every Town it
+	 * settles, recording the target and its distance. An upward search from each source then scans the buckets
+	 * of the Towns it settles, and the shortest sum for each target is the shortest distance. This costs one
+	 * upward search per source and per target, rather than one search per pair
+	 *
+	 * @param sources the source Town numbers, one per row
+	 * @param targets the target Town numbers, one per column
+	 * @param workspace the workspace for the upward searches
+	 * @return the distances, with the distance from sources[i] to targets[j] at i * targets.length + j,
+	 * and Integer.MAX_VALUE where no route exists
+	 */
+	int[] manyToMany(int[] sources, int[] targets, SearchWorkspace workspace) {
+		int n = rank.length;
+		int[] settledOrder = new int[n];
+
+		//Collect every target's bucket entries, then group them by Town
+		int entries = 0;
+		int[] entryTown = new int[16];
+		int[] entryTarget = new int[16];
+		int[] entryDistance = new int[16];
+		for (int j = 0; j < targets.length; j++) {
+			int count = upwardSearch(targets[j], workspace, settledOrder);
+			if (entries + count > entryTown.length) {
+				int capacity = Math.max(entries + count, entryTown.length * 2);
+				entryTown = Arrays.copyOf(entryTown, capacity);
+				entryTarget = Arrays.copyOf(entryTarget, capacity);
+				entryDistance = Arrays.copyOf(entryDistance, capacity);
+			}
+			for (int i = 0; i < count; i++) {
+				int v = settledOrder[i];
+				entryTown[entries] = v;
+				entryTarget[entries] = j;
+				entryDistance[entries] = workspace.distance[v];
+				entries++;
+			}
+		}
+
+		int[] bucketOffsets = new int[n + 1];
+		for (int e = 0; e < entries; e++) bucketOffsets[entryTown[e] + 1]++;
+		for (int v = 0; v < n; v++) bucketOffsets[v + 1] += bucketOffsets[v];
+		int[] bucketTarget = new int[entries];
+		int[] bucketDistance = new int[entries];
+		int[] next = Arrays.copyOf(bucketOffsets, n);
+		for (int e = 0; e < entries; e++) {
+			int slot = next[entryTown[e]]++;
+			bucketTarget[slot] = entryTarget[e];
+			bucketDistance[slot] = entryDistance[e];
+		}
+
+		//Scan the buckets from each source's upward search
+		int[] result = new int[sources.length * targets.length];
+		Arrays.fill(result, Integer.MAX_VALUE);
+		for (int i = 0; i < sources.length; i++) {
+			int count = upwardSearch(sources[i], workspace, settledOrder);
+			int base = i * targets.length;
+
+			for (int k = 0; k < count; k++) {
+				int v = settledOrder[k];
+				int dv = workspace.distance[v];
+				for (int slot = bucketOffsets[v]; slot < bucketOffsets[v + 1]; slot++) {
+					int through = dv + bucketDistance[slot];
+					if (through < result[base + bucketTarget[slot]]) result[base + bucketTarget[slot]] = through;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Run a complete upward search from a Town, recording the Towns it settles
+	 * @param source the Town to search from
+	 * @param workspace the workspace to search in, which holds the final distances afterward
+	 * @param settledOrder receives the settled Towns, in the order they were settled
+	 * @return the number of Towns settled
+	 */
+	private int upwardSearch(int source, SearchWorkspace workspace, int[] settledOrder) {
+		workspace.begin(rank.length, source);
+		workspace.label(source, 0, -1, -1);
+		workspace.queue.push(source, 0);
+
+		int count = 0;
+		while (!workspace.queue.isEmpty()) {
+			int u = workspace.queue.poll();
+			settledOrder[count++] = u;
+			int du = workspace.distance[u];
+
+			for (int slot = upOffsets[u]; slot < upOffsets[u + 1]; slot++) {
+				int v = upTargets[slot];
+				int newDistance = du + upWeights[slot];
+				if (newDistance < workspace.distanceOf(v)) {
+					workspace.label(v, newDistance, u, upEdges[slot]);
+					workspace.queue.push(v, newDistance);
+				}
+			}
+		}
+		workspace.settled = count;
+		return count;
+	}
+
+	/**
+	 * Unpack the two upward halves of a route into the original Roads, from the source to the target
+	 * @param forward the search from the source
+	 * @param backward the search from the target
+	 * @param meeting the Town where the two searches meet
+	 * @param distance the length of the route
+	 * @return the unpacked route
+	 */
+	private Route unpackRoute(SearchWorkspace forward, SearchWorkspace backward, int meeting, int distance) {
+		PathBuilder path = new PathBuilder(forward.source);
+
+		//The forward half is read from the meeting Town back to the source, so collect its edges first
+		int hops = 0;
+		for (int v = meeting; v != forward.source; v = forward.parent[v]) hops++;
+		int[] upward = new int[hops];
+		int v = meeting;
+		for (int i = hops - 1; i >= 0; i--) {
+			upward[i] = forward.parentArc[v];
+			v = forward.parent[v];
+		}
+
+		v = forward.source;
+		for (int e : upward) {
+			unpack(e, v, path);
+			v = other(e, v);
+		}
+
+		//The backward half already runs from the meeting Town toward the target
+		for (v = meeting; v != backward.source; v = backward.parent[v]) {
+			unpack(backward.parentArc[v], v, path);
+		}
+
+		return path.toRoute(graph, distance);
+	}
+
+	/**
+	 * Expand an edge into its original arcs, traversed starting from one of its ends
+	 * @param e the edge
+	 * @param from the end of the edge to start from
+	 * @param path the path to append the arcs to
+	 */
+	private void unpack(int e, int from, PathBuilder path) {
+		if (edgeArc[e] >= 0) {
+			path.add(edgeArc[e], other(e, from));
+		}
+		else if (from == edgeFrom[e]) {
+			unpack(edgeFirst[e], from, path);
+			unpack(edgeSecond[e], other(edgeFirst[e], from), path);
+		}
+		else {
+			unpack(edgeSecond[e], from, path);
+			unpack(edgeFirst[e], other(edgeSecond[e], from), path);
+		}
+	}
+
+	/**
+	 * A growable sequence of Towns and the arcs joining them, used while unpacking a route
+	 */
+	private static class PathBuilder {
+		private int[] vertices = new int[16];
+		private int[] arcs = new int[16];
+		private int size;
+
+		PathBuilder(int source) {
+			vertices[0] = source;
+		}
+
+		void add(int arc, int vertex) {
+			if (size + 1 == vertices.length) {
+				vertices = Arrays.copyOf(vertices, vertices.length * 2);
+				arcs = Arrays.copyOf(arcs, arcs.length * 2);
+			}
+			arcs[size++] = arc;
+			vertices[size] = vertex;
+		}
+
+		Route toRoute(CompactGraph graph, int distance) {
+			return new Route(graph, Arrays.copyOf(vertices, size + 1), Arrays.copyOf(arcs, size), distance);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContractionHierarchyTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[60];
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		Random random = new Random(42);
+		
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town " + i);
+			graph.addVertex(towns[i]);
+		}
+		
+		//A random sparse network. The last five Towns are left unconnected
+		int roads = 0;
+		while (roads < 130) {
+			int a = random.nextInt(55);
+			int b = random.nextInt(55);
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], random.nextInt(50), "Road " + roads++);
+		}
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+	
+	@Test
+	public void testMatchesDijkstra() {
+		graph.contract();
+		
+		for (Town source : towns) {
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			
+			for (Town destination : towns) {
+				Route route = graph.route(source, destination, RoutingMode.CONTRACTION_HIERARCHY);
+				int expected = tree.getDistance(destination);
+				
+				if (expected == Integer.MAX_VALUE) {
+					assertNull(route);
+					continue;
+				}
+				
+				//The unpacked route must be a chain of real Roads adding up to the shortest distance
+				assertEquals(expected, route.getDistance());
+				ArrayList<Town> stops = route.getTowns();
+				ArrayList<Road> roads = route.getRoads();
+				int total = 0;
+				for (int i = 0; i < roads.size(); i++) {
+					assertEquals(roads.get(i), graph.getEdge(stops.get(i), stops.get(i + 1)));
+					total += roads.get(i).getWeight();
+				}
+				assertEquals(expected, total);
+				assertEquals(source, stops.get(0));
+				assertEquals(destination, stops.get(stops.size() - 1));
+			}
+		}
+	}
+	
+	@Test
+	public void testManyToManyMatchesDijkstra() {
+		ArrayList<Town> sources = new ArrayList<>();
+		ArrayList<Town> targets = new ArrayList<>();
+		for (int i = 0; i < towns.length; i += 3) sources.add(towns[i]);
+		for (int i = 1; i < towns.length; i += 2) targets.add(towns[i]);
+		
+		graph.contract();
+		DistanceTable table = graph.distanceTable(sources, targets, ForkJoinPool.commonPool(), null);
+		
+		for (int i = 0; i < sources.size(); i++) {
+			ShortestPathTree tree = graph.shortestPathTree(sources.get(i));
+			for (int j = 0; j < targets.size(); j++) {
+				assertEquals(tree.getDistance(targets.get(j)), table.get(i, j));
+			}
+		}
+	}
+	
+	@Test
+	public void testStaleHierarchyFallsBack() {
+		ContractionHierarchy hierarchy = graph.contract();
+		assertSame(graph.getSnapshot(), hierarchy.getGraph());
+		assertTrue(hierarchy.getShortcutCount() >= 0);
+		
+		//After a change the old hierarchy no longer applies, but queries still answer correctly
+		graph.addEdge(towns[0], towns[59], 1, "New Road");
+		Route route = graph.route(towns[59], towns[0], RoutingMode.CONTRACTION_HIERARCHY);
+		assertEquals(1, route.getDistance());
+		assertEquals("Town 59 via New Road to Town 0 1", route.toStrings().get(0));
+	}
+}
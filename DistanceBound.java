@@ -0,0 +1,19 @@
+
+/**
+ * A lower bound on the road distance between two Towns of a CompactGraph, used to guide A* searches.
+ * A bound must never exceed the true shortest distance, or the search may return a longer route.
+ * 
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public interface DistanceBound {
+	
+	/**
+	 * Get a lower bound on the shortest distance between two Towns
+	 * @param v the number of the first Town
+	 * @param target the number of the second Town
+	 * @return a distance no greater than the shortest distance between the Towns
+	 */
+	public int lowerBound(int v, int target);
+}
@@ -0,0 +1,344 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * A table of shortest distances from a set of source Towns to a set of target Towns, held in one flat int array
+ * so that any entry can be read in constant time. Tables are computed in parallel on a ForkJoinPool,
+ * either by running an independent Dijkstra search from each source, or, for all pairs of a small and
+ * densely connected graph, by a blocked Floyd-Warshall algorithm.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class DistanceTable {
+
+	/**
+	 * Receives progress reports while a table is computed. Reports may arrive from any worker thread
+	 */
+	public interface ProgressListener {
+
+		/**
+		 * Report progress
+		 * @param completed the units of work completed so far
+		 * @param total the total units of work
+		 */
+		public void progress(int completed, int total);
+	}
+
+	//All-pairs tables of graphs up to this size, with an average degree of at least an eighth of
+	//the Towns, are computed with Floyd-Warshall rather than one search per source
+	static final int FLOYD_WARSHALL_MAX_TOWNS = 1024;
+
+	//Side length of the blocks Floyd-Warshall works on, sized so three blocks fit in cache
+	private static final int BLOCK = 64;
+
+	//Stand-in for an unreachable pair during Floyd-Warshall, small enough that adding two never overflows
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+	//The most entries a table can hold, the largest array most virtual machines will allocate
+	private static final int MAX_ENTRIES = Integer.MAX_VALUE - 8;
+
+	private final CompactGraph graph;
+	private final int[] sources;
+	private final int[] targets;
+
+	//distance[row * targets.length + column] is the distance from sources[row] to targets[column]
+	private final int[] distance;
+
+	//Lookups from Town to row and column
+	private final HashMap<Town, Integer> rowIndex;
+	private final HashMap<Town, Integer> columnIndex;
+
+	/**
+	 * Create an empty table
+	 * @param graph the snapshot the table is computed against
+	 * @param sources the source Town numbers, one per row
+	 * @param targets the target Town numbers, one per column
+	 * @throws IllegalArgumentException if the table would have too many entries to fit in an array
+	 */
+	private DistanceTable(CompactGraph graph, int[] sources, int[] targets) {
+		long size = (long) sources.length * targets.length;
+		if (size > MAX_ENTRIES) {
+			throw new IllegalArgumentException("A table of " + sources.length + " by " + targets.length
+					+ " Towns is too large");
+		}
+
+		this.graph = graph;
+		this.sources = sources;
+		this.targets = targets;
+		distance = new int[(int) size];
+
+		rowIndex = new HashMap<>(sources.length * 2);
+		for (int i = 0; i < sources.length; i++) {
+			rowIndex.putIfAbsent(graph.towns[sources[i]], i);
+		}
+		columnIndex = new HashMap<>(targets.length * 2);
+		for (int j = 0; j < targets.length; j++) {
+			columnIndex.putIfAbsent(graph.towns[targets[j]], j);
+		}
+	}
+
+	/**
+	 * Compute the distances between every pair of Towns in a snapshot
+	 * @param graph the snapshot
+	 * @param pool the pool to run the computation on
+	 * @param listener receives progress reports, or null
+	 * @return the table of distances, with rows and columns in Town number order
+	 * @throws IllegalArgumentException if the graph has too many Towns for the table to fit in an array
+	 */
+	public static DistanceTable allPairs(CompactGraph graph, ForkJoinPool pool, ProgressListener listener) {
+		int n = graph.size();
+		int[] all = new int[n];
+		for (int v = 0; v < n; v++) all[v] = v;
+
+		DistanceTable table = new DistanceTable(graph, all, all);
+
+		//Floyd-Warshall's cubic cost only pays off on small graphs where most Towns are connected
+		if (n <= FLOYD_WARSHALL_MAX_TOWNS && (long) graph.arcCount() * 8 >= (long) n * n) {
+			table.floydWarshall(pool, listener);
+		}
+		else {
+			table.searchRows(pool, listener);
+		}
+		return table;
+	}
+
+	/**
+	 * Compute the distances from each of a set of source Towns to each of a set of target Towns
+	 * @param graph the snapshot
+	 * @param sources the source Town numbers, one per row
+	 * @param targets the target Town numbers, one per column
+	 * @param pool the pool to run the computation on
+	 * @param listener receives progress reports, or null
+	 * @return the table of distances
+	 * @throws IllegalArgumentException if the table would have too many entries to fit in an array
+	 */
+	public static DistanceTable subset(CompactGraph graph, int[] sources, int[] targets,
+			ForkJoinPool pool, ProgressListener listener) {
+		DistanceTable table = new DistanceTable(graph, sources.clone(), targets.clone());
+		table.searchRows(pool, listener);
+		return table;
+	}
+
+	/**
+	 * Compute the distances from each of a set of source Towns to each of a set of target Towns with
+	 * bucket-based many-to-many search over a contraction hierarchy
+	 * @param hierarchy the hierarchy of the snapshot
+	 * @param sources the source Town numbers, one per row
+	 * @param targets the target Town numbers, one per column
+	 * @return the table of distances
+	 * @throws IllegalArgumentException if the table would have too many entries to fit in an array
+	 */
+	static DistanceTable subset(ContractionHierarchy hierarchy, int[] sources, int[] targets) {
+		DistanceTable table = new DistanceTable(hierarchy.graph, sources.clone(), targets.clone());
+		int[] result = hierarchy.manyToMany(table.sources, table.targets, SearchWorkspace.get());
+		System.arraycopy(result, 0, table.distance, 0, result.length);
+		return table;
+	}
+
+	/**
+	 * Fill the table by running one Dijkstra search per row in parallel. Each search stops once it has settled
+	 * every target, and runs in its worker thread's own workspace
+	 * @param pool the pool to run the searches on
+	 * @param listener receives a report after each row, or null
+	 */
+	private void searchRows(ForkJoinPool pool, ProgressListener listener) {
+		boolean[] isTarget = new boolean[graph.size()];
+		int targetCount = 0;
+		for (int t : targets) {
+			if (!isTarget[t]) {
+				isTarget[t] = true;
+				targetCount++;
+			}
+		}
+
+		pool.invoke(new RowTask(0, sources.length, isTarget, targetCount, new AtomicInteger(), listener));
+	}
+
+	/**
+	 * A fork/join task filling a range of rows, split in halves until each piece is small
+	 */
+	private class RowTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		//Ranges of at most this many rows are searched directly
+		private static final int ROWS_PER_TASK = 4;
+
+		private final int from, to;
+		private final boolean[] isTarget;
+		private final int targetCount;
+		private final AtomicInteger completed;
+		private final ProgressListener listener;
+
+		RowTask(int from, int to, boolean[] isTarget, int targetCount, AtomicInteger completed, ProgressListener listener) {
+			this.from = from;
+			this.to = to;
+			this.isTarget = isTarget;
+			this.targetCount = targetCount;
+			this.completed = completed;
+			this.listener = listener;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > ROWS_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new RowTask(from, middle, isTarget, targetCount, completed, listener),
+						new RowTask(middle, to, isTarget, targetCount, completed, listener));
+				return;
+			}
+
+			SearchWorkspace workspace = SearchWorkspace.get();
+			for (int row = from; row < to; row++) {
+				workspace.dijkstra(graph, sources[row], isTarget, targetCount);
+
+				int base = row * targets.length;
+				for (int column = 0; column < targets.length; column++) {
+					distance[base + column] = workspace.distanceOf(targets[column]);
+				}
+
+				int done = completed.incrementAndGet();
+				if (listener != null) listener.progress(done, sources.length);
+			}
+		}
+	}
+
+	/**
+	 * Fill an all-pairs table with the blocked Floyd-Warshall algorithm. The matrix is split into square blocks,
+	 * and for each diagonal block in turn: the diagonal block is closed over itself, then the blocks sharing its row
+	 * or column are updated from it in parallel, then every remaining block is updated from those in parallel
+	 * @param pool the pool to run the updates on
+	 * @param listener receives a report after each diagonal block, or null
+	 */
+	private void floydWarshall(ForkJoinPool pool, ProgressListener listener) {
+		int n = sources.length;
+		Arrays.fill(distance, INFINITY);
+		for (int v = 0; v < n; v++) {
+			distance[v * n + v] = 0;
+			for (int arc = graph.offsets[v]; arc < graph.offsets[v + 1]; arc++) {
+				int index = v * n + graph.targets[arc];
+				distance[index] = Math.min(distance[index], graph.weights[arc]);
+			}
+		}
+
+		int blocks = (n + BLOCK - 1) / BLOCK;
+		for (int k = 0; k < blocks; k++) {
+			final int kb = k;
+			updateBlock(kb, kb, kb);
+
+			pool.submit(() -> IntStream.range(0, blocks).parallel().filter(b -> b != kb).forEach(b -> {
+				updateBlock(kb, b, kb);
+				updateBlock(b, kb, kb);
+			})).join();
+
+			pool.submit(() -> IntStream.range(0, blocks * blocks).parallel().forEach(index -> {
+				int i = index / blocks, j = index % blocks;
+				if (i != kb && j != kb) updateBlock(i, j, kb);
+			})).join();
+
+			if (listener != null) listener.progress(k + 1, blocks);
+		}
+
+		for (int i = 0; i < distance.length; i++) {
+			if (distance[i] >= INFINITY) distance[i] = Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Relax block (i, j) of the matrix through the Towns of diagonal block k
+	 * @param i the block row
+	 * @param j the block column
+	 * @param k the diagonal block whose Towns are the intermediate stops
+	 */
+	private void updateBlock(int i, int j, int k) {
+		int n = sources.length;
+		int kEnd = Math.min(n, (k + 1) * BLOCK);
+		int iEnd = Math.min(n, (i + 1) * BLOCK);
+		int jEnd = Math.min(n, (j + 1) * BLOCK);
+
+		for (int via = k * BLOCK; via < kEnd; via++) {
+			int viaRow = via * n;
+			for (int from = i * BLOCK; from < iEnd; from++) {
+				int fromRow = from * n;
+				int toVia = distance[fromRow + via];
+				if (toVia >= INFINITY) continue;
+
+				for (int to = j * BLOCK; to < jEnd; to++) {
+					int through = toVia + distance[viaRow + to];
+					if (through < distance[fromRow + to]) distance[fromRow + to] = through;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the distance in a given row and column
+	 * @param row the row, matching the order of the sources
+	 * @param column the column, matching the order of the targets
+	 * @return the distance, or Integer.MAX_VALUE if the target cannot be reached
+	 */
+	public int get(int row, int column) {
+		return distance[row * targets.length + column];
+	}
+
+	/**
+	 * Get the distance between a source Town and a target Town
+	 * @param source a source Town of the table
+	 * @param target a target Town of the table
+	 * @return the distance, or Integer.MAX_VALUE if the target cannot be reached
+	 * @throws IllegalArgumentException if either Town is not in the table
+	 */
+	public int getDistance(Town source, Town target) {
+		Integer row = rowIndex.get(source);
+		Integer column = columnIndex.get(target);
+		if (row == null || column == null) throw new IllegalArgumentException("The indicated Town is not in the table.");
+		return get(row, column);
+	}
+
+	/**
+	 * Get the number of rows
+	 * @return the number of source Towns
+	 */
+	public int rows() {
+		return sources.length;
+	}
+
+	/**
+	 * Get the number of columns
+	 * @return the number of target Towns
+	 */
+	public int columns() {
+		return targets.length;
+	}
+
+	/**
+	 * Get the source Town of a row
+	 * @param row the row
+	 * @return the row's source Town
+	 */
+	public Town getSource(int row) {
+		return graph.towns[sources[row]];
+	}
+
+	/**
+	 * Get the target Town of a column
+	 * @param column the column
+	 * @return the column's target Town
+	 */
+	public Town getTarget(int column) {
+		return graph.towns[targets[column]];
+	}
+
+	/**
+	 * Get the snapshot the table was computed against
+	 * @return the snapshot
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+}
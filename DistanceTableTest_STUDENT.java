@@ -0,0 +1,109 @@
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DistanceTableTest_STUDENT {
+	TownGraph sparse, dense;
+	Town[] sparseTowns = new Town[200];
+	Town[] denseTowns = new Town[150];
+	ForkJoinPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new ForkJoinPool(4);
+		sparse = build(sparseTowns, 300, 11);
+		dense = build(denseTowns, 4000, 12);
+	}
+	
+	/**
+	 * Build a random graph with a given number of Roads
+	 */
+	private TownGraph build(Town[] towns, int roads, long seed) {
+		TownGraph graph = new TownGraph();
+		Random random = new Random(seed);
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town " + i);
+			graph.addVertex(towns[i]);
+		}
+		int added = 0;
+		while (added < roads) {
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], random.nextInt(100), "Road " + added++);
+		}
+		return graph;
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		pool.shutdown();
+		sparse = dense = null;
+	}
+	
+	@Test
+	public void testAllPairsBySearch() {
+		AtomicInteger reports = new AtomicInteger();
+		DistanceTable table = DistanceTable.allPairs(sparse.getSnapshot(), pool, (done, total) -> reports.incrementAndGet());
+		
+		assertEquals(sparseTowns.length, reports.get());
+		check(sparse, sparseTowns, table);
+	}
+	
+	@Test
+	public void testAllPairsByFloydWarshall() {
+		AtomicInteger last = new AtomicInteger();
+		DistanceTable table = DistanceTable.allPairs(dense.getSnapshot(), pool, (done, total) -> last.set(done * 100 / total));
+		
+		assertEquals(100, last.get());
+		check(dense, denseTowns, table);
+	}
+	
+	/**
+	 * Compare every entry of an all-pairs table against single-source searches
+	 */
+	private void check(TownGraph graph, Town[] towns, DistanceTable table) {
+		assertEquals(towns.length, table.rows());
+		for (Town source : towns) {
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			for (Town target : towns) {
+				assertEquals(tree.getDistance(target), table.getDistance(source, target));
+			}
+		}
+	}
+	
+	@Test
+	public void testSubset() {
+		DistanceTable table = sparse.distanceTable(Arrays.asList(sparseTowns[3], sparseTowns[40], sparseTowns[3]),
+				Arrays.asList(sparseTowns[7], sparseTowns[199]), pool, null);
+		
+		assertEquals(3, table.rows());
+		assertEquals(2, table.columns());
+		assertEquals(sparseTowns[40], table.getSource(1));
+		assertEquals(sparseTowns[199], table.getTarget(1));
+		
+		ShortestPathTree tree = sparse.shortestPathTree(sparseTowns[40]);
+		assertEquals(tree.getDistance(sparseTowns[7]), table.get(1, 0));
+		assertEquals(tree.getDistance(sparseTowns[199]), table.getDistance(sparseTowns[40], sparseTowns[199]));
+		assertEquals(table.get(0, 1), table.get(2, 1));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownTown() {
+		sparse.distanceTable(Arrays.asList(new Town("Nowhere")), Arrays.asList(sparseTowns[0]), pool, null);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		//50,000 by 50,000 entries overflow an int, so the table must be refused rather than allocated
+		int[] many = new int[50000];
+		DistanceTable.subset(sparse.getSnapshot(), many, many, pool, null);
+	}
+}
@@ -0,0 +1,116 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The nearest of a set of facility Towns, such as depots, for every Town in a graph. The labels come from a single
+ * multi-source Dijkstra search with every facility seeded at distance zero: each Town is settled first by the search
+ * growing out of its nearest facility, so one pass does the work of a search from every facility and a merge.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class FacilityLabels {
+
+	private final CompactGraph graph;
+	private final Town[] facilities;
+
+	//nearest[v] is the position in facilities of Town v's nearest facility, or -1 if no facility reaches it
+	private final int[] nearest;
+
+	//distance[v] is the distance from Town v to its nearest facility, or Integer.MAX_VALUE if none reaches it
+	private final int[] distance;
+
+	/**
+	 * Label every Town of a snapshot with its nearest facility
+	 * @param graph the snapshot
+	 * @param facilities the facility Towns
+	 * @param workspace the workspace to search in
+	 * @throws IllegalArgumentException if there are no facilities or a facility is not in the graph
+	 */
+	FacilityLabels(CompactGraph graph, List<Town> facilities, SearchWorkspace workspace) {
+		if (facilities.isEmpty()) throw new IllegalArgumentException("At least one facility is needed");
+		this.graph = graph;
+		this.facilities = facilities.toArray(new Town[0]);
+
+		int n = graph.size();
+		nearest = new int[n];
+		distance = new int[n];
+		Arrays.fill(nearest, -1);
+
+		//Mark each facility's own Town. A Town listed twice keeps its first position
+		int[] sources = new int[this.facilities.length];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = graph.indexOf(this.facilities[i]);
+			if (sources[i] == -1) throw new IllegalArgumentException("The indicated Town is not in the graph.");
+			if (nearest[sources[i]] == -1) nearest[sources[i]] = i;
+		}
+
+		workspace.dijkstra(graph, sources);
+
+		for (int v = 0; v < n; v++) {
+			if (!workspace.reached(v)) {
+				distance[v] = Integer.MAX_VALUE;
+				continue;
+			}
+			distance[v] = workspace.distance[v];
+
+			//Walk up the search tree to the first labeled Town, then label the Towns passed on the way
+			int root = v;
+			while (nearest[root] == -1) root = workspace.parent[root];
+			int label = nearest[root];
+			for (int u = v; nearest[u] == -1; u = workspace.parent[u]) {
+				nearest[u] = label;
+			}
+		}
+	}
+
+	/**
+	 * Get the facility nearest to a Town
+	 * @param town the Town
+	 * @return the nearest facility, or null if no facility can reach the Town
+	 * @throws IllegalArgumentException if the Town is not in the graph
+	 */
+	public Town getNearestFacility(Town town) {
+		int v = indexOf(town);
+		return nearest[v] == -1 ? null : facilities[nearest[v]];
+	}
+
+	/**
+	 * Get the distance from a Town to its nearest facility
+	 * @param town the Town
+	 * @return the distance, or Integer.MAX_VALUE if no facility can reach the Town
+	 * @throws IllegalArgumentException if the Town is not in the graph
+	 */
+	public int getDistance(Town town) {
+		return distance[indexOf(town)];
+	}
+
+	/**
+	 * Look up a Town's number
+	 * @param town the Town
+	 * @return the Town's number
+	 * @throws IllegalArgumentException if the Town is not in the graph
+	 */
+	private int indexOf(Town town) {
+		int v = graph.indexOf(town);
+		if (v == -1) throw new IllegalArgumentException("The indicated Town is not in the graph.");
+		return v;
+	}
+
+	/**
+	 * Get the facilities, in the order they were given
+	 * @return the facility Towns
+	 */
+	public Town[] getFacilities() {
+		return facilities.clone();
+	}
+
+	/**
+	 * Get the snapshot the labels were computed against
+	 * @return the snapshot
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+}
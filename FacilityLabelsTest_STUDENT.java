@@ -0,0 +1,94 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FacilityLabelsTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[50];
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		Random random = new Random(5);
+		
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town " + i);
+			graph.addVertex(towns[i]);
+		}
+		
+		//The last Town is left unconnected
+		int roads = 0;
+		while (roads < 110) {
+			int a = random.nextInt(towns.length - 1);
+			int b = random.nextInt(towns.length - 1);
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], 1 + random.nextInt(40), "Road " + roads++);
+		}
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+	
+	@Test
+	public void testMatchesSearchFromEachFacility() {
+		Town[] depots = { towns[3], towns[17], towns[30], towns[44] };
+		FacilityLabels labels = graph.nearestFacilities(Arrays.asList(depots));
+		
+		ShortestPathTree[] trees = new ShortestPathTree[depots.length];
+		for (int i = 0; i < depots.length; i++) trees[i] = graph.shortestPathTree(depots[i]);
+		
+		for (Town town : towns) {
+			int best = Integer.MAX_VALUE;
+			for (ShortestPathTree tree : trees) best = Math.min(best, tree.getDistance(town));
+			assertEquals(best, labels.getDistance(town));
+			
+			//The labeled facility is one of those at the nearest distance
+			Town facility = labels.getNearestFacility(town);
+			if (best == Integer.MAX_VALUE) {
+				assertNull(facility);
+			}
+			else {
+				int index = Arrays.asList(depots).indexOf(facility);
+				assertEquals(best, trees[index].getDistance(town));
+			}
+		}
+		
+		assertEquals(towns[17], labels.getNearestFacility(towns[17]));
+		assertEquals(0, labels.getDistance(towns[17]));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoFacilities() {
+		graph.nearestFacilities(new ArrayList<Town>());
+	}
+	
+	@Test
+	public void testNearestTowns() {
+		ShortestPathTree tree = graph.shortestPathTree(towns[0]);
+		ArrayList<TownDistance> nearest = graph.nearestTowns(towns[0], 5);
+		assertEquals(5, nearest.size());
+		
+		//Each is at its true distance, and no other Town is closer than the fifth
+		int fifth = nearest.get(4).getDistance();
+		int closer = 0;
+		for (Town town : towns) {
+			if (town != towns[0] && tree.getDistance(town) < fifth) closer++;
+		}
+		assertTrue(closer < 5);
+		for (TownDistance found : nearest) {
+			assertFalse(towns[0].equals(found.getTown()));
+			assertEquals(tree.getDistance(found.getTown()), found.getDistance());
+		}
+		
+		//An unconnected Town has no neighbors
+		assertTrue(graph.nearestTowns(towns[49], 5).isEmpty());
+	}
+}
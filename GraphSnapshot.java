@@ -0,0 +1,731 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Saves a TownGraph to a binary snapshot file and loads it back. A snapshot holds the graph's CSR arrays exactly
+ * as CompactGraph lays them out, so loading copies each array out of the memory-mapped file in one bulk read
+ * instead of parsing, checking and indexing a road file line by line. A contraction hierarchy or landmark index
+ * that is current when the graph is saved is stored too, and is ready for queries as soon as the graph is loaded.
+ *
+ * A snapshot file is a fixed-size header followed by sections, all little-endian and each starting on an
+ * 8-byte boundary. The header holds the format version, the graph's counts, a table giving each section's offset
+ * and length, a CRC-32 of everything after the header, and a CRC-32 of the header itself. The sections are:
+ * the UTF-8 Town name dictionary (offsets, then bytes), the Road name dictionary in the same form, the Towns'
+ * latitudes and longitudes in degrees, the CSR offsets, targets and weights, the Road of each arc, each Road's
+ * source, destination, length and name, the serialized contraction hierarchy and landmark index, and a hash index
+ * from Town names to numbers. Sections that are absent have a length of 0. The name index is only needed to look
+ * Towns up in place, as MappedTownGraph does; loading a TownGraph builds its own.
+ *
+ * A snapshot may be saved with its arcs packed (see PackedArcs). The targets and weights sections are then absent,
+ * and the packed arcs follow the name index, along with where each Town's arcs start among them. Packing makes
+ * the file smaller and lets a MappedTownGraph keep more of the graph in memory, at the cost of decoding each arc
+ * as it is read.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class GraphSnapshot {
+
+	//"RGSN" in the file's first four bytes
+	static final int MAGIC = 0x4e534752;
+
+	//Changed whenever the layout changes. Files of any other version are refused
+	static final int FORMAT_VERSION = 3;
+
+	static final int HEADER_SIZE = 384;
+
+	//Section numbers, in file order
+	static final int TOWN_NAME_OFFSETS = 0;
+	static final int TOWN_NAME_BYTES = 1;
+	static final int ROAD_NAME_OFFSETS = 2;
+	static final int ROAD_NAME_BYTES = 3;
+	static final int LATITUDES = 4;
+	static final int LONGITUDES = 5;
+	static final int OFFSETS = 6;
+	static final int TARGETS = 7;
+	static final int WEIGHTS = 8;
+	static final int ARC_ROADS = 9;
+	static final int ROAD_SOURCES = 10;
+	static final int ROAD_DESTINATIONS = 11;
+	static final int ROAD_WEIGHTS = 12;
+	static final int ROAD_NAMES = 13;
+	static final int HIERARCHY = 14;
+	static final int LANDMARKS = 15;
+	static final int TOWN_NAME_INDEX = 16;
+	static final int PACKED_STARTS = 17;
+	static final int PACKED_ARCS = 18;
+	static final int SECTIONS = 19;
+
+	//Header flags
+	static final int HAS_COORDINATES = 1;
+	static final int HAS_HIERARCHY = 2;
+	static final int HAS_LANDMARKS = 4;
+	static final int HAS_PACKED_ARCS = 8;
+
+	//Where the checksums sit in the header. The header checksum covers every byte before it
+	private static final int BODY_CHECKSUM = 40 + SECTIONS * 16;
+	private static final int HEADER_CHECKSUM = BODY_CHECKSUM + 8;
+
+	//The most bytes mapped at once, which keeps each mapping well inside a buffer's int-sized limit
+	private static final int WINDOW = 1 << 28;
+
+	/**
+	 * The contents of a snapshot file's header
+	 */
+	static final class Header {
+		long graphVersion;
+		int towns;
+		int arcs;
+		int roads;
+		int roadNames;
+		int flags;
+		final long[] offset = new long[SECTIONS];
+		final long[] length = new long[SECTIONS];
+		long bodyChecksum;
+
+		/**
+		 * Get the end of the last section, which is the size of the file
+		 * @return the file's size
+		 */
+		long end() {
+			long end = HEADER_SIZE;
+			for (int s = 0; s < SECTIONS; s++) {
+				end = Math.max(end, offset[s] + length[s]);
+			}
+			return end;
+		}
+	}
+
+	/**
+	 * Save a graph to a snapshot file, replacing any file already there
+	 * @param graph the graph to save
+	 * @param file the file to write
+	 * @param packArcs true to pack the arcs, which makes the file smaller
+	 * @throws IOException if the file cannot be written
+	 */
+	static void save(TownGraph graph, File file, boolean packArcs) throws IOException {
+		CompactGraph g = graph.getSnapshot();
+		ContractionHierarchy ch = graph.hierarchyFor(g);
+		LandmarkIndex index = graph.landmarksFor(g);
+		int n = g.size();
+
+		//Number the Roads by where each is first met along the arcs, and their names by first appearance
+		IdentityHashMap<Road, Integer> roadNumbers = new IdentityHashMap<>();
+		Road[] roads = new Road[g.arcCount() / 2];
+		int[] arcRoads = new int[g.arcCount()];
+		NameTable roadNames = new NameTable();
+		int[] roadNameIds = new int[roads.length];
+		int roadCount = 0;
+
+		for (int arc = 0; arc < arcRoads.length; arc++) {
+			Road road = g.roads[arc];
+			Integer number = roadNumbers.get(road);
+			if (number == null) {
+				number = roadCount++;
+				roadNumbers.put(road, number);
+				roads[number] = road;
+				roadNameIds[number] = roadNames.intern(road.getName());
+			}
+			arcRoads[arc] = number;
+		}
+
+		Header header = new Header();
+		header.graphVersion = g.version;
+		header.towns = n;
+		header.arcs = g.arcCount();
+		header.roads = roadCount;
+		header.roadNames = roadNames.size();
+		header.flags = (g.latitude != null ? HAS_COORDINATES : 0) | (ch != null ? HAS_HIERARCHY : 0)
+				| (index != null ? HAS_LANDMARKS : 0) | (packArcs ? HAS_PACKED_ARCS : 0);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Output out = new Output(channel, HEADER_SIZE);
+
+			//Name dictionaries
+			byte[][] townNames = new byte[n][];
+			for (int v = 0; v < n; v++) {
+				townNames[v] = g.towns[v].getName().getBytes(StandardCharsets.UTF_8);
+			}
+			writeDictionary(out, header, TOWN_NAME_OFFSETS, townNames);
+
+			byte[][] roadNameBytes = new byte[roadNames.size()][];
+			for (int id = 0; id < roadNameBytes.length; id++) {
+				roadNameBytes[id] = roadNames.getBytes(id);
+			}
+			writeDictionary(out, header, ROAD_NAME_OFFSETS, roadNameBytes);
+
+			//Positions in degrees, as the Towns hold them
+			if (g.latitude != null) {
+				double[] latitudes = new double[n];
+				double[] longitudes = new double[n];
+				for (int v = 0; v < n; v++) {
+					latitudes[v] = g.towns[v].hasCoordinates() ? g.towns[v].getLatitude() : Double.NaN;
+					longitudes[v] = g.towns[v].hasCoordinates() ? g.towns[v].getLongitude() : Double.NaN;
+				}
+				out.begin(header, LATITUDES);
+				out.putDoubles(latitudes);
+				out.end(header, LATITUDES);
+				out.begin(header, LONGITUDES);
+				out.putDoubles(longitudes);
+				out.end(header, LONGITUDES);
+			}
+
+			//CSR arrays
+			writeInts(out, header, OFFSETS, g.offsets, g.offsets.length);
+			if (!packArcs) {
+				writeInts(out, header, TARGETS, g.targets, g.targets.length);
+				writeInts(out, header, WEIGHTS, g.weights, g.weights.length);
+			}
+			writeInts(out, header, ARC_ROADS, arcRoads, arcRoads.length);
+
+			//Road table
+			int[] sources = new int[roadCount];
+			int[] destinations = new int[roadCount];
+			int[] weights = new int[roadCount];
+			for (int r = 0; r < roadCount; r++) {
+				sources[r] = g.indexOf(roads[r].getSource());
+				destinations[r] = g.indexOf(roads[r].getDestination());
+				weights[r] = roads[r].getWeight();
+			}
+			writeInts(out, header, ROAD_SOURCES, sources, roadCount);
+			writeInts(out, header, ROAD_DESTINATIONS, destinations, roadCount);
+			writeInts(out, header, ROAD_WEIGHTS, weights, roadCount);
+			writeInts(out, header, ROAD_NAMES, roadNameIds, roadCount);
+
+			//Preprocessing
+			if (ch != null) writeArrays(out, header, HIERARCHY, ch.toArrays());
+			if (index != null) writeArrays(out, header, LANDMARKS, index.toArrays());
+
+			int[] nameIndex = nameIndex(townNames);
+			writeInts(out, header, TOWN_NAME_INDEX, nameIndex, nameIndex.length);
+
+			if (packArcs) {
+				int[] starts = new int[n + 1];
+				byte[] packed = PackedArcs.pack(g.offsets, g.targets, g.weights, starts);
+				writeInts(out, header, PACKED_STARTS, starts, starts.length);
+				out.begin(header, PACKED_ARCS);
+				out.putBytes(packed, starts[n]);
+				out.end(header, PACKED_ARCS);
+			}
+
+			out.flush();
+			header.bodyChecksum = out.crc.getValue();
+			writeHeader(channel, header);
+		}
+	}
+
+	/**
+	 * Write a name dictionary as two sections: the offset of each name followed by the total length, then the names
+	 * @param out the output
+	 * @param header the header, which records where the sections are
+	 * @param section the offsets section. The bytes section follows it
+	 * @param names the UTF-8 names
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeDictionary(Output out, Header header, int section, byte[][] names) throws IOException {
+		int[] offsets = new int[names.length + 1];
+		for (int i = 0; i < names.length; i++) {
+			offsets[i + 1] = offsets[i] + names[i].length;
+		}
+		writeInts(out, header, section, offsets, offsets.length);
+
+		out.begin(header, section + 1);
+		for (byte[] name : names) {
+			out.putBytes(name);
+		}
+		out.end(header, section + 1);
+	}
+
+	/**
+	 * Build an open-addressed hash index of names: each slot holds a name's number plus one, or 0 when empty.
+	 * A name starts looking at the slot picked by its hash and moves to the next slot until it is found
+	 * @param names the UTF-8 names
+	 * @return the slots, a power of two in number and at most half full
+	 */
+	static int[] nameIndex(byte[][] names) {
+		int capacity = 2;
+		while (capacity < names.length * 2) capacity <<= 1;
+
+		int[] slots = new int[capacity];
+		for (int i = 0; i < names.length; i++) {
+			int slot = NameTable.hash(names[i], 0, names[i].length) & (capacity - 1);
+			while (slots[slot] != 0) slot = (slot + 1) & (capacity - 1);
+			slots[slot] = i + 1;
+		}
+		return slots;
+	}
+
+	/**
+	 * Write an array of ints as a section
+	 * @param out the output
+	 * @param header the header, which records where the section is
+	 * @param section the section
+	 * @param values the array
+	 * @param count the number of values to write
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeInts(Output out, Header header, int section, int[] values, int count) throws IOException {
+		out.begin(header, section);
+		out.putInts(values, count);
+		out.end(header, section);
+	}
+
+	/**
+	 * Write several arrays of ints as one section: the number of arrays, then each array's length and values
+	 * @param out the output
+	 * @param header the header, which records where the section is
+	 * @param section the section
+	 * @param arrays the arrays
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeArrays(Output out, Header header, int section, int[][] arrays) throws IOException {
+		out.begin(header, section);
+		out.putInt(arrays.length);
+		for (int[] array : arrays) {
+			out.putInt(array.length);
+			out.putInts(array, array.length);
+		}
+		out.end(header, section);
+	}
+
+	/**
+	 * Write the header at the start of the file
+	 * @param channel the file
+	 * @param header the header
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeHeader(FileChannel channel, Header header) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(FORMAT_VERSION);
+		buffer.putLong(header.graphVersion);
+		buffer.putInt(header.towns);
+		buffer.putInt(header.arcs);
+		buffer.putInt(header.roads);
+		buffer.putInt(header.roadNames);
+		buffer.putInt(header.flags);
+		buffer.putInt(0);
+		for (int s = 0; s < SECTIONS; s++) {
+			buffer.putLong(header.offset[s]);
+			buffer.putLong(header.length[s]);
+		}
+		buffer.putLong(header.bodyChecksum);
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, HEADER_CHECKSUM);
+		buffer.putLong(crc.getValue());
+
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, buffer.position());
+		}
+	}
+
+	/**
+	 * Load a graph from a snapshot file
+	 * @param file the snapshot file
+	 * @return the graph, with any saved preprocessing installed
+	 * @throws IOException if the file cannot be read, or is not a snapshot of this format version, or is damaged
+	 */
+	static TownGraph load(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			Header header = readHeader(channel);
+			verify(channel, header);
+			int n = header.towns;
+
+			//Towns, with their positions
+			String[] townNames = readDictionary(channel, header, TOWN_NAME_OFFSETS, n);
+			double[] latitudes = null;
+			double[] longitudes = null;
+			if ((header.flags & HAS_COORDINATES) != 0) {
+				latitudes = readDoubles(channel, header, LATITUDES, n);
+				longitudes = readDoubles(channel, header, LONGITUDES, n);
+			}
+
+			Town[] towns = new Town[n];
+			for (int v = 0; v < n; v++) {
+				boolean placed = latitudes != null && !Double.isNaN(latitudes[v]);
+				towns[v] = placed ? new Town(townNames[v], latitudes[v], longitudes[v]) : new Town(townNames[v]);
+			}
+
+			//Roads
+			String[] roadNames = readDictionary(channel, header, ROAD_NAME_OFFSETS, header.roadNames);
+			int[] sources = readInts(channel, header, ROAD_SOURCES, header.roads);
+			int[] destinations = readInts(channel, header, ROAD_DESTINATIONS, header.roads);
+			int[] weights = readInts(channel, header, ROAD_WEIGHTS, header.roads);
+			int[] names = readInts(channel, header, ROAD_NAMES, header.roads);
+
+			Road[] roads = new Road[header.roads];
+			for (int r = 0; r < roads.length; r++) {
+				check(sources[r], n);
+				check(destinations[r], n);
+				check(names[r], roadNames.length);
+				roads[r] = new Road(towns[sources[r]], towns[destinations[r]], weights[r], roadNames[names[r]]);
+			}
+
+			//CSR arrays
+			int[] offsets = readInts(channel, header, OFFSETS, n + 1);
+			int[] arcRoads = readInts(channel, header, ARC_ROADS, header.arcs);
+			if (offsets[0] != 0 || offsets[n] != header.arcs) throw new IOException("Snapshot arcs are inconsistent");
+			for (int v = 0; v < n; v++) {
+				if (offsets[v + 1] < offsets[v]) throw new IOException("Snapshot arcs are inconsistent");
+			}
+
+			int[] targets;
+			int[] arcWeights;
+			if ((header.flags & HAS_PACKED_ARCS) != 0) {
+				int[] starts = readInts(channel, header, PACKED_STARTS, n + 1);
+				if (header.length[PACKED_ARCS] > Integer.MAX_VALUE) throw new IOException("Snapshot arcs are inconsistent");
+				byte[] packed = new byte[(int) header.length[PACKED_ARCS]];
+				map(channel, header, PACKED_ARCS, 0, packed.length).get(packed);
+
+				targets = new int[header.arcs];
+				arcWeights = new int[header.arcs];
+				PackedArcs.unpack(packed, starts, offsets, targets, arcWeights);
+			}
+			else {
+				targets = readInts(channel, header, TARGETS, header.arcs);
+				arcWeights = readInts(channel, header, WEIGHTS, header.arcs);
+			}
+
+			Road[] arcRoadObjects = new Road[header.arcs];
+			for (int arc = 0; arc < arcRoads.length; arc++) {
+				check(targets[arc], n);
+				check(arcRoads[arc], roads.length);
+				arcRoadObjects[arc] = roads[arcRoads[arc]];
+			}
+
+			//The Roads already share one String per name, which the graph takes on as its own
+			TownGraph graph = new TownGraph();
+			for (Road road : roads) {
+				graph.roadNames.acquire(road.getName());
+			}
+
+			//Rebuild the graph's name index and adjacency maps in the snapshot's order
+			for (int v = 0; v < n; v++) {
+				LinkedHashMap<Town, Road> neighbors = new LinkedHashMap<>((int) ((offsets[v + 1] - offsets[v]) / 0.75f) + 1);
+				for (int arc = offsets[v]; arc < offsets[v + 1]; arc++) {
+					neighbors.put(towns[targets[arc]], arcRoadObjects[arc]);
+				}
+				graph.towns.put(townNames[v], towns[v]);
+				graph.adjacency.put(towns[v], neighbors);
+			}
+			if (graph.towns.size() != n) throw new IOException("Snapshot repeats a Town name");
+			graph.roadCount = roads.length;
+
+			CompactGraph g = new CompactGraph(header.graphVersion, towns, offsets, targets, arcWeights, arcRoadObjects);
+
+			try {
+				ContractionHierarchy ch = (header.flags & HAS_HIERARCHY) != 0
+						? ContractionHierarchy.fromArrays(g, readArrays(channel, header, HIERARCHY)) : null;
+				LandmarkIndex index = (header.flags & HAS_LANDMARKS) != 0
+						? LandmarkIndex.fromArrays(g, readArrays(channel, header, LANDMARKS)) : null;
+				graph.restore(g, ch, index);
+			}
+			catch (IllegalArgumentException e) {
+				throw new IOException("Snapshot preprocessing is inconsistent", e);
+			}
+
+			return graph;
+		}
+	}
+
+	/**
+	 * Read and check a snapshot file's header
+	 * @param channel the file
+	 * @return the header
+	 * @throws IOException if the file is not a snapshot of this format version, or its header is damaged
+	 */
+	static Header readHeader(FileChannel channel) throws IOException {
+		if (channel.size() < HEADER_SIZE) throw new IOException("Not a graph snapshot");
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, buffer.position()) < 0) throw new IOException("Not a graph snapshot");
+		}
+		buffer.flip();
+
+		if (buffer.getInt() != MAGIC) throw new IOException("Not a graph snapshot");
+		int version = buffer.getInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported snapshot format version " + version + ", expected " + FORMAT_VERSION);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), 0, HEADER_CHECKSUM);
+		if (buffer.getLong(HEADER_CHECKSUM) != crc.getValue()) throw new IOException("Snapshot header is damaged");
+
+		Header header = new Header();
+		header.graphVersion = buffer.getLong();
+		header.towns = buffer.getInt();
+		header.arcs = buffer.getInt();
+		header.roads = buffer.getInt();
+		header.roadNames = buffer.getInt();
+		header.flags = buffer.getInt();
+		buffer.getInt();
+		for (int s = 0; s < SECTIONS; s++) {
+			header.offset[s] = buffer.getLong();
+			header.length[s] = buffer.getLong();
+		}
+		header.bodyChecksum = buffer.getLong();
+
+		if (header.end() != channel.size()) throw new IOException("Snapshot is truncated");
+		return header;
+	}
+
+	/**
+	 * Check the body of a snapshot file against its checksum
+	 * @param channel the file
+	 * @param header the file's header
+	 * @throws IOException if the body is damaged
+	 */
+	static void verify(FileChannel channel, Header header) throws IOException {
+		CRC32 crc = new CRC32();
+		long end = header.end();
+		for (long position = HEADER_SIZE; position < end; position += WINDOW) {
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, end - position)));
+		}
+		if (crc.getValue() != header.bodyChecksum) throw new IOException("Snapshot is damaged");
+	}
+
+	/**
+	 * Map part of a section into memory
+	 * @param channel the file
+	 * @param header the file's header
+	 * @param section the section
+	 * @param from the offset within the section
+	 * @param length the number of bytes to map
+	 * @return the mapped bytes
+	 * @throws IOException if the file cannot be mapped
+	 */
+	static MappedByteBuffer map(FileChannel channel, Header header, int section, long from, long length) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, header.offset[section] + from, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	/**
+	 * Read a section of ints
+	 * @param channel the file
+	 * @param header the file's header
+	 * @param section the section
+	 * @param count the number of ints the section should hold
+	 * @return the ints
+	 * @throws IOException if the section does not hold that many ints
+	 */
+	private static int[] readInts(FileChannel channel, Header header, int section, int count) throws IOException {
+		if (header.length[section] != (long) count * 4) throw new IOException("Snapshot section " + section + " has the wrong size");
+
+		int[] values = new int[count];
+		for (int done = 0; done < count; ) {
+			int chunk = Math.min(count - done, WINDOW / 4);
+			map(channel, header, section, (long) done * 4, (long) chunk * 4).asIntBuffer().get(values, done, chunk);
+			done += chunk;
+		}
+		return values;
+	}
+
+	/**
+	 * Read a section of doubles
+	 * @param channel the file
+	 * @param header the file's header
+	 * @param section the section
+	 * @param count the number of doubles the section should hold
+	 * @return the doubles
+	 * @throws IOException if the section does not hold that many doubles
+	 */
+	private static double[] readDoubles(FileChannel channel, Header header, int section, int count) throws IOException {
+		if (header.length[section] != (long) count * 8) throw new IOException("Snapshot section " + section + " has the wrong size");
+
+		double[] values = new double[count];
+		for (int done = 0; done < count; ) {
+			int chunk = Math.min(count - done, WINDOW / 8);
+			map(channel, header, section, (long) done * 8, (long) chunk * 8).asDoubleBuffer().get(values, done, chunk);
+			done += chunk;
+		}
+		return values;
+	}
+
+	/**
+	 * Read a name dictionary
+	 * @param channel the file
+	 * @param header the file's header
+	 * @param section the dictionary's offsets section
+	 * @param count the number of names
+	 * @return the names
+	 * @throws IOException if the dictionary is inconsistent
+	 */
+	private static String[] readDictionary(FileChannel channel, Header header, int section, int count) throws IOException {
+		int[] offsets = readInts(channel, header, section, count + 1);
+		if (offsets[0] != 0 || offsets[count] != header.length[section + 1]) {
+			throw new IOException("Snapshot names are inconsistent");
+		}
+
+		byte[] bytes = new byte[offsets[count]];
+		map(channel, header, section + 1, 0, bytes.length).get(bytes);
+
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++) {
+			if (offsets[i + 1] < offsets[i]) throw new IOException("Snapshot names are inconsistent");
+			names[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+		}
+		return names;
+	}
+
+	/**
+	 * Read a section written by writeArrays
+	 * @param channel the file
+	 * @param header the file's header
+	 * @param section the section
+	 * @return the arrays
+	 * @throws IOException if the section is inconsistent
+	 */
+	private static int[][] readArrays(FileChannel channel, Header header, int section) throws IOException {
+		long length = header.length[section];
+		if (length % 4 != 0 || length / 4 > Integer.MAX_VALUE) throw new IOException("Snapshot section " + section + " has the wrong size");
+		int[] values = readInts(channel, header, section, (int) (length / 4));
+
+		int position = 0;
+		int count = values[position++];
+		int[][] arrays = new int[count][];
+		for (int i = 0; i < count; i++) {
+			int arrayLength = values[position++];
+			if (arrayLength < 0 || arrayLength > values.length - position) {
+				throw new IOException("Snapshot section " + section + " is inconsistent");
+			}
+			arrays[i] = Arrays.copyOfRange(values, position, position + arrayLength);
+			position += arrayLength;
+		}
+		return arrays;
+	}
+
+	/**
+	 * Check that a number read from a snapshot is in range
+	 * @param value the number
+	 * @param limit one more than the largest number allowed
+	 * @throws IOException if the number is out of range
+	 */
+	private static void check(int value, int limit) throws IOException {
+		if (value < 0 || value >= limit) throw new IOException("Snapshot refers to a missing entry");
+	}
+
+	/**
+	 * Buffered output to a snapshot file that keeps a running checksum of everything written
+	 */
+	private static final class Output {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		final CRC32 crc = new CRC32();
+
+		//The file offset of the buffer's first byte
+		private long flushed;
+
+		Output(FileChannel channel, long start) {
+			this.channel = channel;
+			flushed = start;
+		}
+
+		/**
+		 * Get the file offset of the next byte written
+		 * @return the offset
+		 */
+		long position() {
+			return flushed + buffer.position();
+		}
+
+		/**
+		 * Start a section on an 8-byte boundary
+		 * @param header the header, which records where the section is
+		 * @param section the section
+		 * @throws IOException if the file cannot be written
+		 */
+		void begin(Header header, int section) throws IOException {
+			while (position() % 8 != 0) {
+				room(1);
+				buffer.put((byte) 0);
+			}
+			header.offset[section] = position();
+		}
+
+		/**
+		 * Finish a section
+		 * @param header the header, which records the section's length
+		 * @param section the section
+		 */
+		void end(Header header, int section) {
+			header.length[section] = position() - header.offset[section];
+		}
+
+		void putInt(int value) throws IOException {
+			room(4);
+			buffer.putInt(value);
+		}
+
+		void putInts(int[] values, int count) throws IOException {
+			for (int done = 0; done < count; ) {
+				room(4);
+				int chunk = Math.min(count - done, buffer.remaining() / 4);
+				buffer.asIntBuffer().put(values, done, chunk);
+				buffer.position(buffer.position() + chunk * 4);
+				done += chunk;
+			}
+		}
+
+		void putDoubles(double[] values) throws IOException {
+			for (int done = 0; done < values.length; ) {
+				room(8);
+				int chunk = Math.min(values.length - done, buffer.remaining() / 8);
+				buffer.asDoubleBuffer().put(values, done, chunk);
+				buffer.position(buffer.position() + chunk * 8);
+				done += chunk;
+			}
+		}
+
+		void putBytes(byte[] values) throws IOException {
+			putBytes(values, values.length);
+		}
+
+		void putBytes(byte[] values, int count) throws IOException {
+			for (int done = 0; done < count; ) {
+				room(1);
+				int chunk = Math.min(count - done, buffer.remaining());
+				buffer.put(values, done, chunk);
+				done += chunk;
+			}
+		}
+
+		/**
+		 * Make room in the buffer, flushing it if needed
+		 * @param bytes the number of bytes needed
+		 * @throws IOException if the file cannot be written
+		 */
+		private void room(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) flush();
+		}
+
+		/**
+		 * Write the buffer to the file
+		 * @throws IOException if the file cannot be written
+		 */
+		void flush() throws IOException {
+			crc.update(buffer.array(), 0, buffer.position());
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				flushed += channel.write(buffer, flushed);
+			}
+			buffer.clear();
+		}
+	}
+}
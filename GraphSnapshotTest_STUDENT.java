@@ -0,0 +1,229 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GraphSnapshotTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[50];
+	File file;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		Random random = new Random(17);
+
+		//Every other Town has a position, and one has a name outside ASCII
+		for (int i = 0; i < towns.length; i++) {
+			String name = i == 7 ? "Montr\u00e9al" : "Town " + i;
+			towns[i] = i % 2 == 0 ? new Town(name, random.nextDouble() * 10 + 40, random.nextDouble() * 10 - 90) : new Town(name);
+			graph.addVertex(towns[i]);
+		}
+
+		int roads = 0;
+		while (roads < 120) {
+			int a = random.nextInt(46);
+			int b = random.nextInt(46);
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], 60 + random.nextInt(50), "Road " + roads++ % 30);
+		}
+
+		//Removing Roads leaves gaps in the adjacency maps' order that the snapshot must keep
+		graph.removeEdge(graph.edgesOf(towns[0]).iterator().next());
+
+		file = File.createTempFile("graph", ".snapshot");
+		file.deleteOnExit();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+		graph = null;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		graph.saveSnapshot(file);
+		TownGraph loaded = TownGraph.loadSnapshot(file);
+
+		//Towns come back in the same order, with the same positions
+		ArrayList<Town> expected = new ArrayList<>(graph.vertexSet());
+		ArrayList<Town> actual = new ArrayList<>(loaded.vertexSet());
+		assertEquals(expected, actual);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).hasCoordinates(), actual.get(i).hasCoordinates());
+			if (expected.get(i).hasCoordinates()) {
+				assertEquals(expected.get(i).getLatitude(), actual.get(i).getLatitude(), 0);
+				assertEquals(expected.get(i).getLongitude(), actual.get(i).getLongitude(), 0);
+			}
+		}
+
+		//Roads come back with their names, lengths and ends, in each Town's order
+		assertEquals(graph.edgeSet().size(), loaded.edgeSet().size());
+		for (Town town : expected) {
+			ArrayList<Road> before = new ArrayList<>(graph.adjacency.get(town).values());
+			ArrayList<Road> after = new ArrayList<>(loaded.adjacency.get(town).values());
+			assertEquals(before.size(), after.size());
+			for (int i = 0; i < before.size(); i++) {
+				assertEquals(before.get(i).getName(), after.get(i).getName());
+				assertEquals(before.get(i).getWeight(), after.get(i).getWeight());
+				assertEquals(before.get(i).getSource(), after.get(i).getSource());
+				assertEquals(before.get(i).getDestination(), after.get(i).getDestination());
+			}
+		}
+
+		for (Town destination : towns) {
+			assertEquals(graph.shortestPath(towns[2], destination), loaded.shortestPath(towns[2], destination));
+		}
+
+		//The loaded graph can still change
+		loaded.addVertex(new Town("New Town"));
+		loaded.addEdge(new Town("New Town"), towns[3], 5, "Spur");
+		assertEquals(5, loaded.shortestPathTree(towns[3]).getDistance(new Town("New Town")));
+	}
+
+	@Test
+	public void testPackedRoundTrip() throws IOException {
+		graph.saveSnapshot(file);
+		long plainLength = file.length();
+		graph.saveSnapshot(file, true);
+		assertTrue(file.length() < plainLength);
+
+		TownGraph loaded = TownGraph.loadSnapshot(file);
+		CompactGraph before = graph.getSnapshot();
+		CompactGraph after = loaded.getSnapshot();
+		assertArrayEquals(before.offsets, after.offsets);
+		assertArrayEquals(before.targets, after.targets);
+		assertArrayEquals(before.weights, after.weights);
+		for (int arc = 0; arc < before.arcCount(); arc++) {
+			assertEquals(before.roads[arc].getName(), after.roads[arc].getName());
+		}
+
+		for (Town destination : towns) {
+			assertEquals(graph.shortestPath(towns[2], destination), loaded.shortestPath(towns[2], destination));
+		}
+	}
+	
+	@Test
+	public void testPreprocessingIsSaved() throws IOException {
+		ContractionHierarchy ch = graph.contract();
+		graph.prepareLandmarks(4);
+		graph.saveSnapshot(file);
+
+		TownGraph loaded = TownGraph.loadSnapshot(file);
+		CompactGraph g = loaded.getSnapshot();
+		assertNotNull(loaded.hierarchyFor(g));
+		assertNotNull(loaded.landmarksFor(g));
+		assertEquals(ch.getShortcutCount(), loaded.hierarchyFor(g).getShortcutCount());
+		assertArrayEquals(graph.landmarksFor(graph.getSnapshot()).getLandmarks(), loaded.landmarksFor(g).getLandmarks());
+
+		for (Town source : towns) {
+			for (Town destination : towns) {
+				Route expected = graph.route(source, destination, RoutingMode.DIJKSTRA);
+				Route hierarchy = loaded.route(source, destination, RoutingMode.CONTRACTION_HIERARCHY);
+				Route landmarks = loaded.route(source, destination, RoutingMode.LANDMARKS);
+				if (expected == null) {
+					assertNull(hierarchy);
+					assertNull(landmarks);
+				}
+				else {
+					assertEquals(expected.getDistance(), hierarchy.getDistance());
+					assertEquals(expected.getDistance(), landmarks.getDistance());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testStalePreprocessingIsNotSaved() throws IOException {
+		graph.contract();
+		graph.addVertex(new Town("Late Town"));
+		graph.saveSnapshot(file);
+
+		TownGraph loaded = TownGraph.loadSnapshot(file);
+		assertNull(loaded.hierarchyFor(loaded.getSnapshot()));
+		assertTrue(loaded.containsVertex(new Town("Late Town")));
+	}
+
+	@Test
+	public void testEmptyGraph() throws IOException {
+		new TownGraph().saveSnapshot(file);
+		TownGraph loaded = TownGraph.loadSnapshot(file);
+		assertTrue(loaded.vertexSet().isEmpty());
+		assertTrue(loaded.edgeSet().isEmpty());
+	}
+
+	@Test
+	public void testDamageIsDetected() throws IOException {
+		graph.saveSnapshot(file);
+		long length = file.length();
+
+		//Flip one bit in the header and then in the body
+		for (long position : new long[] { 20, length / 2, length - 1 }) {
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.seek(position);
+				int b = raf.read();
+				raf.seek(position);
+				raf.write(b ^ 1);
+			}
+			try {
+				TownGraph.loadSnapshot(file);
+				fail("Expected damage at " + position + " to be detected");
+			}
+			catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().contains("damaged"));
+			}
+			graph.saveSnapshot(file);
+		}
+	}
+
+	@Test
+	public void testRejectsOtherFiles() throws IOException {
+		graph.saveSnapshot(file);
+
+		//A truncated snapshot
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 4);
+		}
+		try {
+			TownGraph.loadSnapshot(file);
+			fail("Expected a truncated snapshot to be refused");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("truncated"));
+		}
+
+		//Another format version
+		graph.saveSnapshot(file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(4);
+			raf.write(GraphSnapshot.FORMAT_VERSION + 1);
+		}
+		try {
+			TownGraph.loadSnapshot(file);
+			fail("Expected another format version to be refused");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("version"));
+		}
+
+		//A road file
+		try (java.io.PrintWriter out = new java.io.PrintWriter(file)) {
+			out.println("I-94,283;Detroit;Chicago");
+		}
+		try {
+			TownGraph.loadSnapshot(file);
+			fail("Expected a road file to be refused");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Not a graph snapshot"));
+		}
+	}
+}
@@ -0,0 +1,177 @@
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of vertex indices keyed by integer distance, used as the priority queue
+ * for Dijkstra's algorithm. Each vertex index appears in the heap at most once, and its position
+ * is tracked so that its key can be lowered in place (decrease-key) rather than re-inserted.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class IndexedMinHeap implements VertexQueue {
+
+	//heap[i] is the vertex stored at heap position i
+	private int[] heap;
+
+	//position[v] is the heap position of vertex v, or -1 if v is not in the heap
+	private int[] position;
+
+	//key[v] is the current priority of vertex v while it is in the heap
+	private int[] key;
+
+	private int size;
+
+	/**
+	 * Create an empty heap able to hold the vertex indices 0 through capacity - 1
+	 * @param capacity the number of vertices the heap must be able to index
+	 */
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		key = new int[capacity];
+
+		for (int i = 0; i < capacity; i++) {
+			position[i] = -1;
+		}
+	}
+
+	/**
+	 * Insert a vertex with the given key, or lower its key if it is already in the heap.
+	 * A key that is not lower than the vertex's current key is ignored.
+	 *
+	 * @param vertex the vertex index
+	 * @param newKey the vertex's priority
+	 */
+	public void push(int vertex, int newKey) {
+		int pos = position[vertex];
+
+		//New vertex: place it at the bottom of the heap
+		if (pos == -1) {
+			pos = size++;
+			heap[pos] = vertex;
+			position[vertex] = pos;
+		}
+		//Existing vertex: only a lower key may change its place
+		else if (newKey >= key[vertex]) return;
+
+		key[vertex] = newKey;
+		siftUp(pos);
+	}
+
+	/**
+	 * Remove and return the vertex with the lowest key
+	 * @return the vertex with the lowest key
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public int poll() {
+		if (size == 0) throw new NoSuchElementException();
+
+		int min = heap[0];
+		position[min] = -1;
+
+		//Move the last vertex to the root and restore the heap order
+		size--;
+		if (size > 0) {
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(0);
+		}
+
+		return min;
+	}
+
+	/**
+	 * Get the lowest key in the heap without removing its vertex
+	 * @return the lowest key in the heap
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	public int peekKey() {
+		if (size == 0) throw new NoSuchElementException();
+		return key[heap[0]];
+	}
+
+	/**
+	 * Check whether a vertex is currently in the heap
+	 * @param vertex the vertex index
+	 * @return true if the vertex is in the heap, and false otherwise
+	 */
+	public boolean contains(int vertex) {
+		return position[vertex] != -1;
+	}
+
+	/**
+	 * Check whether the heap is empty
+	 * @return true if the heap holds no vertices, and false otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get the number of vertices in the heap
+	 * @return the number of vertices in the heap
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove every vertex from the heap. Only the positions still in use are reset,
+	 * so clearing costs time proportional to the heap's size rather than its capacity.
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			position[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Move the vertex at a heap position up until its parent's key is no greater than its own
+	 * @param pos the heap position to sift
+	 */
+	private void siftUp(int pos) {
+		int vertex = heap[pos];
+		int vertexKey = key[vertex];
+
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (key[heap[parent]] <= vertexKey) break;
+
+			//Pull the parent down into the hole
+			heap[pos] = heap[parent];
+			position[heap[pos]] = pos;
+			pos = parent;
+		}
+
+		heap[pos] = vertex;
+		position[vertex] = pos;
+	}
+
+	/**
+	 * Move the vertex at a heap position down until neither child has a lower key
+	 * @param pos the heap position to sift
+	 */
+	private void siftDown(int pos) {
+		int vertex = heap[pos];
+		int vertexKey = key[vertex];
+
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= size) break;
+
+			//Pick the smaller of the two children
+			if (child + 1 < size && key[heap[child + 1]] < key[heap[child]]) child++;
+			if (key[heap[child]] >= vertexKey) break;
+
+			//Pull the child up into the hole
+			heap[pos] = heap[child];
+			position[heap[pos]] = pos;
+			pos = child;
+		}
+
+		heap[pos] = vertex;
+		position[vertex] = pos;
+	}
+}
@@ -0,0 +1,66 @@
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexedMinHeapTest_STUDENT {
+	IndexedMinHeap heap;
+
+	@Before
+	public void setUp() throws Exception {
+		heap = new IndexedMinHeap(6);
+		heap.push(0, 40);
+		heap.push(1, 10);
+		heap.push(2, 30);
+		heap.push(3, 20);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		heap = null;
+	}
+	
+	@Test
+	public void testPollOrder() {
+		assertEquals(1, heap.poll());
+		assertEquals(3, heap.poll());
+		assertEquals(2, heap.poll());
+		assertEquals(0, heap.poll());
+		assertTrue(heap.isEmpty());
+	}
+	
+	@Test
+	public void testDecreaseKey() {
+		heap.push(0, 5);
+		heap.push(2, 35); //Higher key is ignored
+		
+		assertEquals(4, heap.size());
+		assertEquals(5, heap.peekKey());
+		assertEquals(0, heap.poll());
+		assertEquals(1, heap.poll());
+		assertEquals(3, heap.poll());
+		assertEquals(2, heap.poll());
+	}
+	
+	@Test
+	public void testContainsAndClear() {
+		assertTrue(heap.contains(2));
+		assertFalse(heap.contains(4));
+		
+		heap.clear();
+		assertTrue(heap.isEmpty());
+		assertFalse(heap.contains(2));
+		
+		heap.push(2, 1);
+		assertEquals(2, heap.poll());
+	}
+	
+	@Test(expected = NoSuchElementException.class)
+	public void testPollEmpty() {
+		heap.clear();
+		heap.poll();
+	}
+}
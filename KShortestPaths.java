@@ -0,0 +1,286 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Yen's algorithm for the k shortest loopless routes between two Towns. Each new route branches off an earlier one:
+ * for every Town along the most recent route, a spur search looks for the best way on to the destination that
+ * leaves the route's beginning (the root) by a Road no earlier route took from the same root, without revisiting
+ * the root. The best of all these candidates is the next route.
+ *
+ * Spur searches are A* searches guided by the exact distance to the destination in the whole graph, taken from one
+ * shortest path tree grown from the destination. Since removing Roads can only lengthen routes, that distance is a
+ * lower bound that steers each spur search almost straight to the destination. It also prunes: once enough
+ * candidates are in hand, a spur whose root length plus remaining distance cannot beat them is never searched,
+ * and a spur search stops as soon as it cannot beat them either.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class KShortestPaths {
+
+	/**
+	 * A route as arrays of Town numbers and arcs, compared by its Towns
+	 */
+	private static final class Path {
+		final int[] vertices;
+		final int[] arcs;
+		final int distance;
+
+		Path(int[] vertices, int[] arcs, int distance) {
+			this.vertices = vertices;
+			this.arcs = arcs;
+			this.distance = distance;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Path && Arrays.equals(vertices, ((Path) o).vertices);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(vertices);
+		}
+	}
+
+	private final CompactGraph graph;
+	private final int target;
+	private final ShortestPathTree toTarget;
+	private final SearchWorkspace workspace;
+
+	//blocked[v] == blockEpoch while Town v is part of the current spur's root
+	private final int[] blocked;
+	private int blockEpoch;
+
+	/**
+	 * Prepare to search a snapshot
+	 * @param graph the snapshot
+	 * @param target the number of the destination Town
+	 * @param toTarget the shortest path tree grown from the destination
+	 * @param workspace the workspace for the spur searches
+	 */
+	private KShortestPaths(CompactGraph graph, int target, ShortestPathTree toTarget, SearchWorkspace workspace) {
+		this.graph = graph;
+		this.target = target;
+		this.toTarget = toTarget;
+		this.workspace = workspace;
+		blocked = new int[graph.size()];
+	}
+
+	/**
+	 * Find the k shortest loopless routes between two Towns
+	 * @param graph the snapshot to search
+	 * @param source the number of the starting Town
+	 * @param target the number of the destination Town
+	 * @param k the number of routes wanted
+	 * @param toTarget the shortest path tree grown from the destination. The graph is undirected,
+	 * so it gives every Town's distance to the destination
+	 * @param workspace the workspace for the spur searches
+	 * @return up to k distinct routes, shortest first. Fewer are returned if fewer exist
+	 */
+	static ArrayList<Route> find(CompactGraph graph, int source, int target, int k,
+			ShortestPathTree toTarget, SearchWorkspace workspace) {
+		ArrayList<Route> routes = new ArrayList<>(k);
+		if (k <= 0 || toTarget.distanceOf(source) == Integer.MAX_VALUE) return routes;
+
+		KShortestPaths search = new KShortestPaths(graph, target, toTarget, workspace);
+		for (Path path : search.run(source, k)) {
+			routes.add(new Route(graph, path.vertices, path.arcs, path.distance));
+		}
+		return routes;
+	}
+
+	/**
+	 * Run Yen's algorithm
+	 * @param source the number of the starting Town
+	 * @param k the number of routes wanted
+	 * @return up to k routes, shortest first
+	 */
+	private ArrayList<Path> run(int source, int k) {
+		ArrayList<Path> found = new ArrayList<>(k);
+		found.add(treePath(source));
+
+		//Candidates, shortest first, trimmed to the number of routes still needed
+		ArrayList<Path> candidates = new ArrayList<>();
+		HashSet<Path> seen = new HashSet<>(found);
+
+		while (found.size() < k) {
+			Path previous = found.get(found.size() - 1);
+			int rootCost = 0;
+
+			for (int i = 0; i + 1 < previous.vertices.length; i++) {
+				int spur = previous.vertices[i];
+				if (i > 0) rootCost += graph.weights[previous.arcs[i - 1]];
+
+				//A candidate can only matter if it beats the worst of the candidates still needed
+				int needed = k - found.size();
+				long limit = candidates.size() >= needed ? candidates.get(needed - 1).distance : Long.MAX_VALUE;
+				if ((long) rootCost + toTarget.distanceOf(spur) >= limit) continue;
+
+				//The spur search may not revisit the root, nor leave the spur by a Road an earlier route took
+				blockEpoch++;
+				for (int j = 0; j < i; j++) {
+					blocked[previous.vertices[j]] = blockEpoch;
+				}
+				int[] excluded = nextStops(found, previous, i);
+
+				Path spurPath = spurSearch(spur, excluded, limit - rootCost);
+				if (spurPath == null) continue;
+
+				Path candidate = join(previous, i, rootCost, spurPath);
+				if (!seen.add(candidate)) continue;
+
+				int position = 0;
+				while (position < candidates.size() && candidates.get(position).distance <= candidate.distance) position++;
+				candidates.add(position, candidate);
+				while (candidates.size() > needed) candidates.remove(candidates.size() - 1);
+			}
+
+			if (candidates.isEmpty()) break;
+			found.add(candidates.remove(0));
+		}
+
+		return found;
+	}
+
+	/**
+	 * Read the shortest route from a Town to the destination out of the destination's tree
+	 * @param source the number of the starting Town
+	 * @return the shortest route
+	 */
+	private Path treePath(int source) {
+		int length = 0;
+		for (int v = source; v != target; v = toTarget.parentOf(v)) length++;
+
+		int[] vertices = new int[length + 1];
+		int[] arcs = new int[length];
+		int v = source;
+		for (int i = 0; i < length; i++) {
+			vertices[i] = v;
+			arcs[i] = toTarget.parentArcOf(v);
+			v = toTarget.parentOf(v);
+		}
+		vertices[length] = target;
+
+		return new Path(vertices, arcs, toTarget.distanceOf(source));
+	}
+
+	/**
+	 * Find the Towns that routes already found go to next after sharing a root with the previous route
+	 * @param found the routes found so far
+	 * @param previous the most recent route
+	 * @param spurIndex the position of the spur Town in the previous route
+	 * @return the numbers of the Towns the spur search may not step to first
+	 */
+	private static int[] nextStops(ArrayList<Path> found, Path previous, int spurIndex) {
+		int[] stops = new int[found.size()];
+		int count = 0;
+
+		for (Path path : found) {
+			if (path.vertices.length <= spurIndex + 1) continue;
+
+			boolean sameRoot = true;
+			for (int j = 0; j <= spurIndex && sameRoot; j++) {
+				sameRoot = path.vertices[j] == previous.vertices[j];
+			}
+			if (sameRoot) stops[count++] = path.vertices[spurIndex + 1];
+		}
+
+		return Arrays.copyOf(stops, count);
+	}
+
+	/**
+	 * Search from a spur Town to the destination with A*, avoiding the blocked root Towns and the excluded first steps
+	 * @param spur the number of the spur Town
+	 * @param excluded the Towns the search may not step to directly from the spur
+	 * @param limit the search gives up once no route shorter than this remains
+	 * @return the shortest such route from the spur, or null if there is none shorter than the limit
+	 */
+	private Path spurSearch(int spur, int[] excluded, long limit) {
+		workspace.begin(graph, spur);
+		workspace.label(spur, 0, -1, -1);
+		workspace.queue.push(spur, toTarget.distanceOf(spur));
+
+		while (!workspace.queue.isEmpty()) {
+			if (workspace.queue.peekKey() >= limit) return null;
+
+			int u = workspace.queue.poll();
+			workspace.settled++;
+			if (u == target) return spurPath();
+
+			int du = workspace.distance[u];
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+				if (blocked[v] == blockEpoch) continue;
+				if (u == spur && contains(excluded, v)) continue;
+
+				//Towns cut off from the destination are never worth queueing
+				int remaining = toTarget.distanceOf(v);
+				if (remaining == Integer.MAX_VALUE) continue;
+
+				int newDistance = du + graph.weights[arc];
+				if (newDistance < workspace.distanceOf(v)) {
+					workspace.label(v, newDistance, u, arc);
+					workspace.queue.push(v, newDistance + remaining);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Read the route from the spur to the destination out of the workspace
+	 * @return the route
+	 */
+	private Path spurPath() {
+		int length = 0;
+		for (int v = target; v != workspace.source; v = workspace.parent[v]) length++;
+
+		int[] vertices = new int[length + 1];
+		int[] arcs = new int[length];
+		int v = target;
+		for (int i = length; i > 0; i--) {
+			vertices[i] = v;
+			arcs[i - 1] = workspace.parentArc[v];
+			v = workspace.parent[v];
+		}
+		vertices[0] = workspace.source;
+
+		return new Path(vertices, arcs, workspace.distance[target]);
+	}
+
+	/**
+	 * Join the root of a route to a spur route
+	 * @param previous the route the root is taken from
+	 * @param spurIndex the position of the spur Town in that route
+	 * @param rootCost the length of the root
+	 * @param spurPath the route from the spur Town to the destination
+	 * @return the whole route
+	 */
+	private static Path join(Path previous, int spurIndex, int rootCost, Path spurPath) {
+		int[] vertices = new int[spurIndex + spurPath.vertices.length];
+		System.arraycopy(previous.vertices, 0, vertices, 0, spurIndex);
+		System.arraycopy(spurPath.vertices, 0, vertices, spurIndex, spurPath.vertices.length);
+
+		int[] arcs = new int[spurIndex + spurPath.arcs.length];
+		System.arraycopy(previous.arcs, 0, arcs, 0, spurIndex);
+		System.arraycopy(spurPath.arcs, 0, arcs, spurIndex, spurPath.arcs.length);
+
+		return new Path(vertices, arcs, rootCost + spurPath.distance);
+	}
+
+	/**
+	 * Check whether a small array holds a value
+	 * @param values the array
+	 * @param value the value
+	 * @return true if the value is in the array
+	 */
+	private static boolean contains(int[] values, int value) {
+		for (int v : values) {
+			if (v == value) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,105 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KShortestPathsTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[12];
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		Random random = new Random(3);
+		
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town " + i);
+			graph.addVertex(towns[i]);
+		}
+		
+		int roads = 0;
+		while (roads < 24) {
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], 1 + random.nextInt(20), "Road " + roads++);
+		}
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+	
+	@Test
+	public void testMatchesEveryLooplessPath() {
+		for (Town source : towns) {
+			for (Town destination : towns) {
+				if (source.equals(destination)) continue;
+				
+				//Every loopless path's length, by brute force
+				ArrayList<Integer> lengths = new ArrayList<>();
+				HashSet<Town> visited = new HashSet<>();
+				visited.add(source);
+				enumerate(source, destination, 0, visited, lengths);
+				Collections.sort(lengths);
+				
+				ArrayList<Route> routes = graph.kShortestRoutes(source, destination, 6);
+				assertEquals(Math.min(6, lengths.size()), routes.size());
+				
+				HashSet<ArrayList<Town>> distinct = new HashSet<>();
+				for (int i = 0; i < routes.size(); i++) {
+					Route route = routes.get(i);
+					assertEquals((int) lengths.get(i), route.getDistance());
+					
+					//Each route is loopless, unique, and joins the two Towns
+					ArrayList<Town> stops = route.getTowns();
+					assertEquals(stops.size(), new HashSet<>(stops).size());
+					assertTrue(distinct.add(stops));
+					assertEquals(source, route.getSource());
+					assertEquals(destination, route.getDestination());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Record the length of every loopless path from a Town to the destination
+	 */
+	private void enumerate(Town at, Town destination, int length, HashSet<Town> visited, ArrayList<Integer> lengths) {
+		if (at.equals(destination)) {
+			lengths.add(length);
+			return;
+		}
+		for (Road road : graph.edgesOf(at)) {
+			Town next = road.getSource().equals(at) ? road.getDestination() : road.getSource();
+			if (!visited.add(next)) continue;
+			enumerate(next, destination, length + road.getWeight(), visited, lengths);
+			visited.remove(next);
+		}
+	}
+	
+	@Test
+	public void testPathFormat() {
+		TownGraph line = new TownGraph();
+		Town a = new Town("A"), b = new Town("B"), c = new Town("C");
+		line.addVertex(a);
+		line.addVertex(b);
+		line.addVertex(c);
+		line.addEdge(a, b, 2, "Short");
+		line.addEdge(b, c, 3, "Middle");
+		line.addEdge(a, c, 9, "Long");
+		
+		ArrayList<ArrayList<String>> paths = line.kShortestPaths(a, c, 3);
+		assertEquals(2, paths.size());
+		assertEquals("A via Short to B 2", paths.get(0).get(0));
+		assertEquals("B via Middle to C 3", paths.get(0).get(1));
+		assertEquals("A via Long to C 9", paths.get(1).get(0));
+	}
+}
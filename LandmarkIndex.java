@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * Landmark distances for ALT search (A*, landmarks and the triangle inequality), which guides route queries
+ * toward the destination without needing Town coordinates. A handful of landmark Towns are chosen, and the
+ * distance from each landmark to every Town is stored. For any landmark L, the triangle inequality gives
+ * |dist(L, t) - dist(L, v)| as a lower bound on the distance from v to t, and the largest such bound
+ * over all landmarks steers the search.
+ *
+ * Landmarks are chosen by farthest selection: each new landmark is the Town farthest from those already chosen,
+ * so they spread toward the edges of the graph, where they give the tightest bounds. Towns that no landmark can
+ * reach are chosen first, so every connected piece of the graph gets a landmark.
+ *
+ * An index answers queries for the snapshot it was built from; once the graph changes it must be rebuilt.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class LandmarkIndex implements DistanceBound {
+
+	final CompactGraph graph;
+
+	//landmarks[i] is the number of the i-th landmark Town
+	private final int[] landmarks;
+
+	//distance[i][v] is the distance from landmarks[i] to Town v, or Integer.MAX_VALUE if unreachable
+	private final int[][] distance;
+
+	/**
+	 * Create an index from its chosen landmarks and their distance arrays
+	 * @param graph the indexed snapshot
+	 * @param landmarks the landmark Town numbers
+	 * @param distance each landmark's distance array
+	 */
+	private LandmarkIndex(CompactGraph graph, int[] landmarks, int[][] distance) {
+		this.graph = graph;
+		this.landmarks = landmarks;
+		this.distance = distance;
+	}
+
+	/**
+	 * Choose landmarks for a snapshot and compute their distances. More landmarks give tighter bounds and faster
+	 * queries, at the cost of one int per Town per landmark and one Dijkstra search per landmark to build
+	 *
+	 * @param graph the snapshot to index
+	 * @param count the number of landmarks to choose
+	 * @return the landmark index
+	 * @throws IllegalArgumentException if the count is negative
+	 */
+	public static LandmarkIndex build(CompactGraph graph, int count) {
+		if (count < 0) throw new IllegalArgumentException("Landmark count may not be negative");
+
+		int n = graph.size();
+		count = Math.min(count, n);
+		int[] landmarks = new int[count];
+		int[][] distance = new int[count][];
+
+		//closest[v] is the distance from Town v to its nearest landmark so far
+		int[] closest = new int[n];
+		Arrays.fill(closest, Integer.MAX_VALUE);
+
+		SearchWorkspace workspace = new SearchWorkspace();
+
+		//Start from the Town farthest from Town 0, which lies near the edge of the graph
+		int next = 0;
+		if (n > 0) {
+			workspace.dijkstra(graph, 0);
+			next = farthest(workspace, n);
+		}
+
+		for (int i = 0; i < count; i++) {
+			landmarks[i] = next;
+			workspace.dijkstra(graph, next);
+
+			int[] row = new int[n];
+			for (int v = 0; v < n; v++) {
+				row[v] = workspace.distanceOf(v);
+				closest[v] = Math.min(closest[v], row[v]);
+			}
+			distance[i] = row;
+
+			//The next landmark is the Town farthest from every landmark chosen so far.
+			//Towns no landmark reaches have a distance of MAX_VALUE and so are chosen first
+			next = 0;
+			for (int v = 1; v < n; v++) {
+				if (closest[v] > closest[next]) next = v;
+			}
+		}
+
+		return new LandmarkIndex(graph, landmarks, distance);
+	}
+
+	/**
+	 * Find the reached Town farthest from the source of a completed search
+	 * @param workspace the completed search
+	 * @param n the number of Towns
+	 * @return the farthest reached Town
+	 */
+	private static int farthest(SearchWorkspace workspace, int n) {
+		int best = workspace.source;
+		for (int v = 0; v < n; v++) {
+			if (workspace.reached(v) && workspace.distance[v] > workspace.distance[best]) best = v;
+		}
+		return best;
+	}
+
+	/**
+	 * Get a lower bound on the distance between two Towns from the triangle inequality
+	 * @param v the number of the first Town
+	 * @param target the number of the second Town
+	 * @return the largest bound given by any landmark that reaches both Towns, or 0 if there is none
+	 */
+	@Override
+	public int lowerBound(int v, int target) {
+		int bound = 0;
+
+		for (int[] row : distance) {
+			int dv = row[v];
+			int dt = row[target];
+			if (dv == Integer.MAX_VALUE || dt == Integer.MAX_VALUE) continue;
+
+			int difference = dv > dt ? dv - dt : dt - dv;
+			if (difference > bound) bound = difference;
+		}
+
+		return bound;
+	}
+
+	/**
+	 * Get the index's arrays, for saving it: the landmark Town numbers followed by each landmark's distances
+	 * @return the arrays
+	 */
+	int[][] toArrays() {
+		int[][] arrays = new int[landmarks.length + 1][];
+		arrays[0] = landmarks;
+		System.arraycopy(distance, 0, arrays, 1, landmarks.length);
+		return arrays;
+	}
+
+	/**
+	 * Restore an index from the arrays given by toArrays
+	 * @param graph the snapshot the index was built from
+	 * @param arrays the index's arrays
+	 * @return the index
+	 * @throws IllegalArgumentException if the arrays do not fit the snapshot
+	 */
+	static LandmarkIndex fromArrays(CompactGraph graph, int[][] arrays) {
+		if (arrays.length == 0 || arrays[0].length != arrays.length - 1) {
+			throw new IllegalArgumentException("Landmarks do not match the graph");
+		}
+		for (int i = 1; i < arrays.length; i++) {
+			if (arrays[i].length != graph.size()) throw new IllegalArgumentException("Landmarks do not match the graph");
+		}
+		return new LandmarkIndex(graph, arrays[0], Arrays.copyOfRange(arrays, 1, arrays.length));
+	}
+
+	/**
+	 * Get the snapshot this index was built from
+	 * @return the indexed snapshot
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Get the landmark Towns
+	 * @return the landmark Towns, in the order they were chosen
+	 */
+	public Town[] getLandmarks() {
+		Town[] towns = new Town[landmarks.length];
+		for (int i = 0; i < landmarks.length; i++) {
+			towns[i] = graph.towns[landmarks[i]];
+		}
+		return towns;
+	}
+}
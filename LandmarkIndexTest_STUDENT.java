@@ -0,0 +1,95 @@
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LandmarkIndexTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[50];
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		Random random = new Random(7);
+		
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town " + i);
+			graph.addVertex(towns[i]);
+		}
+		
+		//Two separate random networks: Towns 0-39 and Towns 40-49
+		int roads = 0;
+		while (roads < 120) {
+			int a, b;
+			if (roads < 100) {
+				a = random.nextInt(40);
+				b = random.nextInt(40);
+			}
+			else {
+				a = 40 + random.nextInt(10);
+				b = 40 + random.nextInt(10);
+			}
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], 1 + random.nextInt(30), "Road " + roads++);
+		}
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+	
+	@Test
+	public void testBoundsAreAdmissible() {
+		LandmarkIndex index = graph.prepareLandmarks(4);
+		CompactGraph g = index.getGraph();
+		assertEquals(4, index.getLandmarks().length);
+		
+		for (Town source : towns) {
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			for (Town destination : towns) {
+				int actual = tree.getDistance(destination);
+				int bound = index.lowerBound(g.indexOf(source), g.indexOf(destination));
+				assertTrue(bound <= actual);
+			}
+		}
+	}
+	
+	@Test
+	public void testLandmarksCoverEachComponent() {
+		Town[] landmarks = graph.prepareLandmarks(2).getLandmarks();
+		
+		//With two pieces, farthest selection must put one landmark in each
+		int small = 0;
+		for (Town landmark : landmarks) {
+			if (Integer.parseInt(landmark.getName().substring(5)) >= 40) small++;
+		}
+		assertEquals(1, small);
+	}
+	
+	@Test
+	public void testMatchesDijkstra() {
+		graph.prepareLandmarks(3);
+		
+		for (Town source : towns) {
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			for (Town destination : towns) {
+				Route route = graph.route(source, destination, RoutingMode.LANDMARKS);
+				int expected = tree.getDistance(destination);
+				
+				if (expected == Integer.MAX_VALUE) assertNull(route);
+				else assertEquals(expected, route.getDistance());
+			}
+		}
+	}
+	
+	@Test
+	public void testNoLandmarks() {
+		graph.prepareLandmarks(0);
+		assertEquals(graph.route(towns[0], towns[9]).getDistance(),
+				graph.route(towns[0], towns[9], RoutingMode.LANDMARKS).getDistance());
+	}
+}
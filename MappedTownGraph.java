@@ -0,0 +1,546 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A read-only graph of Towns and Roads that lives in a memory-mapped snapshot file instead of on the heap.
+ * The topology, lengths and names stay in the file, written by TownGraph.saveSnapshot, and the operating system
+ * pages them in as they are touched. Every JVM that maps the same file shares one copy of it in memory.
+ *
+ * Towns and Roads are not stored as objects. Each method that returns one builds it from the file on demand,
+ * as a flyweight that is equal to the Town or Road it stands for but is not kept. Towns are found by name through
+ * the snapshot's name index, so the heap holds nothing per Town or Road between calls. Searches use the calling
+ * thread's SearchWorkspace, whose arrays are the only per-Town memory on the heap. If the snapshot was saved with
+ * its arcs packed, the searches decode them in place as they go.
+ *
+ * The graph cannot be changed: the methods that would add or remove Towns or Roads throw
+ * UnsupportedOperationException. vertexSet and edgeSet build every Town or Road at once, and are meant for small graphs.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class MappedTownGraph implements GraphInterface<Town, Road> {
+
+	/**
+	 * One section of the file, mapped in windows of 1 GB so it may be larger than a single buffer allows.
+	 * Sections start on an 8-byte boundary, so no int or double straddles two windows
+	 */
+	private static final class Section {
+		private static final int WINDOW_BITS = 30;
+		private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+
+		private final MappedByteBuffer[] windows;
+
+		Section(FileChannel channel, GraphSnapshot.Header header, int section) throws IOException {
+			long length = header.length[section];
+			windows = new MappedByteBuffer[(int) ((length + WINDOW_MASK) >>> WINDOW_BITS)];
+			for (int w = 0; w < windows.length; w++) {
+				long from = (long) w << WINDOW_BITS;
+				windows[w] = GraphSnapshot.map(channel, header, section, from, Math.min(WINDOW_MASK + 1, length - from));
+			}
+		}
+
+		int getInt(long index) {
+			long position = index << 2;
+			return windows[(int) (position >>> WINDOW_BITS)].getInt((int) (position & WINDOW_MASK));
+		}
+
+		double getDouble(long index) {
+			long position = index << 3;
+			return windows[(int) (position >>> WINDOW_BITS)].getDouble((int) (position & WINDOW_MASK));
+		}
+
+		byte getByte(long position) {
+			return windows[(int) (position >>> WINDOW_BITS)].get((int) (position & WINDOW_MASK));
+		}
+
+		/**
+		 * Read an unsigned variable-length integer, as written by PackedArcs
+		 * @param position where the integer starts
+		 * @return the integer in the low 32 bits, and the number of bytes it took in the high 32 bits
+		 */
+		long getVarint(long position) {
+			int b = getByte(position);
+			if (b >= 0) return (1L << 32) | b;
+
+			int value = b & 0x7F;
+			int length = 1;
+			do {
+				b = getByte(position + length);
+				value |= (b & 0x7F) << (7 * length);
+				length++;
+			} while (b < 0);
+			return ((long) length << 32) | (value & 0xFFFFFFFFL);
+		}
+	}
+
+	private final int townCount;
+	private final int roadCount;
+	private final boolean hasCoordinates;
+
+	private final Section townNameOffsets;
+	private final Section townNameBytes;
+	private final Section townNameIndex;
+	private final int indexMask;
+	private final Section roadNameOffsets;
+	private final Section roadNameBytes;
+	private final Section latitudes;
+	private final Section longitudes;
+	private final Section offsets;
+	private final Section targets;
+	private final Section weights;
+
+	//Where each Town's packed arcs start, and the packed arcs. Null unless the arcs are packed
+	private final Section packedStarts;
+	private final Section packedArcs;
+	private final Section arcRoads;
+	private final Section roadSources;
+	private final Section roadDestinations;
+	private final Section roadWeights;
+	private final Section roadNames;
+
+	//The distances found by the most recent call to dijkstraShortestPath, read by getDistance
+	private volatile int[] lastDistances;
+
+	/**
+	 * Map a snapshot file
+	 * @param channel the open file
+	 * @param header the file's header
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private MappedTownGraph(FileChannel channel, GraphSnapshot.Header header) throws IOException {
+		townCount = header.towns;
+		roadCount = header.roads;
+		hasCoordinates = (header.flags & GraphSnapshot.HAS_COORDINATES) != 0;
+
+		townNameOffsets = new Section(channel, header, GraphSnapshot.TOWN_NAME_OFFSETS);
+		townNameBytes = new Section(channel, header, GraphSnapshot.TOWN_NAME_BYTES);
+		townNameIndex = new Section(channel, header, GraphSnapshot.TOWN_NAME_INDEX);
+		indexMask = (int) (header.length[GraphSnapshot.TOWN_NAME_INDEX] / 4) - 1;
+		roadNameOffsets = new Section(channel, header, GraphSnapshot.ROAD_NAME_OFFSETS);
+		roadNameBytes = new Section(channel, header, GraphSnapshot.ROAD_NAME_BYTES);
+		latitudes = new Section(channel, header, GraphSnapshot.LATITUDES);
+		longitudes = new Section(channel, header, GraphSnapshot.LONGITUDES);
+		offsets = new Section(channel, header, GraphSnapshot.OFFSETS);
+		targets = new Section(channel, header, GraphSnapshot.TARGETS);
+		weights = new Section(channel, header, GraphSnapshot.WEIGHTS);
+		boolean packed = (header.flags & GraphSnapshot.HAS_PACKED_ARCS) != 0;
+		packedStarts = packed ? new Section(channel, header, GraphSnapshot.PACKED_STARTS) : null;
+		packedArcs = packed ? new Section(channel, header, GraphSnapshot.PACKED_ARCS) : null;
+		arcRoads = new Section(channel, header, GraphSnapshot.ARC_ROADS);
+		roadSources = new Section(channel, header, GraphSnapshot.ROAD_SOURCES);
+		roadDestinations = new Section(channel, header, GraphSnapshot.ROAD_DESTINATIONS);
+		roadWeights = new Section(channel, header, GraphSnapshot.ROAD_WEIGHTS);
+		roadNames = new Section(channel, header, GraphSnapshot.ROAD_NAMES);
+	}
+
+	/**
+	 * Map a snapshot file, first checking it against its checksum
+	 * @param file the snapshot file, written by TownGraph.saveSnapshot
+	 * @return the mapped graph
+	 * @throws IOException if the file cannot be read, or is not a snapshot of this format version, or is damaged
+	 */
+	public static MappedTownGraph open(File file) throws IOException {
+		return open(file, true);
+	}
+
+	/**
+	 * Map a snapshot file
+	 * @param file the snapshot file, written by TownGraph.saveSnapshot
+	 * @param verify true to check the whole file against its checksum first, which reads every page of it.
+	 * The header is always checked
+	 * @return the mapped graph
+	 * @throws IOException if the file cannot be read, or is not a snapshot of this format version, or is damaged
+	 */
+	public static MappedTownGraph open(File file, boolean verify) throws IOException {
+		//Mappings stay valid after their channel is closed
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			GraphSnapshot.Header header = GraphSnapshot.readHeader(channel);
+			if (verify) GraphSnapshot.verify(channel, header);
+			return new MappedTownGraph(channel, header);
+		}
+	}
+
+	/**
+	 * Find the number of a Town through the name index
+	 * @param town the Town, or any Town with the same name
+	 * @return the Town's number, or -1 if it is not in the graph
+	 */
+	public int indexOf(Town town) {
+		if (town == null) return -1;
+		byte[] name = town.getName().getBytes(StandardCharsets.UTF_8);
+
+		for (int slot = NameTable.hash(name, 0, name.length) & indexMask; ; slot = (slot + 1) & indexMask) {
+			int entry = townNameIndex.getInt(slot);
+			if (entry == 0) return -1;
+			if (nameEquals(entry - 1, name)) return entry - 1;
+		}
+	}
+
+	/**
+	 * Compare a Town's name in the file to a name
+	 * @param v the Town's number
+	 * @param name the UTF-8 name
+	 * @return true if they are the same
+	 */
+	private boolean nameEquals(int v, byte[] name) {
+		long from = townNameOffsets.getInt(v);
+		long to = townNameOffsets.getInt(v + 1);
+		if (to - from != name.length) return false;
+
+		for (int i = 0; i < name.length; i++) {
+			if (townNameBytes.getByte(from + i) != name[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Decode a name from a dictionary in the file
+	 * @param nameOffsets the dictionary's offsets
+	 * @param nameBytes the dictionary's bytes
+	 * @param id the name's number
+	 * @return the name
+	 */
+	private static String name(Section nameOffsets, Section nameBytes, int id) {
+		long from = nameOffsets.getInt(id);
+		byte[] bytes = new byte[(int) (nameOffsets.getInt(id + 1) - from)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = nameBytes.getByte(from + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Build the Town with a given number
+	 * @param v the Town's number
+	 * @return a Town with the name and position stored for it
+	 */
+	public Town getTown(int v) {
+		String name = name(townNameOffsets, townNameBytes, v);
+		if (hasCoordinates && !Double.isNaN(latitudes.getDouble(v))) {
+			return new Town(name, latitudes.getDouble(v), longitudes.getDouble(v));
+		}
+		return new Town(name);
+	}
+
+	/**
+	 * Build the Road with a given number
+	 * @param r the Road's number
+	 * @return a Road with the ends, length and name stored for it
+	 */
+	private Road getRoad(int r) {
+		return new Road(getTown(roadSources.getInt(r)), getTown(roadDestinations.getInt(r)), roadWeights.getInt(r),
+				name(roadNameOffsets, roadNameBytes, roadNames.getInt(r)));
+	}
+
+	/**
+	 * Find the arc from one Town to another
+	 * @param u the number of the near Town
+	 * @param v the number of the far Town
+	 * @return the arc, or -1 if no Road joins them
+	 */
+	private int arcBetween(int u, int v) {
+		if (packedArcs != null) {
+			long position = packedStarts.getInt(u);
+			int target = u;
+			for (int arc = offsets.getInt(u), end = offsets.getInt(u + 1); arc < end; arc++) {
+				long delta = packedArcs.getVarint(position);
+				target += ((int) delta >>> 1) ^ -((int) delta & 1);
+				if (target == v) return arc;
+
+				//Skip the length
+				position += (delta >>> 32) + (packedArcs.getVarint(position + (delta >>> 32)) >>> 32);
+			}
+			return -1;
+		}
+
+		for (int arc = offsets.getInt(u), end = offsets.getInt(u + 1); arc < end; arc++) {
+			if (targets.getInt(arc) == v) return arc;
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the Road joining two Towns
+	 * @param sourceVertex one end of the Road
+	 * @param destinationVertex the other end of the Road
+	 * @return the Road if it exists, or null otherwise
+	 */
+	@Override
+	public Road getEdge(Town sourceVertex, Town destinationVertex) {
+		int u = indexOf(sourceVertex);
+		int v = indexOf(destinationVertex);
+		if (u < 0 || v < 0) return null;
+
+		int arc = arcBetween(u, v);
+		return arc < 0 ? null : getRoad(arcRoads.getInt(arc));
+	}
+
+	/**
+	 * Not supported, as a mapped graph is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		throw new UnsupportedOperationException("A mapped graph is read-only");
+	}
+
+	/**
+	 * Not supported, as a mapped graph is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean addVertex(Town v) {
+		throw new UnsupportedOperationException("A mapped graph is read-only");
+	}
+
+	/**
+	 * Check whether a Road joins two Towns
+	 * @param sourceVertex one end of the Road
+	 * @param destinationVertex the other end of the Road
+	 * @return true if the Road exists, and false otherwise
+	 */
+	@Override
+	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
+		int u = indexOf(sourceVertex);
+		int v = indexOf(destinationVertex);
+		return u >= 0 && v >= 0 && arcBetween(u, v) >= 0;
+	}
+
+	/**
+	 * Check whether a Town is in the graph
+	 * @param v the Town
+	 * @return true if a Town with its name is in the graph
+	 */
+	@Override
+	public boolean containsVertex(Town v) {
+		return indexOf(v) >= 0;
+	}
+
+	/**
+	 * Build every Road in the graph
+	 * @return a set holding every Road
+	 */
+	@Override
+	public Set<Road> edgeSet() {
+		Set<Road> edges = new HashSet<>(roadCount * 2);
+		for (int r = 0; r < roadCount; r++) {
+			edges.add(getRoad(r));
+		}
+		return edges;
+	}
+
+	/**
+	 * Build the Roads that touch a Town
+	 * @param vertex the Town
+	 * @return a set of the Town's Roads, or null if the Town is not in the graph
+	 */
+	@Override
+	public Set<Road> edgesOf(Town vertex) {
+		int u = indexOf(vertex);
+		if (u < 0) return null;
+
+		Set<Road> edges = new HashSet<>();
+		for (int arc = offsets.getInt(u), end = offsets.getInt(u + 1); arc < end; arc++) {
+			edges.add(getRoad(arcRoads.getInt(arc)));
+		}
+		return edges;
+	}
+
+	/**
+	 * Not supported, as a mapped graph is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		throw new UnsupportedOperationException("A mapped graph is read-only");
+	}
+
+	/**
+	 * Not supported, as a mapped graph is read-only
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean removeVertex(Town v) {
+		throw new UnsupportedOperationException("A mapped graph is read-only");
+	}
+
+	/**
+	 * Build every Town in the graph
+	 * @return a set holding every Town
+	 */
+	@Override
+	public Set<Town> vertexSet() {
+		Set<Town> vertices = new HashSet<>(townCount * 2);
+		for (int v = 0; v < townCount; v++) {
+			vertices.add(getTown(v));
+		}
+		return vertices;
+	}
+
+	/**
+	 * Find the shortest path between two Towns, in the same format as TownGraph.shortestPath
+	 * @param sourceVertex the starting Town
+	 * @param destinationVertex the destination Town
+	 * @return one line per Road, "[Source Town name] via [Road name] to [Destination Town name] [weight]",
+	 * or an empty list if the destination cannot be reached
+	 * @throws IllegalArgumentException if either Town is not in the graph
+	 */
+	@Override
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		int source = checkedIndexOf(sourceVertex);
+		int target = checkedIndexOf(destinationVertex);
+
+		SearchWorkspace workspace = SearchWorkspace.get();
+		dijkstra(workspace, source, target);
+
+		ArrayList<String> path = new ArrayList<>();
+		if (!workspace.reached(target)) return path;
+
+		//Count the Roads back to the source, then fill the stops from the destination backward
+		int length = 0;
+		for (int v = target; v != source; v = workspace.parent[v]) length++;
+
+		int[] stops = new int[length + 1];
+		for (int i = length, v = target; i >= 0; i--, v = workspace.parent[v]) {
+			stops[i] = v;
+		}
+
+		//Each leg's length is the difference of its ends' distances, so the arcs themselves need not be read again
+		StringBuilder builder = new StringBuilder();
+		String fromName = name(townNameOffsets, townNameBytes, source);
+		for (int i = 1; i <= length; i++) {
+			int to = stops[i];
+			int from = stops[i - 1];
+			String toName = name(townNameOffsets, townNameBytes, to);
+			int road = arcRoads.getInt(workspace.parentArc[to]);
+
+			builder.setLength(0);
+			builder.append(fromName).append(" via ")
+					.append(name(roadNameOffsets, roadNameBytes, roadNames.getInt(road)))
+					.append(" to ").append(toName).append(' ')
+					.append(workspace.distanceOf(to) - workspace.distanceOf(from));
+			path.add(builder.toString());
+			fromName = toName;
+		}
+		return path;
+	}
+
+	/**
+	 * Find the shortest distance from a Town to every other Town. The distances are read by getDistance
+	 * @param sourceVertex the starting Town
+	 * @throws IllegalArgumentException if the Town is not in the graph
+	 */
+	@Override
+	public void dijkstraShortestPath(Town sourceVertex) {
+		int source = checkedIndexOf(sourceVertex);
+
+		SearchWorkspace workspace = SearchWorkspace.get();
+		dijkstra(workspace, source, -1);
+
+		int[] distances = new int[townCount];
+		for (int v = 0; v < townCount; v++) {
+			distances[v] = workspace.distanceOf(v);
+		}
+		lastDistances = distances;
+	}
+
+	/**
+	 * Get a Town's distance from the source of the most recent call to dijkstraShortestPath
+	 * @param destination the Town
+	 * @return the distance, or Integer.MAX_VALUE if the Town cannot be reached
+	 * @throws IllegalStateException if dijkstraShortestPath has not been called
+	 * @throws IllegalArgumentException if the Town is not in the graph
+	 */
+	public int getDistance(Town destination) {
+		int[] distances = lastDistances;
+		if (distances == null) throw new IllegalStateException("dijkstraShortestPath has not been called");
+		return distances[checkedIndexOf(destination)];
+	}
+
+	/**
+	 * Run Dijkstra's algorithm over the mapped arcs
+	 * @param workspace the workspace to search in
+	 * @param source the number of the source Town
+	 * @param target the number of the Town to stop at, or -1 to settle every reachable Town
+	 */
+	private void dijkstra(SearchWorkspace workspace, int source, int target) {
+		workspace.begin(townCount, source);
+		workspace.label(source, 0, -1, -1);
+		workspace.queue.push(source, 0);
+
+		while (!workspace.queue.isEmpty()) {
+			int u = workspace.queue.poll();
+			workspace.settled++;
+			if (u == target) return;
+
+			int du = workspace.distance[u];
+			if (packedArcs != null) {
+
+				//Decode each arc's target difference and length in turn
+				long position = packedStarts.getInt(u);
+				int v = u;
+				for (int arc = offsets.getInt(u), end = offsets.getInt(u + 1); arc < end; arc++) {
+					long delta = packedArcs.getVarint(position);
+					position += delta >>> 32;
+					v += ((int) delta >>> 1) ^ -((int) delta & 1);
+
+					long weight = packedArcs.getVarint(position);
+					position += weight >>> 32;
+
+					int newDistance = du + (int) weight;
+					if (newDistance < workspace.distanceOf(v)) {
+						workspace.label(v, newDistance, u, arc);
+						workspace.queue.push(v, newDistance);
+					}
+				}
+				continue;
+			}
+
+			for (int arc = offsets.getInt(u), end = offsets.getInt(u + 1); arc < end; arc++) {
+				int v = targets.getInt(arc);
+				int newDistance = du + weights.getInt(arc);
+				if (newDistance < workspace.distanceOf(v)) {
+					workspace.label(v, newDistance, u, arc);
+					workspace.queue.push(v, newDistance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the number of a Town that must be in the graph
+	 * @param town the Town
+	 * @return the Town's number
+	 * @throws IllegalArgumentException if the Town is not in the graph
+	 */
+	private int checkedIndexOf(Town town) {
+		int v = indexOf(town);
+		if (v < 0) throw new IllegalArgumentException("The indicated Town is not in the graph.");
+		return v;
+	}
+
+	/**
+	 * Get the number of Towns in the graph
+	 * @return the number of Towns
+	 */
+	public int getTownCount() {
+		return townCount;
+	}
+
+	/**
+	 * Get the number of Roads in the graph
+	 * @return the number of Roads
+	 */
+	public int getRoadCount() {
+		return roadCount;
+	}
+}
@@ -0,0 +1,180 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedTownGraphTest_STUDENT {
+	TownGraph graph;
+	MappedTownGraph mapped;
+	Town[] towns = new Town[60];
+	File file;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		Random random = new Random(23);
+
+		//Some Towns have positions, one has a name outside ASCII, and the last few have no Roads
+		for (int i = 0; i < towns.length; i++) {
+			String name = i == 11 ? "Montr\u00e9al" : "Town " + i;
+			towns[i] = i % 3 == 0 ? new Town(name, random.nextDouble() * 10 + 40, random.nextDouble() * 10 - 90) : new Town(name);
+			graph.addVertex(towns[i]);
+		}
+
+		int roads = 0;
+		while (roads < 150) {
+			int a = random.nextInt(55);
+			int b = random.nextInt(55);
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], 1 + random.nextInt(90), "Road " + roads++ % 40);
+		}
+
+		file = File.createTempFile("graph", ".snapshot");
+		file.deleteOnExit();
+		graph.saveSnapshot(file);
+		mapped = MappedTownGraph.open(file);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+		graph = null;
+		mapped = null;
+	}
+
+	@Test
+	public void testTowns() {
+		assertEquals(towns.length, mapped.getTownCount());
+		assertEquals(graph.vertexSet(), mapped.vertexSet());
+		for (Town town : towns) {
+			assertTrue(mapped.containsVertex(new Town(town.getName())));
+		}
+		assertFalse(mapped.containsVertex(new Town("Nowhere")));
+		assertFalse(mapped.containsVertex(null));
+
+		//Positions come back from the file
+		Town town = mapped.getTown(mapped.indexOf(towns[3]));
+		assertTrue(town.hasCoordinates());
+		assertEquals(towns[3].getLatitude(), town.getLatitude(), 0);
+		assertFalse(mapped.getTown(mapped.indexOf(towns[11])).hasCoordinates());
+	}
+
+	@Test
+	public void testRoads() {
+		assertEquals(graph.edgeSet().size(), mapped.getRoadCount());
+		for (Town a : towns) {
+			//Roads are equal by name and ends, so match each one to the graph's Road between the same Towns
+			Set<Road> edges = mapped.edgesOf(a);
+			assertEquals(graph.edgesOf(a).size(), edges.size());
+			for (Road road : edges) {
+				assertEquals(graph.getEdge(road.getSource(), road.getDestination()), road);
+			}
+			for (Town b : towns) {
+				assertEquals(graph.containsEdge(a, b), mapped.containsEdge(a, b));
+				Road road = mapped.getEdge(a, b);
+				if (road == null) {
+					assertNull(graph.getEdge(a, b));
+				}
+				else {
+					assertEquals(graph.getEdge(a, b).getName(), road.getName());
+					assertEquals(graph.getEdge(a, b).getWeight(), road.getWeight());
+				}
+			}
+		}
+		assertNull(mapped.edgesOf(new Town("Nowhere")));
+		assertNull(mapped.getEdge(towns[0], new Town("Nowhere")));
+	}
+
+	@Test
+	public void testShortestPath() {
+		for (Town source : new Town[] { towns[0], towns[11], towns[58] }) {
+			for (Town destination : towns) {
+				assertEquals(graph.shortestPath(source, destination), mapped.shortestPath(source, destination));
+			}
+		}
+
+		mapped.dijkstraShortestPath(towns[11]);
+		ShortestPathTree tree = graph.shortestPathTree(towns[11]);
+		for (Town town : towns) {
+			assertEquals(tree.getDistance(town), mapped.getDistance(town));
+		}
+
+		try {
+			mapped.shortestPath(towns[0], new Town("Nowhere"));
+			fail("Expected an IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e) {
+			//Expected
+		}
+	}
+
+	@Test
+	public void testPackedArcs() throws IOException {
+		graph.saveSnapshot(file, true);
+		MappedTownGraph packed = MappedTownGraph.open(file);
+
+		for (Town source : new Town[] { towns[0], towns[11] }) {
+			for (Town destination : towns) {
+				assertEquals(graph.shortestPath(source, destination), packed.shortestPath(source, destination));
+			}
+		}
+		for (Town a : towns) {
+			for (Town b : towns) {
+				assertEquals(graph.containsEdge(a, b), packed.containsEdge(a, b));
+			}
+		}
+		for (Road road : graph.edgeSet()) {
+			assertEquals(road.getName(), packed.getEdge(road.getSource(), road.getDestination()).getName());
+			assertEquals(road.getName(), packed.getEdge(road.getDestination(), road.getSource()).getName());
+		}
+	}
+
+	@Test
+	public void testReadOnly() {
+		try {
+			mapped.addVertex(new Town("New Town"));
+			fail("Expected an UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException e) {
+			//Expected
+		}
+		try {
+			mapped.removeEdge(towns[0], towns[1], 1, "Road 0");
+			fail("Expected an UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException e) {
+			//Expected
+		}
+	}
+
+	@Test
+	public void testSharedBetweenMappings() throws IOException {
+		MappedTownGraph other = MappedTownGraph.open(file, false);
+		assertEquals(mapped.vertexSet(), other.vertexSet());
+		assertEquals(mapped.shortestPath(towns[0], towns[40]), other.shortestPath(towns[0], towns[40]));
+	}
+
+	@Test
+	public void testDamageIsDetected() throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(raf.length() - 1);
+			int b = raf.read();
+			raf.seek(raf.length() - 1);
+			raf.write(b ^ 1);
+		}
+		try {
+			MappedTownGraph.open(file);
+			fail("Expected damage to be detected");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("damaged"));
+		}
+	}
+}
@@ -0,0 +1,197 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An interning table from UTF-8 encoded names to small integer ids, used while reading road files and saving
+ * snapshots. A name is looked up straight from the bytes it was read into, so a name that has been seen before
+ * costs a hash and a byte comparison. The names' bytes are kept end to end in one array, and a name is only
+ * decoded into a String the first time it is asked for, so names that never leave the table never become Strings.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+class NameTable {
+
+	//Open-addressed slots holding id + 1, or 0 when empty. The length is a power of two
+	private int[] slots = new int[64];
+
+	//Every name's bytes, end to end. The name with an id runs from starts[id] up to starts[id + 1]
+	private byte[] arena = new byte[256];
+	private int[] starts = new int[33];
+
+	//The hash of each id, and its String once decoded
+	private int[] hashes = new int[32];
+	private String[] names = new String[32];
+
+	private int size;
+
+	/**
+	 * Find the id of a name, adding the name if it is new
+	 * @param buffer the bytes holding the name
+	 * @param from the index of the name's first byte
+	 * @param to the index just past the name's last byte
+	 * @return the name's id. Ids are handed out in order from 0
+	 */
+	int intern(byte[] buffer, int from, int to) {
+		int hash = hash(buffer, from, to);
+		int id = find(buffer, from, to, hash);
+		return id != -1 ? id : add(buffer, from, to, hash);
+	}
+
+	/**
+	 * Find the id of a name given as a String, adding the name if it is new.
+	 * A new name keeps the given String, so it never needs decoding
+	 * @param name the name
+	 * @return the name's id
+	 */
+	int intern(String name) {
+		byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+		int id = intern(encoded, 0, encoded.length);
+		if (names[id] == null) names[id] = name;
+		return id;
+	}
+
+	/**
+	 * Find the id of a name from another table, adding the name if it is new.
+	 * A new name keeps the other table's String, if it has decoded one
+	 * @param other the other table
+	 * @param otherId the name's id in the other table
+	 * @return the name's id in this table
+	 */
+	int intern(NameTable other, int otherId) {
+		int from = other.starts[otherId];
+		int to = other.starts[otherId + 1];
+		int hash = other.hashes[otherId];
+
+		int id = find(other.arena, from, to, hash);
+		if (id == -1) {
+			id = add(other.arena, from, to, hash);
+			names[id] = other.names[otherId];
+		}
+		return id;
+	}
+
+	/**
+	 * Look up a name that has already been hashed
+	 * @param buffer the bytes holding the name
+	 * @param from the index of the name's first byte
+	 * @param to the index just past the name's last byte
+	 * @param hash the name's hash
+	 * @return the name's id, or -1 if it is not in the table
+	 */
+	private int find(byte[] buffer, int from, int to, int hash) {
+		int mask = slots.length - 1;
+
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int entry = slots[slot];
+			if (entry == 0) return -1;
+
+			int id = entry - 1;
+			if (hashes[id] == hash && Arrays.equals(arena, starts[id], starts[id + 1], buffer, from, to)) return id;
+		}
+	}
+
+	/**
+	 * Add a new name
+	 * @param buffer the bytes holding the name
+	 * @param from the index of the name's first byte
+	 * @param to the index just past the name's last byte
+	 * @param hash the name's hash
+	 * @return the new id
+	 */
+	private int add(byte[] buffer, int from, int to, int hash) {
+		if (size == hashes.length) {
+			starts = Arrays.copyOf(starts, size * 2 + 1);
+			hashes = Arrays.copyOf(hashes, size * 2);
+			names = Arrays.copyOf(names, size * 2);
+		}
+
+		int start = starts[size];
+		int length = to - from;
+		if (start + length > arena.length) {
+			arena = Arrays.copyOf(arena, Math.max(arena.length * 2, start + length));
+		}
+		System.arraycopy(buffer, from, arena, start, length);
+
+		int id = size++;
+		starts[size] = start + length;
+		hashes[id] = hash;
+
+		//Keep the slots at most half full
+		if (size * 2 > slots.length) rehash(slots.length * 2);
+		else place(id);
+
+		return id;
+	}
+
+	/**
+	 * Put an id in the first free slot for its hash
+	 * @param id the id
+	 */
+	private void place(int id) {
+		int mask = slots.length - 1;
+		int slot = hashes[id] & mask;
+		while (slots[slot] != 0) slot = (slot + 1) & mask;
+		slots[slot] = id + 1;
+	}
+
+	/**
+	 * Move every id into a larger slot array
+	 * @param capacity the new number of slots
+	 */
+	private void rehash(int capacity) {
+		slots = new int[capacity];
+		for (int id = 0; id < size; id++) {
+			place(id);
+		}
+	}
+
+	/**
+	 * Hash a run of bytes. The hash only depends on the bytes, so it can be stored in files
+	 * @param buffer the bytes
+	 * @param from the index of the first byte
+	 * @param to the index just past the last byte
+	 * @return the hash
+	 */
+	static int hash(byte[] buffer, int from, int to) {
+		int h = 1;
+		for (int i = from; i < to; i++) {
+			h = 31 * h + buffer[i];
+		}
+		//Spread the bits, since only the low bits pick a slot
+		h *= 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Copy out the UTF-8 bytes of the name with an id
+	 * @param id the id
+	 * @return a copy of the name's bytes
+	 */
+	byte[] getBytes(int id) {
+		return Arrays.copyOfRange(arena, starts[id], starts[id + 1]);
+	}
+
+	/**
+	 * Get the name with an id, decoding it on first use
+	 * @param id the id
+	 * @return the name
+	 */
+	String get(int id) {
+		String name = names[id];
+		if (name == null) {
+			name = new String(arena, starts[id], starts[id + 1] - starts[id], StandardCharsets.UTF_8);
+			names[id] = name;
+		}
+		return name;
+	}
+
+	/**
+	 * Get the number of distinct names
+	 * @return the number of names
+	 */
+	int size() {
+		return size;
+	}
+}
@@ -0,0 +1,74 @@
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class NameTableTest_STUDENT {
+	NameTable table;
+
+	@Before
+	public void setUp() throws Exception {
+		table = new NameTable();
+	}
+
+	@Test
+	public void testInternsBytes() {
+		byte[] line = "I-94;Detroit;I-94".getBytes(StandardCharsets.UTF_8);
+		assertEquals(0, table.intern(line, 0, 4));
+		assertEquals(1, table.intern(line, 5, 12));
+		assertEquals(0, table.intern(line, 13, 17));
+		assertEquals(2, table.size());
+		assertEquals("Detroit", table.get(1));
+		assertArrayEquals("I-94".getBytes(StandardCharsets.UTF_8), table.getBytes(0));
+	}
+
+	@Test
+	public void testGrowsPastInitialSize() {
+		//Enough names to grow the slots and ids, and one long enough to grow the byte array on its own
+		StringBuilder longName = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			longName.append((char) ('a' + i % 26));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, table.intern("Road " + i));
+		}
+		assertEquals(1000, table.intern(longName.toString()));
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, table.intern("Road " + i));
+			assertEquals("Road " + i, table.get(i));
+		}
+		assertEquals(longName.toString(), table.get(1000));
+		assertEquals(1001, table.size());
+	}
+
+	@Test
+	public void testStringsAreShared() {
+		String name = new String("Montr\u00e9al");
+		int id = table.intern(name);
+		assertSame(name, table.get(id));
+		assertEquals(id, table.intern(new String("Montr\u00e9al")));
+		assertSame(name, table.get(id));
+
+		//Names read as bytes are decoded once, on first use
+		byte[] bytes = "Saint-\u00c9tienne".getBytes(StandardCharsets.UTF_8);
+		int other = table.intern(bytes, 0, bytes.length);
+		assertSame(table.get(other), table.get(other));
+		assertEquals("Saint-\u00c9tienne", table.get(other));
+	}
+
+	@Test
+	public void testInternsFromAnotherTable() {
+		NameTable other = new NameTable();
+		other.intern("Detroit");
+		other.intern("Chicago");
+		table.intern("Chicago");
+
+		assertEquals(1, table.intern(other, 0));
+		assertEquals(0, table.intern(other, 1));
+		assertSame(other.get(0), table.get(1));
+		assertEquals(2, table.size());
+	}
+}
@@ -0,0 +1,121 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Packs a snapshot's arcs into a stream of bytes, for snapshot files that are saved compressed. Each arc is two
+ * unsigned variable-length integers of 7 bits per byte: the difference between its target and the previous target,
+ * zigzag-encoded so small differences in either direction stay small, then its length. A Town's first arc is taken
+ * relative to the Town itself. Roads mostly join nearby Towns, so when nearby Towns are numbered close together,
+ * as VertexOrder.BREADTH_FIRST and HILBERT number them, the differences are small. Most lengths are under 128 miles,
+ * so a typical arc packs into two or three bytes instead of the eight its target and weight take as ints.
+ *
+ * Arcs keep their CSR order, so arc numbers, and everything that refers to them, are unchanged.
+ * Where each Town's arcs start in the stream is kept separately, so a Town's arcs can be read without
+ * reading any other Town's.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+final class PackedArcs {
+
+	/**
+	 * Pack the arcs of a CSR graph
+	 * @param offsets where each Town's arcs begin, followed by the number of arcs
+	 * @param targets the far end of each arc
+	 * @param weights the length of each arc
+	 * @param starts filled with where each Town's arcs begin in the stream, followed by the stream's length.
+	 * Must hold one more entry than there are Towns
+	 * @return the packed arcs, which may be followed by unused bytes
+	 * @throws IOException if the packed arcs would not fit in an array
+	 */
+	static byte[] pack(int[] offsets, int[] targets, int[] weights, int[] starts) throws IOException {
+		int n = offsets.length - 1;
+		byte[] data = new byte[Math.max(16, targets.length * 3)];
+		int position = 0;
+
+		for (int u = 0; u < n; u++) {
+			starts[u] = position;
+			int previous = u;
+			for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+
+				//Each varint takes at most 5 bytes
+				if (data.length - position < 10) {
+					if (data.length == Integer.MAX_VALUE - 8) throw new IOException("Too many arcs to pack");
+					data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, data.length * 2L));
+				}
+
+				int delta = targets[arc] - previous;
+				position = putVarint(data, position, (delta << 1) ^ (delta >> 31));
+				position = putVarint(data, position, weights[arc]);
+				previous = targets[arc];
+			}
+		}
+		starts[n] = position;
+		return data;
+	}
+
+	/**
+	 * Write an unsigned variable-length integer
+	 * @param data the stream
+	 * @param position where to write it
+	 * @param value the value, taken as unsigned
+	 * @return the position just past it
+	 */
+	private static int putVarint(byte[] data, int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			data[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[position++] = (byte) value;
+		return position;
+	}
+
+	/**
+	 * Unpack arcs back into CSR arrays
+	 * @param data the packed arcs
+	 * @param starts where each Town's arcs begin in the stream, followed by the stream's length
+	 * @param offsets where each Town's arcs begin, followed by the number of arcs
+	 * @param targets filled with the far end of each arc
+	 * @param weights filled with the length of each arc
+	 * @throws IOException if the packed arcs do not match the offsets, or a target is not a Town
+	 */
+	static void unpack(byte[] data, int[] starts, int[] offsets, int[] targets, int[] weights) throws IOException {
+		int n = offsets.length - 1;
+		int length = starts[n];
+		if (length > data.length) throw new IOException("Snapshot arcs are inconsistent");
+
+		try {
+			for (int u = 0; u < n; u++) {
+				int position = starts[u];
+				int previous = u;
+				for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+
+					//Target difference, zigzag-encoded
+					int b = data[position++];
+					int value = b & 0x7F;
+					for (int shift = 7; b < 0; shift += 7) {
+						b = data[position++];
+						value |= (b & 0x7F) << shift;
+					}
+					previous += (value >>> 1) ^ -(value & 1);
+					if (previous < 0 || previous >= n) throw new IOException("Snapshot refers to a missing entry");
+					targets[arc] = previous;
+
+					//Length
+					b = data[position++];
+					value = b & 0x7F;
+					for (int shift = 7; b < 0; shift += 7) {
+						b = data[position++];
+						value |= (b & 0x7F) << shift;
+					}
+					weights[arc] = value;
+				}
+				if (position != starts[u + 1]) throw new IOException("Snapshot arcs are inconsistent");
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Snapshot arcs are inconsistent", e);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PackedArcsTest_STUDENT {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(9);
+		int n = 3000;
+		int[] offsets = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			offsets[v + 1] = offsets[v] + random.nextInt(6);
+		}
+
+		//Targets near and far in both directions, and lengths from 0 up to the largest int
+		int arcs = offsets[n];
+		int[] targets = new int[arcs];
+		int[] weights = new int[arcs];
+		for (int v = 0; v < n; v++) {
+			for (int arc = offsets[v]; arc < offsets[v + 1]; arc++) {
+				targets[arc] = random.nextBoolean() ? Math.floorMod(v + random.nextInt(21) - 10, n) : random.nextInt(n);
+				weights[arc] = random.nextInt(4) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(200);
+			}
+		}
+		weights[0] = Integer.MAX_VALUE;
+		weights[1] = 0;
+
+		int[] starts = new int[n + 1];
+		byte[] packed = PackedArcs.pack(offsets, targets, weights, starts);
+		assertTrue(starts[n] < arcs * 8);
+
+		int[] unpackedTargets = new int[arcs];
+		int[] unpackedWeights = new int[arcs];
+		PackedArcs.unpack(packed, starts, offsets, unpackedTargets, unpackedWeights);
+		assertArrayEquals(targets, unpackedTargets);
+		assertArrayEquals(weights, unpackedWeights);
+	}
+
+	@Test
+	public void testNearbyTargetsPackSmall() throws IOException {
+		//A path of short Roads between consecutive Towns takes two bytes per arc
+		int n = 1000;
+		int[] offsets = new int[n + 1];
+		int[] targets = new int[2 * (n - 1)];
+		int[] weights = new int[targets.length];
+		int arc = 0;
+		for (int v = 0; v < n; v++) {
+			if (v > 0) targets[arc++] = v - 1;
+			if (v < n - 1) targets[arc++] = v + 1;
+			offsets[v + 1] = arc;
+		}
+		Arrays.fill(weights, 60);
+
+		int[] starts = new int[n + 1];
+		PackedArcs.pack(offsets, targets, weights, starts);
+		assertEquals(targets.length * 2, starts[n]);
+	}
+
+	@Test
+	public void testRejectsDamagedArcs() throws IOException {
+		int[] offsets = { 0, 1, 2 };
+		int[] targets = { 1, 0 };
+		int[] weights = { 5, 5 };
+		int[] starts = new int[3];
+		byte[] packed = PackedArcs.pack(offsets, targets, weights, starts);
+
+		//A target difference that leads outside the graph
+		packed[0] = 8;
+		try {
+			PackedArcs.unpack(packed, starts, offsets, new int[2], new int[2]);
+			fail("Expected an IOException");
+		}
+		catch (IOException e) {
+			//Expected
+		}
+
+		//Starts that run past the packed bytes
+		starts[2] = packed.length + 1;
+		try {
+			PackedArcs.unpack(packed, starts, offsets, new int[2], new int[2]);
+			fail("Expected an IOException");
+		}
+		catch (IOException e) {
+			//Expected
+		}
+	}
+}
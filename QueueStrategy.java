@@ -0,0 +1,37 @@
+/**
+ * The priority queues TownGraph searches can run on
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public enum QueueStrategy {
+
+	/**
+	 * A binary heap with decrease-key. Each operation costs O(log n) comparisons
+	 */
+	BINARY_HEAP {
+		@Override
+		VertexQueue create(int capacity) {
+			return new IndexedMinHeap(capacity);
+		}
+	},
+
+	/**
+	 * A radix heap, which sorts whole-mile distances by their bits instead of comparing them.
+	 * Vertices move between at most 32 buckets, and pushing and lowering keys take constant time
+	 */
+	RADIX_HEAP {
+		@Override
+		VertexQueue create(int capacity) {
+			return new RadixHeap(capacity);
+		}
+	};
+
+	/**
+	 * Create an empty queue of this kind
+	 * @param capacity the number of vertices the queue must be able to index
+	 * @return the queue
+	 */
+	abstract VertexQueue create(int capacity);
+}
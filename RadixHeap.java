@@ -0,0 +1,217 @@
+import java.util.NoSuchElementException;
+
+/**
+ * A radix heap of vertex indices keyed by non-negative integer distance. A radix heap is a monotone priority queue:
+ * it relies on no key being pushed below the last key removed, which holds for Dijkstra's algorithm and for A*
+ * with a consistent bound. In exchange it needs no comparisons between queued keys.
+ *
+ * Vertices are kept in 32 buckets by the highest bit in which their key differs from the last key removed.
+ * Bucket 0 holds the keys equal to it, and bucket b the keys that first differ from it in bit b - 1.
+ * When bucket 0 runs out, the lowest non-empty bucket is emptied into the buckets below it around its smallest key.
+ * Each vertex can only move down, at most 32 times, so a search costs O(m + n log C) for a largest distance C.
+ *
+ * Each bucket is a doubly linked list threaded through primitive arrays, so keys can be lowered in place
+ * and the heap allocates nothing after it is created.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class RadixHeap implements VertexQueue {
+
+	private static final int BUCKETS = 32;
+
+	//head[b] is the first vertex in bucket b, or -1 if the bucket is empty
+	private final int[] head = new int[BUCKETS];
+
+	//The neighbors of vertex v in its bucket's list, or -1 at either end
+	private int[] next;
+	private int[] prev;
+
+	//bucket[v] is the bucket holding vertex v, or -1 if v is not in the heap
+	private int[] bucket;
+
+	//key[v] is the current priority of vertex v while it is in the heap
+	private int[] key;
+
+	//The last key removed, which every queued key is at least
+	private int last;
+
+	private int size;
+
+	/**
+	 * Create an empty heap able to hold the vertex indices 0 through capacity - 1
+	 * @param capacity the number of vertices the heap must be able to index
+	 */
+	public RadixHeap(int capacity) {
+		next = new int[capacity];
+		prev = new int[capacity];
+		bucket = new int[capacity];
+		key = new int[capacity];
+
+		for (int i = 0; i < capacity; i++) {
+			bucket[i] = -1;
+		}
+		for (int b = 0; b < BUCKETS; b++) {
+			head[b] = -1;
+		}
+	}
+
+	/**
+	 * Insert a vertex with the given key, or lower its key if it is already in the heap.
+	 * A key that is not lower than the vertex's current key is ignored, and a key below the last
+	 * key removed is treated as equal to it.
+	 *
+	 * @param vertex the vertex index
+	 * @param newKey the vertex's priority
+	 */
+	@Override
+	public void push(int vertex, int newKey) {
+		if (newKey < last) newKey = last;
+
+		//Existing vertex: only a lower key may change its bucket
+		if (bucket[vertex] != -1) {
+			if (newKey >= key[vertex]) return;
+			unlink(vertex);
+		}
+		else {
+			size++;
+		}
+
+		key[vertex] = newKey;
+		link(vertex, bucketOf(newKey));
+	}
+
+	/**
+	 * Remove and return the vertex with the lowest key
+	 * @return the vertex with the lowest key
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	@Override
+	public int poll() {
+		if (size == 0) throw new NoSuchElementException();
+
+		refill();
+		int min = head[0];
+		unlink(min);
+		bucket[min] = -1;
+		size--;
+
+		return min;
+	}
+
+	/**
+	 * Get the lowest key in the heap without removing its vertex
+	 * @return the lowest key in the heap
+	 * @throws NoSuchElementException if the heap is empty
+	 */
+	@Override
+	public int peekKey() {
+		if (size == 0) throw new NoSuchElementException();
+
+		refill();
+		return last;
+	}
+
+	/**
+	 * Make sure bucket 0 holds the lowest keys. If it is empty, the lowest non-empty bucket's smallest key becomes
+	 * the new last key, and the bucket's vertices are spread over the buckets below it
+	 */
+	private void refill() {
+		if (head[0] != -1) return;
+
+		int b = 1;
+		while (head[b] == -1) b++;
+
+		int min = Integer.MAX_VALUE;
+		for (int v = head[b]; v != -1; v = next[v]) {
+			if (key[v] < min) min = key[v];
+		}
+		last = min;
+
+		//Detach the whole list, then relink each vertex by its key's relation to the new last key
+		int v = head[b];
+		head[b] = -1;
+		while (v != -1) {
+			int following = next[v];
+			link(v, bucketOf(key[v]));
+			v = following;
+		}
+	}
+
+	/**
+	 * Get the bucket a key belongs in, relative to the last key removed
+	 * @param k a key no lower than the last key removed
+	 * @return the bucket number
+	 */
+	private int bucketOf(int k) {
+		return k == last ? 0 : 32 - Integer.numberOfLeadingZeros(k ^ last);
+	}
+
+	/**
+	 * Add a vertex to the front of a bucket's list
+	 * @param v the vertex
+	 * @param b the bucket
+	 */
+	private void link(int v, int b) {
+		next[v] = head[b];
+		prev[v] = -1;
+		if (head[b] != -1) prev[head[b]] = v;
+		head[b] = v;
+		bucket[v] = b;
+	}
+
+	/**
+	 * Take a vertex out of its bucket's list
+	 * @param v the vertex
+	 */
+	private void unlink(int v) {
+		if (prev[v] != -1) next[prev[v]] = next[v];
+		else head[bucket[v]] = next[v];
+		if (next[v] != -1) prev[next[v]] = prev[v];
+	}
+
+	/**
+	 * Check whether a vertex is currently in the heap
+	 * @param vertex the vertex index
+	 * @return true if the vertex is in the heap, and false otherwise
+	 */
+	@Override
+	public boolean contains(int vertex) {
+		return bucket[vertex] != -1;
+	}
+
+	/**
+	 * Check whether the heap is empty
+	 * @return true if the heap holds no vertices, and false otherwise
+	 */
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get the number of vertices in the heap
+	 * @return the number of vertices in the heap
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove every vertex from the heap, and forget the last key removed so that lower keys may be pushed again.
+	 * Only the vertices still queued are reset, so clearing costs time proportional to the heap's size
+	 */
+	@Override
+	public void clear() {
+		for (int b = 0; b < BUCKETS; b++) {
+			for (int v = head[b]; v != -1; v = next[v]) {
+				bucket[v] = -1;
+			}
+			head[b] = -1;
+		}
+		size = 0;
+		last = 0;
+	}
+}
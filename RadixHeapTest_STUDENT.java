@@ -0,0 +1,111 @@
+import static org.junit.Assert.*;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RadixHeapTest_STUDENT {
+	RadixHeap heap;
+
+	@Before
+	public void setUp() throws Exception {
+		heap = new RadixHeap(6);
+		heap.push(0, 40);
+		heap.push(1, 10);
+		heap.push(2, 30);
+		heap.push(3, 20);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		heap = null;
+	}
+	
+	@Test
+	public void testPollOrder() {
+		assertEquals(1, heap.poll());
+		assertEquals(3, heap.poll());
+		assertEquals(2, heap.poll());
+		assertEquals(0, heap.poll());
+		assertTrue(heap.isEmpty());
+	}
+	
+	@Test
+	public void testDecreaseKey() {
+		heap.push(0, 5);
+		heap.push(2, 35); //Higher key is ignored
+		
+		assertEquals(4, heap.size());
+		assertEquals(5, heap.peekKey());
+		assertEquals(0, heap.poll());
+		assertEquals(1, heap.poll());
+		assertEquals(3, heap.poll());
+		assertEquals(2, heap.poll());
+	}
+	
+	@Test
+	public void testMonotoneInterleaving() {
+		//Pushes between polls, as in Dijkstra's algorithm, each no lower than the last key removed
+		assertEquals(1, heap.poll());
+		heap.push(4, 15);
+		heap.push(5, 10);
+		assertEquals(10, heap.peekKey());
+		assertEquals(5, heap.poll());
+		assertEquals(4, heap.poll());
+		assertEquals(3, heap.poll());
+		
+		//A key below the last one removed is treated as equal to it
+		heap.push(1, 0);
+		assertEquals(20, heap.peekKey());
+		assertEquals(1, heap.poll());
+	}
+	
+	@Test
+	public void testMatchesBinaryHeap() {
+		Random random = new Random(7);
+		RadixHeap radix = new RadixHeap(500);
+		IndexedMinHeap binary = new IndexedMinHeap(500);
+		int last = 0;
+		
+		for (int round = 0; round < 2000; round++) {
+			if (random.nextInt(3) > 0 || binary.isEmpty()) {
+				//Keys end in their vertex's number, so no two vertices tie
+				int vertex = random.nextInt(500);
+				int key = (last / 500 + 1 + random.nextInt(1000)) * 500 + vertex;
+				radix.push(vertex, key);
+				binary.push(vertex, key);
+			}
+			else {
+				last = binary.peekKey();
+				assertEquals(last, radix.peekKey());
+				assertEquals(binary.poll(), radix.poll());
+			}
+			assertEquals(binary.size(), radix.size());
+		}
+	}
+	
+	@Test
+	public void testContainsAndClear() {
+		assertTrue(heap.contains(2));
+		assertFalse(heap.contains(4));
+		
+		heap.poll();
+		heap.clear();
+		assertTrue(heap.isEmpty());
+		assertFalse(heap.contains(2));
+		
+		//Clearing forgets the last key removed
+		heap.push(2, 1);
+		assertEquals(1, heap.peekKey());
+		assertEquals(2, heap.poll());
+	}
+	
+	@Test(expected = NoSuchElementException.class)
+	public void testPollEmpty() {
+		heap.clear();
+		heap.poll();
+	}
+}
@@ -0,0 +1,194 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A lazy Dijkstra search outward from a source, yielding every Town within a radius in order of distance.
+ * Each call to next settles one more Town, so a caller that stops early pays only for the Towns it has seen.
+ * The search never expands past the radius, and keeps its state in an open-addressed table and a heap sized by
+ * the Towns it reaches rather than by the whole graph, so the cost of a search scales with the size of its ball.
+ *
+ * The iterator searches the snapshot it was created with, so later changes to the graph do not affect it.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class RangeIterator implements Iterator<TownDistance> {
+
+	private final CompactGraph graph;
+	private final int radius;
+
+	//Marks a label whose distance is final
+	private static final int SETTLED = Integer.MIN_VALUE;
+
+	//The Towns reached so far, in an open-addressed table kept at most half full. keys holds each Town's number
+	//plus one, with 0 for an empty slot, and labels holds its tentative distance, with SETTLED set once it is final
+	private int[] keys = new int[16];
+	private int[] labels = new int[16];
+	private int count;
+
+	//Queue entries packed as (distance << 32) | Town number, so they order by distance.
+	//A Town may be queued more than once; its out-of-date entries are skipped when they surface
+	private long[] heap = new long[16];
+	private int size;
+
+	//The next Town to return, found ahead of time by hasNext
+	private TownDistance next;
+
+	/**
+	 * Begin a search
+	 * @param graph the snapshot to search
+	 * @param source the number of the source Town
+	 * @param radius the greatest distance to search out to, inclusive
+	 * @throws IllegalArgumentException if the radius is negative
+	 */
+	RangeIterator(CompactGraph graph, int source, int radius) {
+		if (radius < 0) throw new IllegalArgumentException("The radius may not be negative");
+		this.graph = graph;
+		this.radius = radius;
+
+		label(find(source), source, 0);
+		push(0, source);
+	}
+
+	/**
+	 * Check whether another Town lies within the radius
+	 * @return true if there is another Town to return
+	 */
+	@Override
+	public boolean hasNext() {
+		if (next == null) next = advance();
+		return next != null;
+	}
+
+	/**
+	 * Get the next closest Town within the radius
+	 * @return the Town and its distance from the source
+	 * @throws NoSuchElementException if every Town within the radius has been returned
+	 */
+	@Override
+	public TownDistance next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		TownDistance result = next;
+		next = null;
+		return result;
+	}
+
+	/**
+	 * Settle the next Town and relax its Roads
+	 * @return the settled Town and its distance, or null if the search is finished
+	 */
+	private TownDistance advance() {
+		while (size > 0) {
+			long entry = poll();
+			int u = (int) entry;
+			int du = (int) (entry >>> 32);
+
+			//Skip entries for Towns already settled by a shorter route
+			int slot = find(u);
+			if (labels[slot] < 0) continue;
+			labels[slot] |= SETTLED;
+
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+
+				//Towns beyond the radius are never queued. The check is made before adding,
+				//so a radius near Integer.MAX_VALUE cannot overflow the sum
+				int weight = graph.weights[arc];
+				if (weight > radius - du) continue;
+				int newDistance = du + weight;
+
+				//Settled labels are negative, so they are never improved
+				slot = find(v);
+				if (keys[slot] == 0 || newDistance < labels[slot]) {
+					label(slot, v, newDistance);
+					push(newDistance, v);
+				}
+			}
+
+			return new TownDistance(graph.towns[u], du);
+		}
+		return null;
+	}
+
+	/**
+	 * Find a Town's slot in the table
+	 * @param v the Town's number
+	 * @return the slot holding the Town, or the empty slot where it belongs
+	 */
+	private int find(int v) {
+		int mask = keys.length - 1;
+		int h = v * 0x9E3779B9;
+		for (int slot = (h ^ (h >>> 16)) & mask; ; slot = (slot + 1) & mask) {
+			if (keys[slot] == v + 1 || keys[slot] == 0) return slot;
+		}
+	}
+
+	/**
+	 * Record a Town's tentative distance, adding the Town to the table if it is new
+	 * @param slot the Town's slot, as found by find
+	 * @param v the Town's number
+	 * @param distance the Town's distance
+	 */
+	private void label(int slot, int v, int distance) {
+		labels[slot] = distance;
+		if (keys[slot] != 0) return;
+
+		keys[slot] = v + 1;
+		if (++count * 2 <= keys.length) return;
+
+		//Double the table and put every Town back in its new slot
+		int[] oldKeys = keys;
+		int[] oldLabels = labels;
+		keys = new int[oldKeys.length * 2];
+		labels = new int[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == 0) continue;
+			int moved = find(oldKeys[i] - 1);
+			keys[moved] = oldKeys[i];
+			labels[moved] = oldLabels[i];
+		}
+	}
+
+	/**
+	 * Add an entry to the queue
+	 * @param distance the Town's distance
+	 * @param v the Town's number
+	 */
+	private void push(int distance, int v) {
+		if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+
+		long entry = ((long) distance << 32) | v;
+		int pos = size++;
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (heap[parent] <= entry) break;
+			heap[pos] = heap[parent];
+			pos = parent;
+		}
+		heap[pos] = entry;
+	}
+
+	/**
+	 * Remove the entry with the lowest distance from the queue
+	 * @return the removed entry
+	 */
+	private long poll() {
+		long min = heap[0];
+		long entry = heap[--size];
+
+		int pos = 0;
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= size) break;
+			if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+			if (heap[child] >= entry) break;
+			heap[pos] = heap[child];
+			pos = child;
+		}
+		heap[pos] = entry;
+
+		return min;
+	}
+}
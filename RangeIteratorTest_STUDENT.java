@@ -0,0 +1,111 @@
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RangeIteratorTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[40];
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		Random random = new Random(11);
+		
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town " + i);
+			graph.addVertex(towns[i]);
+		}
+		
+		int roads = 0;
+		while (roads < 90) {
+			int a = random.nextInt(towns.length);
+			int b = random.nextInt(towns.length);
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], random.nextInt(40), "Road " + roads++);
+		}
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+	
+	@Test
+	public void testMatchesShortestPathTree() {
+		for (Town source : towns) {
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			
+			for (int radius : new int[] { 0, 25, 60, 1000 }) {
+				HashSet<Town> seen = new HashSet<>();
+				int previous = 0;
+				
+				Iterator<TownDistance> range = graph.townsWithin(source, radius);
+				while (range.hasNext()) {
+					TownDistance found = range.next();
+					
+					//Towns come out nearest first, each once, at their true distance
+					assertTrue(found.getDistance() >= previous);
+					assertTrue(found.getDistance() <= radius);
+					assertEquals(tree.getDistance(found.getTown()), found.getDistance());
+					assertTrue(seen.add(found.getTown()));
+					previous = found.getDistance();
+				}
+				
+				//No Town within the radius was missed
+				for (Town town : towns) {
+					if (tree.getDistance(town) <= radius) assertTrue(seen.contains(town));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testSourceComesFirst() {
+		Iterator<TownDistance> range = graph.townsWithin(towns[0], 0);
+		TownDistance first = range.next();
+		assertEquals(towns[0], first.getTown());
+		assertEquals(0, first.getDistance());
+	}
+	
+	@Test(expected = NoSuchElementException.class)
+	public void testExhausted() {
+		Town lonely = new Town("Lonely");
+		graph.addVertex(lonely);
+		
+		Iterator<TownDistance> range = graph.townsWithin(lonely, 100);
+		assertEquals(lonely, range.next().getTown());
+		assertFalse(range.hasNext());
+		range.next();
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeRadius() {
+		graph.townsWithin(towns[0], -1);
+	}
+	
+	@Test
+	public void testLongRoadsDoNotOverflow() {
+		//Two Roads whose lengths add up past Integer.MAX_VALUE
+		TownGraph far = new TownGraph();
+		Town a = new Town("A");
+		Town b = new Town("B");
+		Town c = new Town("C");
+		far.addVertex(a);
+		far.addVertex(b);
+		far.addVertex(c);
+		far.addEdge(a, b, Integer.MAX_VALUE - 10, "Road 1");
+		far.addEdge(b, c, Integer.MAX_VALUE - 10, "Road 2");
+		
+		Iterator<TownDistance> range = far.townsWithin(a, Integer.MAX_VALUE);
+		assertEquals(a, range.next().getTown());
+		assertEquals(Integer.MAX_VALUE - 10, range.next().getDistance());
+		assertFalse(range.hasNext());
+	}
+}
@@ -0,0 +1,579 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads road files into a TownGraph. Each line of a road file is in the format of
+ * [Road name],[Distance];[Source Town Name];[Destination Town Name]
+ * or, to give each Town's position in degrees,
+ * [Road name],[Distance];[Source Town Name],[Latitude],[Longitude];[Destination Town Name],[Latitude],[Longitude]
+ *
+ * The file is streamed through a byte buffer and each line is split on its separators in place, without
+ * decoding the line or building a String per field. Town and Road names are interned straight from the bytes,
+ * so a name is decoded from UTF-8 once however many lines repeat it, and distances are parsed from the digits.
+ * Everything read is kept in arrays of Town and Road numbers until it is added to a graph in one step.
+ *
+ * Lines end with '\n' or "\r\n". A line that does not hold 4 or 8 fields, or whose numbers cannot be read,
+ * is reported with its line number.
+ *
+ * A large file can also be read in parallel. It is cut into chunks that each end at a newline, every chunk is
+ * parsed and has its names interned by its own reader, and the chunks are then merged in file order. The merged
+ * reader numbers Towns and holds Roads exactly as a single reader would, so the graph built from it is the same.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class RoadFileReader {
+
+	//Size of each read from the file. A longer line grows the buffer
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	//Chunk sizes for parallel reads. Smaller files are not worth splitting, and no chunk may outgrow an array
+	private static final long MIN_CHUNK_SIZE = 1 << 20;
+	private static final long MAX_CHUNK_SIZE = 1 << 28;
+
+	//Chunks per thread, so a thread that finishes early can take another chunk
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	//Powers of ten that a double holds exactly
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	//Town and Road names, numbered in order of first appearance
+	private final NameTable townNames = new NameTable();
+	private final NameTable roadNames = new NameTable();
+
+	//Each Town's position, taken from the first line it appears on. NaN when that line gives none
+	private double[] latitudes = new double[64];
+	private double[] longitudes = new double[64];
+
+	//The Roads read so far, by Town and Road name numbers
+	private int[] sources = new int[64];
+	private int[] destinations = new int[64];
+	private int[] distances = new int[64];
+	private int[] descriptions = new int[64];
+	private int roadCount;
+
+	//The number of the line being read
+	private long lineNumber;
+
+	//Start and end of each field of the current line
+	private final int[] fieldStart = new int[8];
+	private final int[] fieldEnd = new int[8];
+
+	/**
+	 * Read a whole road file
+	 * @param file the file to read
+	 * @return the reader holding the file's Towns and Roads
+	 * @throws FileNotFoundException if the file is not found
+	 * @throws IOException if the file cannot be read or a line is improperly formatted
+	 */
+	public static RoadFileReader read(File file) throws FileNotFoundException, IOException {
+		RoadFileReader reader = new RoadFileReader();
+		try (FileChannel channel = new FileInputStream(file).getChannel()) {
+			reader.read(channel);
+		}
+		return reader;
+	}
+
+	/**
+	 * Read a whole road file in parallel
+	 * @param file the file to read
+	 * @param pool the pool that parses the file's chunks
+	 * @return the reader holding the file's Towns and Roads, numbered as a single reader would number them
+	 * @throws FileNotFoundException if the file is not found
+	 * @throws IOException if the file cannot be read or a line is improperly formatted. When several lines are
+	 * improperly formatted, the first is reported
+	 */
+	public static RoadFileReader read(File file, ForkJoinPool pool) throws FileNotFoundException, IOException {
+		return read(file, pool, MIN_CHUNK_SIZE);
+	}
+
+	/**
+	 * Read a whole road file in parallel
+	 * @param file the file to read
+	 * @param pool the pool that parses the file's chunks
+	 * @param minChunkSize the fewest bytes worth giving a chunk of their own
+	 * @return the reader holding the file's Towns and Roads
+	 * @throws FileNotFoundException if the file is not found
+	 * @throws IOException if the file cannot be read or a line is improperly formatted
+	 */
+	static RoadFileReader read(File file, ForkJoinPool pool, long minChunkSize) throws FileNotFoundException, IOException {
+		try (FileChannel channel = new FileInputStream(file).getChannel()) {
+			//A single thread gains nothing from splitting the file, and would only pay for the merge
+			int threads = pool.getParallelism();
+			long[] bounds = chunkBounds(channel, threads == 1 ? 1 : threads * CHUNKS_PER_THREAD, minChunkSize);
+			int chunks = bounds.length - 1;
+
+			//Chunks that have not started by the time the read is abandoned are skipped
+			AtomicBoolean abandoned = new AtomicBoolean();
+			ArrayList<ForkJoinTask<RoadFileReader>> tasks = new ArrayList<>(chunks);
+			for (int i = 0; i < chunks; i++) {
+				long from = bounds[i];
+				long to = bounds[i + 1];
+				tasks.add(pool.submit(() -> abandoned.get() ? null : readChunk(channel, from, to, 0)));
+			}
+
+			//Wait for every chunk, so none is still reading once the channel is closed
+			RoadFileReader[] parts = new RoadFileReader[chunks];
+			int failed = -1;
+			Throwable failure = null;
+			for (int i = 0; i < chunks; i++) {
+				try {
+					parts[i] = tasks.get(i).get();
+				}
+				catch (ExecutionException e) {
+					if (failed < 0) {
+						failed = i;
+						failure = e.getCause();
+					}
+				}
+				catch (InterruptedException e) {
+					//Cancelling a task does not stop one that is already reading, so skip the chunks not yet
+					//started and wait out the rest without being interrupted again
+					abandoned.set(true);
+					for (ForkJoinTask<RoadFileReader> task : tasks) {
+						task.quietlyJoin();
+					}
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while reading " + file, e);
+				}
+			}
+
+			//Read the first failed chunk again, counting from the lines before it, to report its error.
+			//If it reads cleanly the second time, the first failure was passing, and is reported as it was
+			if (failed >= 0) {
+				long linesBefore = 0;
+				for (int i = 0; i < failed; i++) {
+					linesBefore += parts[i].lineNumber;
+				}
+				readChunk(channel, bounds[failed], bounds[failed + 1], linesBefore);
+				throw new IOException("Could not read " + file, failure);
+			}
+
+			return merge(parts);
+		}
+	}
+
+	/**
+	 * Cut a file into chunks that each end at a newline
+	 * @param channel the file
+	 * @param wanted the number of chunks to aim for
+	 * @param minChunkSize the fewest bytes worth giving a chunk of their own
+	 * @return the offsets of the chunks' first bytes, followed by the file's size
+	 * @throws IOException if the file cannot be read
+	 */
+	private static long[] chunkBounds(FileChannel channel, int wanted, long minChunkSize) throws IOException {
+		long size = channel.size();
+		long chunks = Math.max(wanted, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+		chunks = Math.max(1, Math.min(chunks, size / minChunkSize));
+
+		long[] bounds = new long[(int) chunks + 1];
+		int count = 1;
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+		for (int i = 1; i < chunks; i++) {
+			//Start each chunk just after the first newline at or past its even share of the file
+			long position = Math.max(size * i / chunks - 1, bounds[count - 1]);
+			long bound = size;
+			search:
+			while (position < size) {
+				buffer.clear();
+				int read = channel.read(buffer, position);
+				if (read <= 0) break;
+				for (int j = 0; j < read; j++) {
+					if (buffer.get(j) == '\n') {
+						bound = position + j + 1;
+						break search;
+					}
+				}
+				position += read;
+			}
+
+			//A line longer than a chunk can swallow the next chunk's start
+			if (bound > bounds[count - 1] && bound < size) bounds[count++] = bound;
+		}
+
+		bounds[count++] = size;
+		return Arrays.copyOf(bounds, count);
+	}
+
+	/**
+	 * Read one chunk of a file with a reader of its own
+	 * @param channel the file
+	 * @param from the offset of the chunk's first byte
+	 * @param to the offset just past the chunk's last byte
+	 * @param linesBefore the number of lines before the chunk, which error messages count from
+	 * @return the reader holding the chunk's Towns and Roads
+	 * @throws IOException if the chunk cannot be read or a line is improperly formatted
+	 */
+	private static RoadFileReader readChunk(FileChannel channel, long from, long to, long linesBefore) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) (to - from));
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, from + buffer.position()) < 0) throw new IOException("File ended early");
+		}
+
+		RoadFileReader reader = new RoadFileReader();
+		reader.lineNumber = linesBefore;
+		reader.parseLines(buffer.array(), 0, buffer.capacity());
+		return reader;
+	}
+
+	/**
+	 * Join the readers of consecutive chunks into one reader. Names are interned again in chunk order,
+	 * so Towns and Road names are numbered by their first appearance in the whole file
+	 *
+	 * @param parts the chunks' readers, in file order
+	 * @return the merged reader
+	 */
+	static RoadFileReader merge(RoadFileReader[] parts) {
+		RoadFileReader merged = new RoadFileReader();
+		for (RoadFileReader part : parts) {
+			int[] towns = new int[part.townNames.size()];
+			for (int id = 0; id < towns.length; id++) {
+				byte[] name = part.townNames.getBytes(id);
+				towns[id] = merged.internTown(name, 0, name.length, part.latitudes[id], part.longitudes[id]);
+			}
+
+			int[] names = new int[part.roadNames.size()];
+			for (int id = 0; id < names.length; id++) {
+				names[id] = merged.roadNames.intern(part.roadNames, id);
+			}
+
+			for (int i = 0; i < part.roadCount; i++) {
+				merged.addRoad(towns[part.sources[i]], towns[part.destinations[i]], part.distances[i],
+						names[part.descriptions[i]]);
+			}
+			merged.lineNumber += part.lineNumber;
+		}
+		return merged;
+	}
+
+	/**
+	 * Read every line from a channel
+	 * @param channel the channel to read
+	 * @throws IOException if the channel cannot be read or a line is improperly formatted
+	 */
+	void read(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		//Bytes before this index belong to lines already read
+		int lineStart = 0;
+
+		while (true) {
+			int read = channel.read(buffer);
+			byte[] bytes = buffer.array();
+			int end = buffer.position();
+			if (read < 0) break;
+
+			//Read every complete line in the buffer
+			int scanned = end - Math.max(read, 0);
+			for (int i = scanned; i < end; i++) {
+				if (bytes[i] == '\n') {
+					parseLine(bytes, lineStart, i);
+					lineStart = i + 1;
+				}
+			}
+
+			//Move the unfinished line to the front, growing the buffer if it fills the whole buffer
+			int remaining = end - lineStart;
+			if (remaining == bytes.length) {
+				ByteBuffer larger = ByteBuffer.allocate(bytes.length * 2);
+				larger.put(bytes, 0, remaining);
+				buffer = larger;
+			}
+			else {
+				System.arraycopy(bytes, lineStart, bytes, 0, remaining);
+				buffer.position(remaining);
+			}
+			lineStart = 0;
+		}
+
+		//The last line need not end with a newline
+		if (buffer.position() > 0) parseLine(buffer.array(), 0, buffer.position());
+	}
+
+	/**
+	 * Read every line held in an array
+	 * @param bytes the bytes holding the lines
+	 * @param from the index of the first line's first byte
+	 * @param to the index just past the last line
+	 * @throws IOException if a line is improperly formatted
+	 */
+	void parseLines(byte[] bytes, int from, int to) throws IOException {
+		int lineStart = from;
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == '\n') {
+				parseLine(bytes, lineStart, i);
+				lineStart = i + 1;
+			}
+		}
+
+		//The last line need not end with a newline
+		if (lineStart < to) parseLine(bytes, lineStart, to);
+	}
+
+	/**
+	 * Read one line of a road file
+	 * @param bytes the bytes holding the line
+	 * @param from the index of the line's first byte
+	 * @param to the index of the newline ending the line, or just past its last byte
+	 * @throws IOException if the line is improperly formatted
+	 */
+	void parseLine(byte[] bytes, int from, int to) throws IOException {
+		lineNumber++;
+		if (to > from && bytes[to - 1] == '\r') to--;
+
+		//Trailing separators are ignored, as String.split drops trailing empty fields
+		while (to > from && (bytes[to - 1] == ',' || bytes[to - 1] == ';')) to--;
+
+		//Split the line on both separators, as Road and Town fields may be divided by either
+		int fields = 0;
+		int start = from;
+		for (int i = from; i <= to; i++) {
+			if (i == to || bytes[i] == ',' || bytes[i] == ';') {
+				if (fields == fieldStart.length) throw error("expected 4 or 8 fields but found more");
+				fieldStart[fields] = start;
+				fieldEnd[fields] = i;
+				fields++;
+				start = i + 1;
+			}
+		}
+		if (fields != 4 && fields != 8) throw error("expected 4 or 8 fields but found " + fields);
+
+		int distance = parseInt(bytes, fieldStart[1], fieldEnd[1]);
+		int description = roadNames.intern(bytes, fieldStart[0], fieldEnd[0]);
+
+		int source;
+		int destination;
+		if (fields == 4) {
+			source = town(bytes, 2, Double.NaN, Double.NaN);
+			destination = town(bytes, 3, Double.NaN, Double.NaN);
+		}
+		else {
+			source = town(bytes, 2, parseDouble(bytes, fieldStart[3], fieldEnd[3]),
+					parseDouble(bytes, fieldStart[4], fieldEnd[4]));
+			destination = town(bytes, 5, parseDouble(bytes, fieldStart[6], fieldEnd[6]),
+					parseDouble(bytes, fieldStart[7], fieldEnd[7]));
+		}
+
+		addRoad(source, destination, distance, description);
+	}
+
+	/**
+	 * Intern the Town named by a field, recording its position if this is its first appearance
+	 * @param bytes the bytes holding the line
+	 * @param field the number of the field holding the Town's name
+	 * @param latitude the Town's latitude, or NaN if the line gives none
+	 * @param longitude the Town's longitude, or NaN if the line gives none
+	 * @return the Town's number
+	 * @throws IOException if the name is empty or the position is out of range
+	 */
+	private int town(byte[] bytes, int field, double latitude, double longitude) throws IOException {
+		if (fieldStart[field] == fieldEnd[field]) throw error("missing town name");
+		if (!Double.isNaN(latitude) && (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180))) {
+			throw error("coordinates out of range: " + latitude + ", " + longitude);
+		}
+
+		return internTown(bytes, fieldStart[field], fieldEnd[field], latitude, longitude);
+	}
+
+	/**
+	 * Intern a Town's name, recording its position if this is its first appearance
+	 * @param bytes the bytes holding the name
+	 * @param from the index of the name's first byte
+	 * @param to the index just past the name's last byte
+	 * @param latitude the Town's latitude, or NaN if unknown
+	 * @param longitude the Town's longitude, or NaN if unknown
+	 * @return the Town's number
+	 */
+	private int internTown(byte[] bytes, int from, int to, double latitude, double longitude) {
+		int known = townNames.size();
+		int id = townNames.intern(bytes, from, to);
+		if (id == known) {
+			if (id == latitudes.length) {
+				latitudes = Arrays.copyOf(latitudes, id * 2);
+				longitudes = Arrays.copyOf(longitudes, id * 2);
+			}
+			latitudes[id] = latitude;
+			longitudes[id] = longitude;
+		}
+		return id;
+	}
+
+	/**
+	 * Record a Road
+	 * @param source the number of the Road's source Town
+	 * @param destination the number of the Road's destination Town
+	 * @param distance the Road's length
+	 * @param description the number of the Road's name
+	 */
+	private void addRoad(int source, int destination, int distance, int description) {
+		if (roadCount == sources.length) {
+			sources = Arrays.copyOf(sources, roadCount * 2);
+			destinations = Arrays.copyOf(destinations, roadCount * 2);
+			distances = Arrays.copyOf(distances, roadCount * 2);
+			descriptions = Arrays.copyOf(descriptions, roadCount * 2);
+		}
+		sources[roadCount] = source;
+		destinations[roadCount] = destination;
+		distances[roadCount] = distance;
+		descriptions[roadCount] = description;
+		roadCount++;
+	}
+
+	/**
+	 * Parse a decimal integer, accepting what Integer.parseInt accepts
+	 * @param bytes the bytes holding the number
+	 * @param from the index of the number's first byte
+	 * @param to the index just past the number's last byte
+	 * @return the number
+	 * @throws IOException if the bytes are not a number in the range of an int
+	 */
+	private int parseInt(byte[] bytes, int from, int to) throws IOException {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+			negative = bytes[i] == '-';
+			i++;
+		}
+		if (i == to) throw error("bad distance \"" + text(bytes, from, to) + "\"");
+
+		//Accumulate negatively, since the negative range is the larger one
+		long value = 0;
+		for (; i < to; i++) {
+			int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9) throw error("bad distance \"" + text(bytes, from, to) + "\"");
+			value = value * 10 - digit;
+			if (value < Integer.MIN_VALUE) throw error("distance out of range \"" + text(bytes, from, to) + "\"");
+		}
+		if (!negative && value == Integer.MIN_VALUE) throw error("distance out of range \"" + text(bytes, from, to) + "\"");
+
+		return (int) (negative ? value : -value);
+	}
+
+	/**
+	 * Parse a decimal number, accepting what Double.parseDouble accepts. Plain decimals of up to 15 digits,
+	 * which covers coordinates, are read directly. Their digits and power of ten are both exact in a double,
+	 * so a single division gives the correctly rounded value. Anything else is left to Double.parseDouble
+	 *
+	 * @param bytes the bytes holding the number
+	 * @param from the index of the number's first byte
+	 * @param to the index just past the number's last byte
+	 * @return the number
+	 * @throws IOException if the bytes are not a number
+	 */
+	private double parseDouble(byte[] bytes, int from, int to) throws IOException {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+			negative = bytes[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean point = false;
+		for (; i < to; i++) {
+			byte b = bytes[i];
+			if (b == '.' && !point) {
+				point = true;
+			}
+			else if (b >= '0' && b <= '9' && digits < 15) {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (point) fractionDigits++;
+			}
+			else break;
+		}
+
+		if (i == to && digits > 0) {
+			double value = mantissa / POWERS_OF_TEN[fractionDigits];
+			return negative ? -value : value;
+		}
+
+		try {
+			return Double.parseDouble(text(bytes, from, to));
+		}
+		catch (NumberFormatException e) {
+			throw error("bad coordinate \"" + text(bytes, from, to) + "\"");
+		}
+	}
+
+	/**
+	 * Decode a field for an error message or a number the fast paths do not handle
+	 * @param bytes the bytes holding the field
+	 * @param from the index of the field's first byte
+	 * @param to the index just past the field's last byte
+	 * @return the field as a String
+	 */
+	private static String text(byte[] bytes, int from, int to) {
+		return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Create the exception reporting a problem with the current line
+	 * @param problem what is wrong with the line
+	 * @return the exception
+	 */
+	private IOException error(String problem) {
+		return new IOException("Input file is improperly formatted at line " + lineNumber + ": " + problem);
+	}
+
+	/**
+	 * Add every Town and Road read to a graph. Towns already in the graph keep their positions,
+	 * and Roads between Towns that are already joined, or from a Town to itself, are skipped
+	 *
+	 * @param graph the graph to add to
+	 * @return the number of Roads added
+	 */
+	public int addTo(TownGraph graph) {
+		Town[] towns = new Town[townNames.size()];
+		for (int id = 0; id < towns.length; id++) {
+			String name = townNames.get(id);
+			towns[id] = Double.isNaN(latitudes[id]) ? new Town(name) : new Town(name, latitudes[id], longitudes[id]);
+		}
+
+		//The graph swaps in the String it already shares for any name it holds
+		String[] names = new String[roadNames.size()];
+		for (int id = 0; id < names.length; id++) {
+			names[id] = roadNames.get(id);
+		}
+
+		return graph.addAll(towns, sources, destinations, distances, descriptions, names, roadCount);
+	}
+
+	/**
+	 * Get the number of distinct Towns read
+	 * @return the number of Towns
+	 */
+	public int getTownCount() {
+		return townNames.size();
+	}
+
+	/**
+	 * Get the number of lines read, each of which holds one Road
+	 * @return the number of Roads read
+	 */
+	public int getRoadCount() {
+		return roadCount;
+	}
+}
@@ -0,0 +1,333 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RoadFileReaderTest_STUDENT {
+	File file;
+	TownGraph graph;
+	ForkJoinPool pool = new ForkJoinPool(4);
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("roads", ".txt");
+		file.deleteOnExit();
+		graph = new TownGraph();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+		graph = null;
+		pool.shutdown();
+	}
+
+	/**
+	 * Replace the test file's contents
+	 * @param text the new contents
+	 */
+	private void write(String text) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(text.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testReadsBothFormats() throws IOException {
+		write("I-94,283;Detroit,42.3314,-83.0458;Chicago,41.8781,-87.6298\n"
+				+ "I-65,183;Chicago;Indianapolis\n"
+				+ "Back Road,500;Detroit,0,0;Indianapolis,39.7684,-86.1581\n");
+
+		RoadFileReader reader = RoadFileReader.read(file);
+		assertEquals(3, reader.getTownCount());
+		assertEquals(3, reader.getRoadCount());
+		assertEquals(3, reader.addTo(graph));
+
+		Town chicago = graph.getVertex(new Town("Chicago"));
+		assertEquals(41.8781, chicago.getLatitude(), 0);
+		assertEquals(-87.6298, chicago.getLongitude(), 0);
+		assertFalse(graph.getVertex(new Town("Indianapolis")).hasCoordinates());
+		assertEquals(183, graph.getEdge(chicago, new Town("Indianapolis")).getWeight());
+		assertEquals("Back Road", graph.getEdge(new Town("Detroit"), new Town("Indianapolis")).getName());
+	}
+
+	@Test
+	public void testFirstPositionWins() throws IOException {
+		write("A,1;Detroit;Chicago\n"
+				+ "B,2;Chicago,41.8781,-87.6298;Detroit,42.3314,-83.0458\n"
+				+ "C,3;Chicago,1,1;Toledo,41.6528,-83.5379\n");
+		RoadFileReader.read(file).addTo(graph);
+
+		assertFalse(graph.getVertex(new Town("Detroit")).hasCoordinates());
+		assertFalse(graph.getVertex(new Town("Chicago")).hasCoordinates());
+		assertEquals(41.6528, graph.getVertex(new Town("Toledo")).getLatitude(), 0);
+	}
+
+	@Test
+	public void testSkipsRoadsAddEdgeWouldReject() throws IOException {
+		write("I-94,283;Detroit;Chicago\n"
+				+ "Old Road,300;Chicago;Detroit\n"
+				+ "Loop,5;Detroit;Detroit\n"
+				+ "I-65,-183;Chicago;Indianapolis\n");
+
+		assertEquals(2, RoadFileReader.read(file).addTo(graph));
+		assertEquals("I-94", graph.getEdge(new Town("Chicago"), new Town("Detroit")).getName());
+		assertEquals(183, graph.getEdge(new Town("Chicago"), new Town("Indianapolis")).getWeight());
+		assertEquals(2, graph.edgeSet().size());
+	}
+
+	@Test
+	public void testKeepsTownsAlreadyInGraph() throws IOException {
+		Town detroit = new Town("Detroit", 42.3314, -83.0458);
+		graph.addVertex(detroit);
+		long version = graph.getVersion();
+
+		write("I-94,283;Detroit,0,0;Chicago,41.8781,-87.6298\n");
+		RoadFileReader.read(file).addTo(graph);
+
+		assertSame(detroit, graph.getVertex(new Town("Detroit")));
+		assertEquals(42.3314, detroit.getLatitude(), 0);
+		assertEquals(version + 1, graph.getVersion());
+	}
+
+	@Test
+	public void testLineEndings() throws IOException {
+		write("A,1;Detroit;Chicago\r\nB,2;Chicago;Toledo;\r\nC,3;Toledo;Erie");
+
+		RoadFileReader reader = RoadFileReader.read(file);
+		assertEquals(3, reader.getRoadCount());
+		reader.addTo(graph);
+		assertTrue(graph.containsEdge(new Town("Toledo"), new Town("Erie")));
+		assertTrue(graph.containsEdge(new Town("Chicago"), new Town("Toledo")));
+	}
+
+	@Test
+	public void testUtf8Names() throws IOException {
+		write("Autoroute du Nord,225;Paris;Lille\nA1,100;Saint-\u00c9tienne;Montr\u00e9al\nA2,10;Montr\u00e9al;Paris\n");
+
+		RoadFileReader reader = RoadFileReader.read(file);
+		assertEquals(4, reader.getTownCount());
+		reader.addTo(graph);
+		assertTrue(graph.containsEdge(new Town("Saint-\u00c9tienne"), new Town("Montr\u00e9al")));
+		assertTrue(graph.containsEdge(new Town("Montr\u00e9al"), new Town("Paris")));
+	}
+
+	@Test
+	public void testLinesAcrossBufferBoundaries() throws IOException {
+		StringBuilder text = new StringBuilder();
+		int lines = 20000;
+		for (int i = 1; i < lines; i++) {
+			text.append("Road ").append(i).append(',').append(i % 97).append(";Town ").append(i - 1)
+					.append(";Town ").append(i).append('\n');
+		}
+
+		//One line longer than the read buffer
+		StringBuilder longName = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			longName.append((char) ('a' + i % 26));
+		}
+		text.append("Long,7;Town 0;").append(longName).append('\n');
+		write(text.toString());
+
+		RoadFileReader reader = RoadFileReader.read(file);
+		assertEquals(lines, reader.getRoadCount());
+		assertEquals(lines + 1, reader.getTownCount());
+
+		reader.addTo(graph);
+		assertEquals(12345 % 97, graph.getEdge(new Town("Town 12344"), new Town("Town 12345")).getWeight());
+		assertTrue(graph.containsEdge(new Town("Town 0"), new Town(longName.toString())));
+	}
+
+	@Test
+	public void testCoordinatesMatchParseDouble() throws IOException {
+		Random random = new Random(5);
+		String[] values = new String[400];
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < values.length; i += 2) {
+			values[i] = String.format("%.6f", random.nextDouble() * 180 - 90);
+			values[i + 1] = random.nextBoolean() ? String.valueOf(random.nextDouble() * 360 - 180)
+					: String.format("%.4f", random.nextDouble() * 360 - 180);
+			text.append("R,1;T").append(i).append(',').append(values[i]).append(',').append(values[i + 1])
+					.append(";Hub,0,0\n");
+		}
+		write(text.toString());
+		RoadFileReader.read(file).addTo(graph);
+
+		for (int i = 0; i < values.length; i += 2) {
+			Town town = graph.getVertex(new Town("T" + i));
+			assertEquals(Double.parseDouble(values[i]), town.getLatitude(), 0);
+			assertEquals(Double.parseDouble(values[i + 1]), town.getLongitude(), 0);
+		}
+	}
+
+	@Test
+	public void testReportsBadLines() throws IOException {
+		String[] bad = { "I-94,far;Detroit;Chicago", "I-94,283;Detroit", "", "I-94,99999999999;Detroit;Chicago",
+				"I-94,283;Detroit,north,-83;Chicago,41,-87", "I-94,283;Detroit,95,-83;Chicago,41,-87",
+				"I-94,283;;Chicago" };
+
+		for (String line : bad) {
+			write("A,1;Erie;Toledo\n" + line + "\nB,2;Toledo;Erie\n");
+			try {
+				RoadFileReader.read(file);
+				fail("Expected an IOException for \"" + line + "\"");
+			}
+			catch (IOException e) {
+				assertTrue(e.getMessage().contains("line 2"));
+			}
+		}
+	}
+
+	/**
+	 * Write a file of random Roads, with repeated and reversed Roads and Towns that gain positions later
+	 * @param lines the number of lines
+	 * @param random the source of the Roads
+	 */
+	private void writeRandomRoads(int lines, Random random) throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			int a = random.nextInt(300);
+			int b = random.nextInt(300);
+			text.append("Road ").append(random.nextInt(50)).append(',').append(random.nextInt(200) - 20);
+			if (random.nextBoolean()) {
+				text.append(";Town ").append(a).append(';').append("Town ").append(b);
+			}
+			else {
+				text.append(";Town ").append(a).append(',').append(a % 90).append(".25,").append(-b % 180)
+						.append(";Town ").append(b).append(',').append(i % 90).append(",1.5");
+			}
+			text.append(random.nextInt(4) == 0 ? "\r\n" : "\n");
+		}
+		write(text.toString());
+	}
+
+	@Test
+	public void testParallelBuildsSameGraph() throws IOException {
+		writeRandomRoads(5000, new Random(3));
+
+		TownGraph sequential = new TownGraph();
+		RoadFileReader.read(file).addTo(sequential);
+		RoadFileReader parallel = RoadFileReader.read(file, pool, 1000);
+		parallel.addTo(graph);
+
+		//Towns come out in the same order with the same positions
+		ArrayList<Town> expected = new ArrayList<>(sequential.vertexSet());
+		ArrayList<Town> actual = new ArrayList<>(graph.vertexSet());
+		assertEquals(expected, actual);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getLatitude(), actual.get(i).getLatitude(), 0);
+			assertEquals(expected.get(i).getLongitude(), actual.get(i).getLongitude(), 0);
+		}
+
+		//The first Road between each pair of Towns wins either way
+		assertEquals(sequential.edgeSet().size(), graph.edgeSet().size());
+		for (Road road : sequential.edgeSet()) {
+			Road other = graph.getEdge(road.getSource(), road.getDestination());
+			assertEquals(road.getName(), other.getName());
+			assertEquals(road.getWeight(), other.getWeight());
+		}
+	}
+
+	@Test
+	public void testParallelReportsFirstBadLine() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 1; i <= 4000; i++) {
+			if (i == 2718 || i == 3500) text.append("Broken line\n");
+			else text.append("R,").append(i).append(";T").append(i).append(";T").append(i + 1).append('\n');
+		}
+		write(text.toString());
+
+		try {
+			RoadFileReader.read(file, pool, 500);
+			fail("Expected an IOException");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("line 2718:"));
+		}
+	}
+
+	@Test
+	public void testParallelInterrupted() throws Exception {
+		writeRandomRoads(5000, new Random(5));
+
+		//Keep every worker busy so the chunks are still queued when the reading thread is interrupted
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < pool.getParallelism(); i++) {
+			pool.execute(() -> {
+				try {
+					release.await();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+
+		Thread reading = Thread.currentThread();
+		Thread interrupter = new Thread(() -> {
+			try {
+				while (reading.getState() != Thread.State.WAITING) Thread.sleep(1);
+				reading.interrupt();
+				Thread.sleep(50);
+			}
+			catch (InterruptedException e) {
+				//Release the workers regardless
+			}
+			release.countDown();
+		});
+		interrupter.start();
+
+		try {
+			RoadFileReader.read(file, pool, 500);
+			fail("Expected an IOException");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("Interrupted"));
+		}
+		finally {
+			assertTrue(Thread.interrupted());
+			interrupter.join();
+		}
+
+		//The queued chunks were skipped, and the pool reads the file normally afterward
+		assertEquals(5000, RoadFileReader.read(file, pool, 500).getRoadCount());
+	}
+
+	@Test
+	public void testParallelSmallFiles() throws IOException {
+		write("");
+		assertEquals(0, RoadFileReader.read(file, pool, 1).getRoadCount());
+
+		write("A,1;Detroit;Chicago\nB,2;Chicago;Toledo");
+		RoadFileReader reader = RoadFileReader.read(file, pool, 1);
+		assertEquals(2, reader.getRoadCount());
+		assertEquals(3, reader.getTownCount());
+
+		Iterator<Town> towns = new ArrayList<>(readSequential().vertexSet()).iterator();
+		reader.addTo(graph);
+		for (Town town : graph.vertexSet()) {
+			assertEquals(towns.next(), town);
+		}
+	}
+
+	/**
+	 * Build a graph from the test file with a single reader
+	 * @return the graph
+	 */
+	private TownGraph readSequential() throws IOException {
+		TownGraph sequential = new TownGraph();
+		RoadFileReader.read(file).addTo(sequential);
+		return sequential;
+	}
+}
@@ -0,0 +1,60 @@
+import java.util.HashMap;
+
+/**
+ * A graph's shared Road names. Every Road with a given name holds the same String, however the name arrived,
+ * and a name is forgotten once the last Road using it is removed, so the table never holds more than one
+ * String per name in use. Names are kept as the Strings the Roads already hold, with no second copy.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+final class RoadNames {
+
+	/**
+	 * A name in use, and the number of Roads using it
+	 */
+	private static final class Use {
+		final String name;
+		int roads;
+
+		Use(String name) {
+			this.name = name;
+		}
+	}
+
+	//Each name in use, keyed by itself
+	private final HashMap<String, Use> uses = new HashMap<>();
+
+	/**
+	 * Record a new Road's name
+	 * @param name the name, which may be null
+	 * @return the String every Road with this name shares, or null if the name is null
+	 */
+	String acquire(String name) {
+		if (name == null) return null;
+		Use use = uses.computeIfAbsent(name, Use::new);
+		use.roads++;
+		return use.name;
+	}
+
+	/**
+	 * Record that a Road has been removed, forgetting its name if no other Road uses it.
+	 * A name that is not the shared String, such as one a Road was renamed to, is ignored
+	 * @param name the Road's name
+	 */
+	void release(String name) {
+		if (name == null) return;
+		Use use = uses.get(name);
+		if (use == null || use.name != name) return;
+		if (--use.roads == 0) uses.remove(name);
+	}
+
+	/**
+	 * Get the number of distinct names in use
+	 * @return the number of names
+	 */
+	int size() {
+		return uses.size();
+	}
+}
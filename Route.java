@@ -0,0 +1,119 @@
+import java.util.ArrayList;
+
+/**
+ * A route between two Towns found by a shortest path search. The route is held as the sequence of
+ * Town numbers it passes through and the arcs joining them, both relative to the CompactGraph it was found in.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class Route {
+
+	private final CompactGraph graph;
+
+	//vertices[i] and vertices[i + 1] are joined by arcs[i]
+	private final int[] vertices;
+	private final int[] arcs;
+
+	private final int distance;
+
+	/**
+	 * Create a route from its Towns and arcs
+	 * @param graph the snapshot the route was found in
+	 * @param vertices the Town numbers along the route, from source to destination
+	 * @param arcs the arcs joining consecutive Towns, one fewer than the Towns
+	 * @param distance the total length of the route
+	 */
+	Route(CompactGraph graph, int[] vertices, int[] arcs, int distance) {
+		this.graph = graph;
+		this.vertices = vertices;
+		this.arcs = arcs;
+		this.distance = distance;
+	}
+
+	/**
+	 * Get the total length of the route
+	 * @return the sum of the route's Road weights
+	 */
+	public int getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Get the number of Roads along the route
+	 * @return the number of Roads along the route
+	 */
+	public int size() {
+		return arcs.length;
+	}
+
+	/**
+	 * Get the starting Town of the route
+	 * @return the starting Town
+	 */
+	public Town getSource() {
+		return graph.towns[vertices[0]];
+	}
+
+	/**
+	 * Get the final Town of the route
+	 * @return the final Town
+	 */
+	public Town getDestination() {
+		return graph.towns[vertices[vertices.length - 1]];
+	}
+
+	/**
+	 * Get the Roads along the route, in order from the source
+	 * @return a list of the route's Roads
+	 */
+	public ArrayList<Road> getRoads() {
+		ArrayList<Road> list = new ArrayList<>(arcs.length);
+		for (int arc : arcs) {
+			list.add(graph.roads[arc]);
+		}
+		return list;
+	}
+
+	/**
+	 * Get the Towns along the route, in order from the source
+	 * @return a list of the route's Towns
+	 */
+	public ArrayList<Town> getTowns() {
+		ArrayList<Town> list = new ArrayList<>(vertices.length);
+		for (int v : vertices) {
+			list.add(graph.towns[v]);
+		}
+		return list;
+	}
+
+	/**
+	 * Describe each leg of the route in the format
+	 * "[Source Town name] via [Road name] to [Destination Town name] [weight]"
+	 * @return an ArrayList with one String per Road, in order from the source
+	 */
+	public ArrayList<String> toStrings() {
+		return toStrings("");
+	}
+
+	/**
+	 * Describe each leg of the route as in toStrings(), appending a suffix such as a unit of measure to each line
+	 * @param suffix the text to append to each line
+	 * @return an ArrayList with one String per Road, in order from the source
+	 */
+	public ArrayList<String> toStrings(String suffix) {
+		ArrayList<String> path = new ArrayList<>(arcs.length + 1);
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < arcs.length; i++) {
+			builder.setLength(0);
+			builder.append(graph.towns[vertices[i]]).append(" via ").append(graph.roads[arcs[i]])
+					.append(" to ").append(graph.towns[vertices[i + 1]]).append(' ')
+					.append(graph.weights[arcs[i]]).append(suffix);
+			path.add(builder.toString());
+		}
+
+		return path;
+	}
+}
@@ -0,0 +1,371 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * A size-bounded cache of the paths returned by TownGraphManager.getPath, keyed by the names of the two Towns.
+ * Eviction is W-TinyLFU (see TinyLfuCache), so popular pairs stay cached through bursts of one-off queries.
+ *
+ * The cache is tied to a graph version. When the graph changes through the manager, only the entries whose
+ * paths could change are invalidated: removing a Road drops the paths that use it, removing a Town drops the
+ * paths through it, and adding a Road drops the paths it could make shorter. Any other change to the graph
+ * is noticed from its version, and empties the cache.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class RouteCache {
+
+	/**
+	 * The names of a path's two end Towns
+	 */
+	private static final class Key {
+		final String source;
+		final String destination;
+
+		Key(String source, String destination) {
+			this.source = source;
+			this.destination = destination;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return source.equals(other.source) && destination.equals(other.destination);
+		}
+
+		@Override
+		public int hashCode() {
+			return source.hashCode() * 31 + destination.hashCode();
+		}
+	}
+
+	/**
+	 * A cached answer to a path query
+	 */
+	static final class CachedPath {
+
+		//The lines returned by getPath, or null if no path exists
+		private final ArrayList<String> path;
+
+		//The path's length, or Integer.MAX_VALUE if no path exists
+		final int distance;
+
+		//The names of the Towns along the path, in order. Just the two end Towns if no path exists
+		final String[] towns;
+
+		CachedPath(ArrayList<String> path, int distance, String[] towns) {
+			this.path = path;
+			this.distance = distance;
+			this.towns = towns;
+		}
+
+		/**
+		 * Get a copy of the cached lines, so callers cannot change the cached entry
+		 * @return the lines of the path, or null if no path exists
+		 */
+		ArrayList<String> copyPath() {
+			return path == null ? null : new ArrayList<>(path);
+		}
+
+		/**
+		 * Check whether the path runs directly between two Towns
+		 * @param town1 the name of one Town
+		 * @param town2 the name of the other Town
+		 * @return true if the two Towns are consecutive stops on the path
+		 */
+		boolean uses(String town1, String town2) {
+			if (path == null) return false;
+			for (int i = 0; i + 1 < towns.length; i++) {
+				if ((towns[i].equals(town1) && towns[i + 1].equals(town2))
+						|| (towns[i].equals(town2) && towns[i + 1].equals(town1))) return true;
+			}
+			return false;
+		}
+	}
+
+	private final TinyLfuCache<Key, CachedPath> cache;
+
+	//The keys of the cached paths through each Town
+	private final HashMap<String, HashSet<Key>> byTown = new HashMap<>();
+
+	//The graph version every cached entry is valid for
+	private long version;
+
+	private long hits;
+	private long misses;
+	private long invalidations;
+
+	/**
+	 * Create an empty cache
+	 * @param capacity the most paths to hold at once, or 0 to hold none
+	 * @throws IllegalArgumentException if the capacity is negative
+	 */
+	public RouteCache(int capacity) {
+		cache = new TinyLfuCache<>(capacity, (key, entry) -> unindex(key, entry));
+	}
+
+	/**
+	 * Look up a cached path
+	 * @param source the name of the starting Town
+	 * @param destination the name of the destination Town
+	 * @param graphVersion the graph's current version
+	 * @return the cached path, or null if it is not cached
+	 */
+	synchronized CachedPath get(String source, String destination, long graphVersion) {
+		sync(graphVersion);
+
+		CachedPath entry = cache.get(new Key(source, destination));
+		if (entry == null) misses++;
+		else hits++;
+		return entry;
+	}
+
+	/**
+	 * Cache a path. Paths computed against any version other than the cache's current one are ignored
+	 * @param source the name of the starting Town
+	 * @param destination the name of the destination Town
+	 * @param graphVersion the graph version the path was computed against
+	 * @param path the lines of the path, or null if no path exists
+	 * @param distance the path's length, or Integer.MAX_VALUE if no path exists
+	 * @param towns the names of the Towns along the path, or null if no path exists
+	 */
+	synchronized void put(String source, String destination, long graphVersion, ArrayList<String> path, int distance, String[] towns) {
+		sync(graphVersion);
+		if (graphVersion != version) return;
+
+		Key key = new Key(source, destination);
+		CachedPath old = cache.remove(key);
+		if (old != null) unindex(key, old);
+
+		CachedPath entry = new CachedPath(path == null ? null : new ArrayList<>(path), distance,
+				towns == null ? new String[] { source, destination } : towns);
+		cache.put(key, entry);
+
+		//A capacity of 0 stores nothing, so there is nothing to index
+		if (!cache.containsKey(key)) return;
+		for (String town : entry.towns) {
+			byTown.computeIfAbsent(town, t -> new HashSet<>()).add(key);
+		}
+	}
+
+	/**
+	 * Catch up with the graph's version. If it has moved on without the cache being told what changed,
+	 * every entry is dropped
+	 * @param graphVersion the graph's current version
+	 */
+	private void sync(long graphVersion) {
+		if (graphVersion > version) {
+			invalidations += cache.size();
+			cache.clear();
+			byTown.clear();
+			version = graphVersion;
+		}
+	}
+
+	/**
+	 * Record a change that cannot alter any cached path, such as adding a Town
+	 * @param oldVersion the graph's version before the change
+	 * @param newVersion the graph's version after the change
+	 */
+	synchronized void unchanged(long oldVersion, long newVersion) {
+		if (version == oldVersion) version = newVersion;
+		else sync(newVersion);
+	}
+
+	/**
+	 * Record the removal of a Road, dropping the cached paths that use it.
+	 * Every other path is still there and still shortest
+	 * @param town1 the name of one end of the Road
+	 * @param town2 the name of the other end of the Road
+	 * @param oldVersion the graph's version before the removal
+	 * @param newVersion the graph's version after the removal
+	 */
+	synchronized void roadRemoved(String town1, String town2, long oldVersion, long newVersion) {
+		//Nothing was removed
+		if (newVersion == oldVersion) return;
+
+		if (version != oldVersion) {
+			sync(newVersion);
+			return;
+		}
+
+		HashSet<Key> through = byTown.get(town1);
+		if (through != null) {
+			for (Key key : new ArrayList<>(through)) {
+				CachedPath entry = cache.peek(key);
+				if (entry != null && entry.uses(town1, town2)) {
+					cache.remove(key);
+					unindex(key, entry);
+					invalidations++;
+				}
+			}
+		}
+		version = newVersion;
+	}
+
+	/**
+	 * Record the removal of a Town, dropping the cached paths through it or to or from it.
+	 * Every other path is still there and still shortest
+	 * @param town the name of the removed Town
+	 * @param oldVersion the graph's version before the removal
+	 * @param newVersion the graph's version after the removal
+	 */
+	synchronized void townRemoved(String town, long oldVersion, long newVersion) {
+		//Nothing was removed
+		if (newVersion == oldVersion) return;
+
+		if (version != oldVersion) {
+			sync(newVersion);
+			return;
+		}
+
+		HashSet<Key> through = byTown.get(town);
+		if (through != null) {
+			for (Key key : new ArrayList<>(through)) {
+				CachedPath entry = cache.remove(key);
+				if (entry != null) {
+					unindex(key, entry);
+					invalidations++;
+				}
+			}
+		}
+		version = newVersion;
+	}
+
+	/**
+	 * Record the addition of a Road, dropping the cached paths it could make shorter. A path from s to t
+	 * gets shorter only if a route through the new Road, dist(s, town1) + weight + dist(town2, t) or the
+	 * same the other way around, beats it. The distances are taken from shortest path trees computed before
+	 * the Road was added, which need only be exact out to longestDistance() less the Road's length.
+	 * Cached answers that no path exists are always dropped, since the trees cannot show whether the Road
+	 * joins their Towns
+	 * @param town1 the name of one end of the Road
+	 * @param town2 the name of the other end of the Road
+	 * @param weight the Road's length
+	 * @param fromTown1 the shortest path tree from town1 before the Road was added, exact out to the radius
+	 * @param fromTown2 the shortest path tree from town2 before the Road was added, exact out to the radius
+	 * @param oldVersion the graph's version before the addition
+	 * @param newVersion the graph's version after the addition
+	 */
+	synchronized void roadAdded(String town1, String town2, int weight, ShortestPathTree fromTown1, ShortestPathTree fromTown2,
+			long oldVersion, long newVersion) {
+		if (version != oldVersion || fromTown1 == null || fromTown2 == null) {
+			sync(newVersion);
+			return;
+		}
+
+		for (Key key : cache.keys()) {
+			Town source = new Town(key.source);
+			Town destination = new Town(key.destination);
+
+			long through = Math.min(
+					(long) fromTown1.getDistance(source) + weight + fromTown2.getDistance(destination),
+					(long) fromTown2.getDistance(source) + weight + fromTown1.getDistance(destination));
+
+			CachedPath entry = cache.peek(key);
+			if (through < entry.distance || entry.distance == Integer.MAX_VALUE) {
+				cache.remove(key);
+				unindex(key, entry);
+				invalidations++;
+			}
+		}
+		version = newVersion;
+	}
+
+	/**
+	 * Find the longest cached path. Only a Road that makes a route shorter than this can change a cached path
+	 * @return the longest cached path's length, or -1 if no cached path has a length
+	 */
+	synchronized int longestDistance() {
+		int longest = -1;
+		for (Key key : cache.keys()) {
+			int distance = cache.peek(key).distance;
+			if (distance != Integer.MAX_VALUE) longest = Math.max(longest, distance);
+		}
+		return longest;
+	}
+
+	/**
+	 * Check whether the cache holds anything worth checking after a change
+	 * @return true if no paths are cached
+	 */
+	synchronized boolean isEmpty() {
+		return cache.size() == 0;
+	}
+
+	/**
+	 * Remove a path's key from the index of every Town along it
+	 * @param key the path's key
+	 * @param entry the path
+	 */
+	private void unindex(Key key, CachedPath entry) {
+		for (String town : entry.towns) {
+			HashSet<Key> keys = byTown.get(town);
+			if (keys == null) continue;
+			keys.remove(key);
+			if (keys.isEmpty()) byTown.remove(town);
+		}
+	}
+
+	/**
+	 * Remove every cached path
+	 */
+	public synchronized void clear() {
+		invalidations += cache.size();
+		cache.clear();
+		byTown.clear();
+	}
+
+	/**
+	 * Remove every cached path and start again from a graph's version, for when the graph itself is replaced.
+	 * The new graph's version may be lower than the old one's
+	 * @param graphVersion the new graph's version
+	 */
+	synchronized void reset(long graphVersion) {
+		clear();
+		version = graphVersion;
+	}
+
+	/**
+	 * Get the number of cached paths
+	 * @return the number of paths
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * Get the number of queries answered from the cache
+	 * @return the hit count
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of queries that were not cached
+	 * @return the miss count
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of paths evicted to make room for others
+	 * @return the eviction count
+	 */
+	public synchronized long getEvictionCount() {
+		return cache.getEvictionCount();
+	}
+
+	/**
+	 * Get the number of paths dropped because the graph changed
+	 * @return the invalidation count
+	 */
+	public synchronized long getInvalidationCount() {
+		return invalidations;
+	}
+}
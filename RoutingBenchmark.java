@@ -0,0 +1,180 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Times TownGraph searches under each QueueStrategy, and then under each VertexOrder. Run with the path of a road
+ * file in the format read by TownGraphManager.populateTownGraph, or with no arguments to use a generated grid of
+ * Towns, added in shuffled order as a road file would list them. Each strategy and order runs the same full
+ * single-source searches and point-to-point queries from the same random Towns, after a warm-up round so the JIT
+ * has compiled the search code.
+ *
+ * Java cannot count cache misses, so each order also reports how far apart in number the two ends of an average arc
+ * are, and how many bytes an arc packs into. The closer neighbors are numbered, the more of each search's reads
+ * fall on cache lines it has already loaded, which shows up as less time per settled Town.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class RoutingBenchmark {
+
+	//Side length of the generated grid used when no road file is given
+	private static final int GRID_SIZE = 200;
+
+	private static final int TREES = 200;
+	private static final int QUERIES = 2000;
+
+	/**
+	 * Run the benchmark
+	 * @param args the path of a road file, or nothing to use a generated grid
+	 * @throws IOException if the road file cannot be read
+	 */
+	public static void main(String[] args) throws IOException {
+		TownGraph graph;
+		if (args.length > 0) {
+			TownGraphManager manager = new TownGraphManager();
+			manager.populateTownGraph(new File(args[0]));
+			graph = manager.getGraph();
+		}
+		else {
+			graph = grid(GRID_SIZE, new Random(1));
+		}
+
+		//Every search must actually run, so nothing may come from the tree cache
+		graph.setTreeCacheCapacity(0);
+		CompactGraph snapshot = graph.getSnapshot();
+		System.out.printf("%d towns, %d roads%n", snapshot.size(), snapshot.arcCount() / 2);
+
+		for (int round = 0; round < 2; round++) {
+			boolean warmUp = round == 0;
+			for (QueueStrategy strategy : QueueStrategy.values()) {
+				graph.setQueueStrategy(strategy);
+				long trees = timeTrees(graph, snapshot, new Random(2));
+				long queries = timeQueries(graph, snapshot, new Random(3));
+
+				if (!warmUp) {
+					System.out.printf("%-12s full search %8.1f us   bidirectional query %8.1f us%n",
+							strategy, trees / 1000.0 / TREES, queries / 1000.0 / QUERIES);
+				}
+			}
+		}
+		graph.setQueueStrategy(QueueStrategy.BINARY_HEAP);
+
+		//Sources are picked from the first snapshot, so every order searches from the same Towns
+		for (int round = 0; round < 2; round++) {
+			boolean warmUp = round == 0;
+			for (VertexOrder order : VertexOrder.values()) {
+				graph.setVertexOrder(order);
+				CompactGraph renumbered = graph.getSnapshot();
+				long trees = timeTrees(graph, snapshot, new Random(2));
+				long queries = timeQueries(graph, snapshot, new Random(3));
+
+				if (!warmUp) {
+					int[] starts = new int[renumbered.size() + 1];
+					PackedArcs.pack(renumbered.offsets, renumbered.targets, renumbered.weights, starts);
+					System.out.printf("%-13s %6.1f ns per settled town   bidirectional query %8.1f us   "
+							+ "mean arc span %9.1f   %4.2f bytes per packed arc%n",
+							order, (double) trees / TREES / renumbered.size(), queries / 1000.0 / QUERIES,
+							meanArcSpan(renumbered), (double) starts[renumbered.size()] / renumbered.arcCount());
+				}
+			}
+		}
+		graph.setVertexOrder(VertexOrder.INSERTION);
+	}
+
+	/**
+	 * Find how far apart in number the two ends of an average arc are
+	 * @param g the snapshot
+	 * @return the mean difference between the numbers of each arc's ends
+	 */
+	private static double meanArcSpan(CompactGraph g) {
+		long total = 0;
+		for (int v = 0; v < g.size(); v++) {
+			for (int arc = g.offsets[v]; arc < g.offsets[v + 1]; arc++) {
+				total += Math.abs(g.targets[arc] - v);
+			}
+		}
+		return g.arcCount() == 0 ? 0 : (double) total / g.arcCount();
+	}
+
+	/**
+	 * Time full single-source searches from random Towns
+	 * @param graph the graph
+	 * @param snapshot the graph's snapshot, for picking Towns
+	 * @param random the source of random Towns
+	 * @return the total time in nanoseconds
+	 */
+	private static long timeTrees(TownGraph graph, CompactGraph snapshot, Random random) {
+		long checksum = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < TREES; i++) {
+			Town source = snapshot.getTown(random.nextInt(snapshot.size()));
+			checksum += graph.shortestPathTree(source).getDistance(snapshot.getTown(0));
+		}
+		long elapsed = System.nanoTime() - start;
+
+		//Use the result so the searches cannot be optimized away
+		if (checksum == 42) System.out.print("");
+		return elapsed;
+	}
+
+	/**
+	 * Time bidirectional point-to-point queries between random Towns
+	 * @param graph the graph
+	 * @param snapshot the graph's snapshot, for picking Towns
+	 * @param random the source of random Towns
+	 * @return the total time in nanoseconds
+	 */
+	private static long timeQueries(TownGraph graph, CompactGraph snapshot, Random random) {
+		long checksum = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			Town source = snapshot.getTown(random.nextInt(snapshot.size()));
+			Town destination = snapshot.getTown(random.nextInt(snapshot.size()));
+			Route route = graph.route(source, destination, RoutingMode.BIDIRECTIONAL);
+			if (route != null) checksum += route.getDistance();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		if (checksum == 42) System.out.print("");
+		return elapsed;
+	}
+
+	/**
+	 * Generate a square grid of Towns joined to their neighbors by Roads of random length. Each Town is placed on
+	 * the map at its spot in the grid, and the Towns are added in shuffled order
+	 * @param size the number of Towns along each side
+	 * @param random the source of Road lengths and of the order the Towns are added in
+	 * @return the grid
+	 */
+	static TownGraph grid(int size, Random random) {
+		TownGraph graph = new TownGraph();
+		Town[] towns = new Town[size * size];
+		for (int i = 0; i < towns.length; i++) {
+			//A degree across, so neighbors are never farther apart than the shortest Road between them
+			towns[i] = new Town("Town " + i, 40 + (double) (i / size) / size, -90 + (double) (i % size) / size);
+		}
+
+		Town[] shuffled = towns.clone();
+		for (int i = shuffled.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Town t = shuffled[i];
+			shuffled[i] = shuffled[j];
+			shuffled[j] = t;
+		}
+		for (Town town : shuffled) {
+			graph.addVertex(town);
+		}
+
+		int roads = 0;
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				int v = row * size + column;
+				if (column + 1 < size) graph.addEdge(towns[v], towns[v + 1], 1 + random.nextInt(100), "Road " + roads++);
+				if (row + 1 < size) graph.addEdge(towns[v], towns[v + size], 1 + random.nextInt(100), "Road " + roads++);
+			}
+		}
+		return graph;
+	}
+}
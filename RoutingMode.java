@@ -0,0 +1,41 @@
+
+/**
+ * The search strategies TownGraph can use to answer point-to-point route queries.
+ * Every mode returns a shortest route; they differ only in how much of the graph they explore.
+ * 
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public enum RoutingMode {
+	
+	/**
+	 * Dijkstra's algorithm from the source, stopping once the destination is settled. If the source's full
+	 * shortest path tree is already in the graph's tree cache, the route is read from it without searching
+	 */
+	DIJKSTRA,
+	
+	/**
+	 * Dijkstra's algorithm run from both ends at once, stopping once the two searches meet.
+	 * Best suited to long routes, where it settles far fewer Towns than a one-sided search
+	 */
+	BIDIRECTIONAL,
+	
+	/**
+	 * A* search guided by the great-circle distance to the destination. Falls back to DIJKSTRA
+	 * when either end of the route has no coordinates
+	 */
+	ASTAR,
+	
+	/**
+	 * Upward bidirectional search over a contraction hierarchy. The hierarchy must first be built with
+	 * TownGraph.contract(); until then, or once the graph has changed, this falls back to BIDIRECTIONAL
+	 */
+	CONTRACTION_HIERARCHY,
+	
+	/**
+	 * A* search guided by landmark distances (ALT), which needs no coordinates. The landmarks must first be
+	 * chosen with TownGraph.prepareLandmarks(int); until then, or once the graph has changed, this falls back to ASTAR
+	 */
+	LANDMARKS
+}
@@ -0,0 +1,484 @@
+import java.util.Arrays;
+
+/**
+ * Reusable scratch space for shortest path searches. A workspace holds primitive distance and predecessor
+ * arrays together with a priority queue, and is reused from one search to the next on the same thread.
+ * Rather than clearing the arrays before each search, every entry is stamped with the search's epoch;
+ * an entry whose stamp is out of date reads as unreached. A search therefore costs time proportional to
+ * the Towns it reaches, and produces no garbage beyond its result.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class SearchWorkspace {
+
+	//One workspace per thread, so concurrent searches never share one. Bidirectional searches
+	//take a second workspace for the backward half
+	private static final ThreadLocal<SearchWorkspace> LOCAL = ThreadLocal.withInitial(SearchWorkspace::new);
+	private static final ThreadLocal<SearchWorkspace> LOCAL_REVERSE = ThreadLocal.withInitial(SearchWorkspace::new);
+
+	//Search arrays, valid for Town v only while stamp[v] == epoch
+	int[] distance;
+	int[] parent;
+	int[] parentArc;
+	private int[] stamp;
+	private int epoch;
+
+	VertexQueue queue;
+	private QueueStrategy strategy = QueueStrategy.BINARY_HEAP;
+
+	//The snapshot and source of the current search
+	CompactGraph graph;
+	int source;
+	
+	//Number of Towns settled by the current search
+	int settled;
+
+	/**
+	 * Create an empty workspace. Its arrays are sized on first use
+	 */
+	public SearchWorkspace() {
+		distance = parent = parentArc = stamp = new int[0];
+		queue = strategy.create(0);
+	}
+
+	/**
+	 * Choose the kind of priority queue later searches in this workspace run on
+	 * @param strategy the kind of queue
+	 * @return this workspace
+	 */
+	SearchWorkspace useQueue(QueueStrategy strategy) {
+		if (strategy != this.strategy) {
+			this.strategy = strategy;
+			queue = strategy.create(stamp.length);
+		}
+		return this;
+	}
+
+	/**
+	 * Get the calling thread's workspace
+	 * @return the workspace belonging to the current thread
+	 */
+	public static SearchWorkspace get() {
+		return LOCAL.get();
+	}
+
+	/**
+	 * Get the calling thread's second workspace, used for the backward half of a bidirectional search
+	 * @return the current thread's second workspace
+	 */
+	public static SearchWorkspace getReverse() {
+		return LOCAL_REVERSE.get();
+	}
+
+	/**
+	 * Begin a new search. Every Town reads as unreached afterward, without touching the arrays
+	 * @param graph the snapshot to be searched
+	 * @param source the number of the source Town
+	 */
+	void begin(CompactGraph graph, int source) {
+		this.graph = graph;
+		begin(graph.size(), source);
+	}
+
+	/**
+	 * Begin a new search over Towns numbered 0 through size - 1, for searches that do not run
+	 * over a CompactGraph's arcs
+	 * @param n the number of Towns
+	 * @param source the number of the source Town
+	 */
+	void begin(int n, int source) {
+		this.source = source;
+		settled = 0;
+
+		if (stamp.length < n) {
+			//Grow with some headroom so a slowly growing graph does not reallocate every version
+			int capacity = Math.max(n, stamp.length + (stamp.length >> 1));
+			distance = new int[capacity];
+			parent = new int[capacity];
+			parentArc = new int[capacity];
+			stamp = new int[capacity];
+			queue = strategy.create(capacity);
+			epoch = 0;
+		}
+		queue.clear();
+
+		//On wrap-around, clear the stamps once so no stale entry can match the new epoch
+		if (++epoch == 0) {
+			Arrays.fill(stamp, 0);
+			epoch = 1;
+		}
+	}
+
+	/**
+	 * Check whether a Town has been reached by the current search
+	 * @param v the Town's number
+	 * @return true if the Town has a tentative or final distance
+	 */
+	boolean reached(int v) {
+		return stamp[v] == epoch;
+	}
+
+	/**
+	 * Get the current distance of a Town
+	 * @param v the Town's number
+	 * @return the Town's distance, or Integer.MAX_VALUE if it has not been reached
+	 */
+	int distanceOf(int v) {
+		return stamp[v] == epoch ? distance[v] : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Record a new distance for a Town and the arc it was reached by
+	 * @param v the Town's number
+	 * @param newDistance the Town's distance
+	 * @param from the Town at the near end of the arc, or -1 for the source
+	 * @param arc the arc the Town was reached by, or -1 for the source
+	 */
+	void label(int v, int newDistance, int from, int arc) {
+		stamp[v] = epoch;
+		distance[v] = newDistance;
+		parent[v] = from;
+		parentArc[v] = arc;
+	}
+
+	/**
+	 * Get the number of Towns settled by the current search
+	 * @return the number of Towns settled
+	 */
+	public int getSettledCount() {
+		return settled;
+	}
+
+	/**
+	 * Run Dijkstra's algorithm from a source Town over a snapshot, settling every reachable Town
+	 * @param graph the snapshot to search
+	 * @param source the number of the source Town
+	 */
+	void dijkstra(CompactGraph graph, int source) {
+		dijkstra(graph, source, -1);
+	}
+
+	/**
+	 * Run Dijkstra's algorithm from a source Town over a snapshot, stopping as soon as the target is settled.
+	 * Towns settled before the target have their final distances; the rest may only be tentative
+	 * @param graph the snapshot to search
+	 * @param source the number of the source Town
+	 * @param target the number of the target Town, or -1 to settle every reachable Town
+	 */
+	void dijkstra(CompactGraph graph, int source, int target) {
+		begin(graph, source);
+
+		//Seed the priority queue with the source at distance zero
+		label(source, 0, -1, -1);
+		queue.push(source, 0);
+
+		while (!queue.isEmpty()) {
+
+			//The closest unsettled Town is now settled at its final distance
+			int u = queue.poll();
+			settled++;
+			if (u == target) return;
+			
+			int du = distance[u];
+
+			//Relax each arc leaving the settled Town
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+				int newDistance = du + graph.weights[arc];
+
+				if (newDistance < distanceOf(v)) {
+					label(v, newDistance, u, arc);
+					queue.push(v, newDistance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run Dijkstra's algorithm from a source Town over a snapshot, stopping once the next Town to settle lies
+	 * beyond a radius. Every Town within the radius is settled at its final distance; Towns beyond it are
+	 * either unreached or hold a tentative distance that is never shorter than their real one
+	 * @param graph the snapshot to search
+	 * @param source the number of the source Town
+	 * @param radius the greatest distance to settle Towns out to
+	 */
+	void dijkstraWithin(CompactGraph graph, int source, int radius) {
+		begin(graph, source);
+
+		label(source, 0, -1, -1);
+		queue.push(source, 0);
+
+		while (!queue.isEmpty()) {
+
+			int u = queue.poll();
+			int du = distance[u];
+			if (du > radius) return;
+			settled++;
+
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+				int newDistance = du + graph.weights[arc];
+
+				if (newDistance < distanceOf(v)) {
+					label(v, newDistance, u, arc);
+					queue.push(v, newDistance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run Dijkstra's algorithm from a source Town over a snapshot, stopping once every marked target is settled
+	 * @param graph the snapshot to search
+	 * @param source the number of the source Town
+	 * @param isTarget isTarget[v] is true for each target Town
+	 * @param targetCount the number of Towns marked in isTarget
+	 */
+	void dijkstra(CompactGraph graph, int source, boolean[] isTarget, int targetCount) {
+		begin(graph, source);
+
+		label(source, 0, -1, -1);
+		queue.push(source, 0);
+
+		while (!queue.isEmpty()) {
+
+			int u = queue.poll();
+			settled++;
+			if (isTarget[u] && --targetCount == 0) return;
+
+			int du = distance[u];
+
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+				int newDistance = du + graph.weights[arc];
+
+				if (newDistance < distanceOf(v)) {
+					label(v, newDistance, u, arc);
+					queue.push(v, newDistance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run Dijkstra's algorithm from several source Towns at once, each starting at distance zero.
+	 * Every Town ends up with its distance to the nearest source, and following its parents leads to that source
+	 * @param graph the snapshot to search
+	 * @param sources the numbers of the source Towns, of which there must be at least one
+	 */
+	void dijkstra(CompactGraph graph, int[] sources) {
+		begin(graph, sources[0]);
+
+		for (int source : sources) {
+			label(source, 0, -1, -1);
+			queue.push(source, 0);
+		}
+
+		while (!queue.isEmpty()) {
+
+			int u = queue.poll();
+			settled++;
+
+			int du = distance[u];
+
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+				int newDistance = du + graph.weights[arc];
+
+				if (newDistance < distanceOf(v)) {
+					label(v, newDistance, u, arc);
+					queue.push(v, newDistance);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run an A* search from a source Town to a target Town. Towns are expanded in order of their distance
+	 * plus a lower bound on the remaining distance to the target, which steers the search toward
+	 * the target. If a Town is later reached by a shorter route it is queued again, so the result is exact
+	 * even where the bound is uneven.
+	 * @param graph the snapshot to search
+	 * @param source the number of the source Town
+	 * @param target the number of the target Town
+	 * @param bound the lower bound on remaining distance
+	 */
+	void aStar(CompactGraph graph, int source, int target, DistanceBound bound) {
+		begin(graph, source);
+
+		label(source, 0, -1, -1);
+		queue.push(source, bound.lowerBound(source, target));
+
+		while (!queue.isEmpty()) {
+
+			int u = queue.poll();
+			settled++;
+			if (u == target) return;
+
+			int du = distance[u];
+
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+				int newDistance = du + graph.weights[arc];
+
+				if (newDistance < distanceOf(v)) {
+					label(v, newDistance, u, arc);
+					queue.push(v, newDistance + bound.lowerBound(v, target));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Run a bidirectional Dijkstra search between two Towns. A forward search from the source and a backward
+	 * search from the target are advanced in turn, always expanding the side whose next Town is closer.
+	 * The best meeting point seen so far is kept, and the search stops once the two frontiers together
+	 * cannot improve on it. Roads are undirected, so the backward search follows the same arcs.
+	 *
+	 * @param graph the snapshot to search
+	 * @param source the number of the source Town
+	 * @param target the number of the target Town
+	 * @param forward the workspace for the forward search
+	 * @param backward the workspace for the backward search
+	 * @return the shortest route, or null if the target cannot be reached
+	 */
+	static Route bidirectional(CompactGraph graph, int source, int target,
+			SearchWorkspace forward, SearchWorkspace backward) {
+		forward.begin(graph, source);
+		backward.begin(graph, target);
+
+		forward.label(source, 0, -1, -1);
+		forward.queue.push(source, 0);
+		backward.label(target, 0, -1, -1);
+		backward.queue.push(target, 0);
+
+		//Length of the best route found so far, and the Town where its two halves meet
+		long best = source == target ? 0 : Long.MAX_VALUE;
+		int meeting = source == target ? source : -1;
+
+		while (!forward.queue.isEmpty() && !backward.queue.isEmpty()) {
+
+			//Neither frontier can lead to anything shorter than their sum, so the best route is final
+			if ((long) forward.queue.peekKey() + backward.queue.peekKey() >= best) break;
+
+			//Expand whichever side has the closer next Town
+			SearchWorkspace side = forward.queue.peekKey() <= backward.queue.peekKey() ? forward : backward;
+			SearchWorkspace other = side == forward ? backward : forward;
+
+			int u = side.queue.poll();
+			side.settled++;
+			int du = side.distance[u];
+
+			for (int arc = graph.offsets[u]; arc < graph.offsets[u + 1]; arc++) {
+				int v = graph.targets[arc];
+				int newDistance = du + graph.weights[arc];
+
+				if (newDistance < side.distanceOf(v)) {
+					side.label(v, newDistance, u, arc);
+					side.queue.push(v, newDistance);
+				}
+
+				//An arc into a Town the other side has reached joins the two halves into a route
+				if (other.reached(v) && (long) newDistance + other.distance[v] < best) {
+					best = (long) newDistance + other.distance[v];
+					meeting = v;
+				}
+			}
+		}
+
+		if (meeting == -1) return null;
+		return joinRoutes(graph, forward, backward, meeting);
+	}
+
+	/**
+	 * Join the forward half of a route, from the source to the meeting Town, with the backward half,
+	 * from the meeting Town to the target
+	 * @param graph the searched snapshot
+	 * @param forward the forward workspace
+	 * @param backward the backward workspace
+	 * @param meeting the Town where the two halves meet
+	 * @return the joined route
+	 */
+	private static Route joinRoutes(CompactGraph graph, SearchWorkspace forward, SearchWorkspace backward, int meeting) {
+		int forwardLength = 0;
+		for (int v = meeting; v != forward.source; v = forward.parent[v]) forwardLength++;
+		int backwardLength = 0;
+		for (int v = meeting; v != backward.source; v = backward.parent[v]) backwardLength++;
+
+		int length = forwardLength + backwardLength;
+		int[] vertices = new int[length + 1];
+		int[] arcs = new int[length];
+
+		//Forward half, filled from the meeting Town back toward the source
+		int v = meeting;
+		for (int i = forwardLength; i > 0; i--) {
+			vertices[i] = v;
+			arcs[i - 1] = forward.parentArc[v];
+			v = forward.parent[v];
+		}
+		vertices[0] = forward.source;
+
+		//Backward half, whose predecessors lead from the meeting Town on toward the target
+		v = meeting;
+		for (int i = forwardLength; i < length; i++) {
+			arcs[i] = backward.parentArc[v];
+			v = backward.parent[v];
+			vertices[i + 1] = v;
+		}
+
+		return new Route(graph, vertices, arcs, forward.distance[meeting] + backward.distance[meeting]);
+	}
+
+	/**
+	 * Build the route from the current search's source to a Town
+	 * @param target the number of the destination Town
+	 * @return the route, or null if the destination was not reached
+	 */
+	Route routeTo(int target) {
+		if (!reached(target)) return null;
+
+		//Count the Roads back to the source, then fill the route from the destination backward
+		int length = 0;
+		for (int v = target; v != source; v = parent[v]) length++;
+
+		int[] vertices = new int[length + 1];
+		int[] arcs = new int[length];
+		int v = target;
+		for (int i = length; i > 0; i--) {
+			vertices[i] = v;
+			arcs[i - 1] = parentArc[v];
+			v = parent[v];
+		}
+		vertices[0] = source;
+
+		return new Route(graph, vertices, arcs, distance[target]);
+	}
+
+	/**
+	 * Copy the current search's results into a standalone tree that outlives the workspace's next search
+	 * @return the shortest path tree of the current search
+	 */
+	ShortestPathTree toTree() {
+		int n = graph.size();
+		int[] treeDistance = new int[n];
+		int[] treeParent = new int[n];
+		int[] treeArc = new int[n];
+
+		for (int v = 0; v < n; v++) {
+			if (stamp[v] == epoch) {
+				treeDistance[v] = distance[v];
+				treeParent[v] = parent[v];
+				treeArc[v] = parentArc[v];
+			}
+			else {
+				treeDistance[v] = Integer.MAX_VALUE;
+				treeParent[v] = -1;
+				treeArc[v] = -1;
+			}
+		}
+
+		return new ShortestPathTree(graph, source, treeDistance, treeParent, treeArc);
+	}
+}
@@ -0,0 +1,111 @@
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchWorkspaceTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[5];
+	SearchWorkspace workspace;
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town " + i);
+			graph.addVertex(towns[i]);
+		}
+		
+		//Towns 0-2 form one component, and Towns 3-4 another
+		graph.addEdge(towns[0], towns[1], 4, "Road 0");
+		graph.addEdge(towns[1], towns[2], 6, "Road 1");
+		graph.addEdge(towns[3], towns[4], 2, "Road 2");
+		
+		workspace = new SearchWorkspace();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+		workspace = null;
+	}
+	
+	@Test
+	public void testReuseForgetsPreviousSearch() {
+		CompactGraph g = graph.getSnapshot();
+		
+		workspace.dijkstra(g, g.indexOf(towns[0]));
+		assertEquals(10, workspace.distanceOf(g.indexOf(towns[2])));
+		assertFalse(workspace.reached(g.indexOf(towns[4])));
+		
+		//Entries from the first search must read as unreached in the second
+		workspace.dijkstra(g, g.indexOf(towns[3]));
+		assertEquals(2, workspace.distanceOf(g.indexOf(towns[4])));
+		assertEquals(Integer.MAX_VALUE, workspace.distanceOf(g.indexOf(towns[2])));
+		assertNull(workspace.routeTo(g.indexOf(towns[0])));
+	}
+	
+	@Test
+	public void testToTreeCopiesResults() {
+		CompactGraph g = graph.getSnapshot();
+		
+		workspace.dijkstra(g, g.indexOf(towns[2]));
+		ShortestPathTree tree = workspace.toTree();
+		
+		//The tree keeps its results after the workspace moves on
+		workspace.dijkstra(g, g.indexOf(towns[4]));
+		assertEquals(10, tree.getDistance(towns[0]));
+		assertEquals(Integer.MAX_VALUE, tree.getDistance(towns[3]));
+		assertEquals(towns[1], tree.getPredecessor(towns[0]));
+	}
+	
+	@Test
+	public void testEarlyTermination() {
+		//A chain of Towns 0 through 9 joined by Roads of length 1
+		TownGraph chain = new TownGraph();
+		Town[] links = new Town[10];
+		for (int i = 0; i < links.length; i++) {
+			links[i] = new Town("Link " + i);
+			chain.addVertex(links[i]);
+			if (i > 0) chain.addEdge(links[i - 1], links[i], 1, "Road " + i);
+		}
+		CompactGraph g = chain.getSnapshot();
+		
+		workspace.dijkstra(g, 0, 2);
+		assertEquals(3, workspace.getSettledCount());
+		assertEquals(2, workspace.routeTo(2).getDistance());
+		
+		workspace.dijkstra(g, 0);
+		assertEquals(10, workspace.getSettledCount());
+		
+		//Each half of a bidirectional search covers about half the chain
+		SearchWorkspace backward = new SearchWorkspace();
+		Route route = SearchWorkspace.bidirectional(g, 0, 9, workspace, backward);
+		assertEquals(9, route.getDistance());
+		assertEquals(9, route.size());
+		assertTrue(workspace.getSettledCount() + backward.getSettledCount() <= 10);
+	}
+	
+	@Test
+	public void testBidirectionalUnreachable() {
+		CompactGraph g = graph.getSnapshot();
+		
+		assertNull(SearchWorkspace.bidirectional(g, g.indexOf(towns[0]), g.indexOf(towns[4]),
+				workspace, new SearchWorkspace()));
+		assertEquals(0, SearchWorkspace.bidirectional(g, 1, 1, workspace, new SearchWorkspace()).size());
+	}
+	
+	@Test
+	public void testGrowsWithGraph() {
+		workspace.dijkstra(graph.getSnapshot(), 0);
+		
+		Town town5 = new Town("Town 5");
+		graph.addVertex(town5);
+		graph.addEdge(towns[2], town5, 1, "Road 3");
+		
+		CompactGraph g = graph.getSnapshot();
+		workspace.dijkstra(g, g.indexOf(towns[0]));
+		assertEquals(11, workspace.routeTo(g.indexOf(town5)).getDistance());
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * The result of a single-source shortest path search: the distance from the source to every Town,
+ * and each Town's predecessor on its shortest path. A tree owns its arrays, so any number of trees
+ * may be computed and read concurrently against the same CompactGraph.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class ShortestPathTree {
+
+	private final CompactGraph graph;
+	private final int source;
+
+	//distance[v] is the shortest distance from the source to Town v, or Integer.MAX_VALUE if unreachable
+	private final int[] distance;
+
+	//parentArc[v] is the arc by which Town v is reached on its shortest path, or -1 for the source
+	//and unreachable Towns. parent[v] is the Town at the near end of that arc
+	private final int[] parent;
+	private final int[] parentArc;
+
+	/**
+	 * Create a tree from the arrays of a completed search. The tree takes ownership of the arrays
+	 * @param graph the searched snapshot
+	 * @param source the number of the source Town
+	 * @param distance each Town's distance from the source
+	 * @param parent each Town's predecessor
+	 * @param parentArc the arc each Town is reached by
+	 */
+	ShortestPathTree(CompactGraph graph, int source, int[] distance, int[] parent, int[] parentArc) {
+		this.graph = graph;
+		this.source = source;
+		this.distance = distance;
+		this.parent = parent;
+		this.parentArc = parentArc;
+	}
+
+	/**
+	 * Get the snapshot this tree was computed against
+	 * @return the searched snapshot
+	 */
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Get the source Town of the search
+	 * @return the source Town
+	 */
+	public Town getSource() {
+		return graph.towns[source];
+	}
+
+	/**
+	 * Get the shortest distance from the source to a Town
+	 * @param destination the destination Town
+	 * @return the distance, Integer.MAX_VALUE if the Town is unreachable, or -1 if it is not in the graph
+	 */
+	public int getDistance(Town destination) {
+		int v = graph.indexOf(destination);
+		if (v == -1) return -1;
+		return distance[v];
+	}
+
+	/**
+	 * Get the shortest distance from the source to a Town by number
+	 * @param v the Town's number
+	 * @return the distance, or Integer.MAX_VALUE if the Town is unreachable
+	 */
+	int distanceOf(int v) {
+		return distance[v];
+	}
+
+	/**
+	 * Get the number of the Town preceding another on its shortest path from the source
+	 * @param v the Town's number
+	 * @return the preceding Town's number, or -1 for the source and unreachable Towns
+	 */
+	int parentOf(int v) {
+		return parent[v];
+	}
+
+	/**
+	 * Get the arc by which a Town is reached on its shortest path from the source
+	 * @param v the Town's number
+	 * @return the arc, or -1 for the source and unreachable Towns
+	 */
+	int parentArcOf(int v) {
+		return parentArc[v];
+	}
+
+	/**
+	 * Get the Town preceding another on its shortest path from the source
+	 * @param town the Town to look up
+	 * @return the preceding Town, or null for the source, unreachable Towns and Towns not in the graph
+	 */
+	public Town getPredecessor(Town town) {
+		int v = graph.indexOf(town);
+		if (v == -1 || parent[v] == -1) return null;
+		return graph.towns[parent[v]];
+	}
+
+	/**
+	 * Build the shortest route from the source to a destination
+	 * @param destination the destination Town
+	 * @return the route, or null if the destination is unreachable
+	 * @throws IllegalArgumentException if the destination is not in the graph
+	 */
+	public Route routeTo(Town destination) {
+		int target = graph.indexOf(destination);
+		if (target == -1) throw new IllegalArgumentException("The indicated Town is not in the graph.");
+		if (distance[target] == Integer.MAX_VALUE) return null;
+
+		//Count the Roads back to the source, then fill the route from the destination backward
+		int length = 0;
+		for (int v = target; v != source; v = parent[v]) length++;
+
+		int[] vertices = new int[length + 1];
+		int[] arcs = new int[length];
+		int v = target;
+		for (int i = length; i > 0; i--) {
+			vertices[i] = v;
+			arcs[i - 1] = parentArc[v];
+			v = parent[v];
+		}
+		vertices[0] = source;
+
+		return new Route(graph, vertices, arcs, distance[target]);
+	}
+}
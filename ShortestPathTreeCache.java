@@ -0,0 +1,239 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of single-source shortest path trees, keyed by source Town and graph version.
+ * Trees are only stored when a full tree is asked for, and routes from a source whose tree is stored,
+ * such as a hub or depot, are read straight out of it instead of repeating the search.
+ * When the cache is full, the least recently used tree is evicted.
+ *
+ * Concurrent requests for the same source are coalesced: the first thread runs the search while
+ * the others wait for its tree, so a burst of queries from one source costs a single search.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class ShortestPathTreeCache {
+
+	/**
+	 * Identifies a tree by the number of its source Town and the graph version it was computed against
+	 */
+	private static final class Key {
+		final long version;
+		final int source;
+
+		Key(long version, int source) {
+			this.version = version;
+			this.source = source;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return version == other.version && source == other.source;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(version) * 31 + source;
+		}
+	}
+
+	private final int capacity;
+
+	//Cached trees in access order, so the eldest entry is the least recently used. Guarded by itself
+	private final LinkedHashMap<Key, ShortestPathTree> trees;
+
+	//Searches in progress, which later requests for the same source wait on
+	private final ConcurrentHashMap<Key, CompletableFuture<ShortestPathTree>> pending = new ConcurrentHashMap<>();
+
+	//The newest graph version seen. Trees for older versions are dropped once a newer one is stored
+	private long newestVersion;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * Create an empty cache
+	 * @param capacity the most trees to hold at once. A capacity of 0 disables caching,
+	 * though concurrent requests are still coalesced
+	 * @throws IllegalArgumentException if the capacity is negative
+	 */
+	public ShortestPathTreeCache(int capacity) {
+		if (capacity < 0) throw new IllegalArgumentException("Cache capacity may not be negative");
+		this.capacity = capacity;
+		trees = new LinkedHashMap<Key, ShortestPathTree>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, ShortestPathTree> eldest) {
+				return size() > ShortestPathTreeCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Get the shortest path tree from a source, computing it if it is not cached.
+	 * If another thread is already computing the same tree, wait for its result instead
+	 *
+	 * @param graph the snapshot to search
+	 * @param source the number of the source Town
+	 * @param strategy the kind of priority queue to search with
+	 * @return the shortest path tree rooted at the source
+	 */
+	public ShortestPathTree get(CompactGraph graph, int source, QueueStrategy strategy) {
+		Key key = new Key(graph.version, source);
+
+		ShortestPathTree tree = lookup(key);
+		if (tree != null) {
+			hits.incrementAndGet();
+			return tree;
+		}
+
+		CompletableFuture<ShortestPathTree> mine = new CompletableFuture<>();
+		CompletableFuture<ShortestPathTree> running = pending.putIfAbsent(key, mine);
+
+		//Another thread is already searching from this source
+		if (running != null) {
+			coalesced.incrementAndGet();
+			try {
+				return running.join();
+			}
+			catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+				throw e;
+			}
+		}
+
+		try {
+			//The tree may have been stored after the first lookup but before this thread claimed the search
+			tree = lookup(key);
+			if (tree != null) {
+				hits.incrementAndGet();
+			}
+			else {
+				misses.incrementAndGet();
+				SearchWorkspace workspace = SearchWorkspace.get().useQueue(strategy);
+				workspace.dijkstra(graph, source);
+				tree = workspace.toTree();
+				store(key, tree);
+			}
+
+			mine.complete(tree);
+			return tree;
+		}
+		catch (RuntimeException e) {
+			mine.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			//The tree is stored before the search is released, so no later request repeats it
+			pending.remove(key, mine);
+		}
+	}
+
+	/**
+	 * Get the shortest path tree from a source only if it is already cached. Nothing is computed, so callers
+	 * that only need part of a tree can run a cheaper search of their own on a miss
+	 *
+	 * @param graph the snapshot the tree must have been computed against
+	 * @param source the number of the source Town
+	 * @return the cached tree, or null if it is not cached
+	 */
+	public ShortestPathTree peek(CompactGraph graph, int source) {
+		ShortestPathTree tree = lookup(new Key(graph.version, source));
+		if (tree != null) hits.incrementAndGet();
+		return tree;
+	}
+
+	/**
+	 * Find a cached tree, marking it as recently used
+	 * @param key the tree's key
+	 * @return the tree, or null if it is not cached
+	 */
+	private ShortestPathTree lookup(Key key) {
+		synchronized (trees) {
+			return trees.get(key);
+		}
+	}
+
+	/**
+	 * Store a tree, dropping any trees for graph versions older than its own
+	 * @param key the tree's key
+	 * @param tree the tree
+	 */
+	private void store(Key key, ShortestPathTree tree) {
+		synchronized (trees) {
+			if (key.version < newestVersion) return;
+
+			if (key.version > newestVersion) {
+				newestVersion = key.version;
+				Iterator<Key> keys = trees.keySet().iterator();
+				while (keys.hasNext()) {
+					if (keys.next().version < newestVersion) keys.remove();
+				}
+			}
+
+			trees.put(key, tree);
+		}
+	}
+
+	/**
+	 * Remove every cached tree
+	 */
+	public void clear() {
+		synchronized (trees) {
+			trees.clear();
+		}
+	}
+
+	/**
+	 * Get the number of trees currently cached
+	 * @return the number of cached trees
+	 */
+	public int size() {
+		synchronized (trees) {
+			return trees.size();
+		}
+	}
+
+	/**
+	 * Get the most trees the cache holds at once
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of requests answered from the cache
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of requests that ran a search
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Get the number of requests that waited on another thread's search for the same source
+	 * @return the coalesced request count
+	 */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+}
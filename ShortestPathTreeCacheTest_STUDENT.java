@@ -0,0 +1,133 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShortestPathTreeCacheTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[6];
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+
+		for (int i = 0; i < towns.length; i++) {
+			towns[i] = new Town("Town " + i);
+			graph.addVertex(towns[i]);
+		}
+
+		graph.addEdge(towns[0], towns[1], 4, "Road 1");
+		graph.addEdge(towns[1], towns[2], 3, "Road 2");
+		graph.addEdge(towns[0], towns[2], 9, "Road 3");
+		graph.addEdge(towns[2], towns[3], 5, "Road 4");
+		graph.addEdge(towns[3], towns[4], 2, "Road 5");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		graph = null;
+	}
+
+	@Test
+	public void testRepeatedSourceHitsCache() {
+		ShortestPathTree first = graph.shortestPathTree(towns[0]);
+		assertSame(first, graph.shortestPathTree(towns[0]));
+
+		//Routes from the same source are read from the cached tree
+		assertEquals(14, graph.route(towns[0], towns[4]).getDistance());
+		assertEquals(7, graph.route(towns[0], towns[2]).getDistance());
+
+		ShortestPathTreeCache cache = graph.getTreeCache();
+		assertEquals(1, cache.getMissCount());
+		assertEquals(3, cache.getHitCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testRoutesDoNotFillCache() {
+		//Without a cached tree, a route runs its own search that stops at the destination
+		assertEquals(7, graph.route(towns[0], towns[2]).getDistance());
+		assertNull(graph.route(towns[0], towns[5]));
+
+		ShortestPathTreeCache cache = graph.getTreeCache();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getMissCount());
+		assertNull(cache.peek(graph.getSnapshot(), 0));
+	}
+
+	@Test
+	public void testChangeInvalidatesTrees() {
+		ShortestPathTree before = graph.shortestPathTree(towns[0]);
+		assertEquals(Integer.MAX_VALUE, before.getDistance(towns[5]));
+
+		graph.addEdge(towns[4], towns[5], 1, "Road 6");
+		ShortestPathTree after = graph.shortestPathTree(towns[0]);
+		assertNotSame(before, after);
+		assertEquals(15, after.getDistance(towns[5]));
+
+		//The tree for the old version is dropped
+		assertEquals(1, graph.getTreeCache().size());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		graph.setTreeCacheCapacity(2);
+		ShortestPathTree zero = graph.shortestPathTree(towns[0]);
+		graph.shortestPathTree(towns[1]);
+
+		//Touch Town 0 so that Town 1 is the one evicted
+		graph.shortestPathTree(towns[0]);
+		graph.shortestPathTree(towns[2]);
+
+		ShortestPathTreeCache cache = graph.getTreeCache();
+		assertEquals(2, cache.size());
+		assertSame(zero, graph.shortestPathTree(towns[0]));
+		long misses = cache.getMissCount();
+		graph.shortestPathTree(towns[1]);
+		assertEquals(misses + 1, cache.getMissCount());
+	}
+
+	@Test
+	public void testDisabledCacheStillAnswers() {
+		graph.setTreeCacheCapacity(0);
+		assertEquals(14, graph.shortestPathTree(towns[0]).getDistance(towns[4]));
+		assertEquals(14, graph.shortestPathTree(towns[0]).getDistance(towns[4]));
+		assertEquals(0, graph.getTreeCache().size());
+		assertEquals(2, graph.getTreeCache().getMissCount());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareOneSearch() throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		ArrayList<Thread> threads = new ArrayList<>();
+		int[] distances = new int[16];
+
+		for (int i = 0; i < distances.length; i++) {
+			final int slot = i;
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (InterruptedException e) {
+					return;
+				}
+				distances[slot] = graph.shortestPathTree(towns[1]).getDistance(towns[4]);
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		start.countDown();
+		for (Thread thread : threads) thread.join();
+
+		//Every request got the right answer, but only one of them searched
+		for (int distance : distances) assertEquals(10, distance);
+		ShortestPathTreeCache cache = graph.getTreeCache();
+		assertEquals(1, cache.getMissCount());
+		assertEquals(distances.length, cache.getMissCount() + cache.getHitCount() + cache.getCoalescedCount());
+	}
+}
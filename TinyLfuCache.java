@@ -0,0 +1,373 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded map with W-TinyLFU eviction. New entries enter a small LRU window. An entry pushed out of
+ * the window must then win admission to the main region against the main region's next eviction victim,
+ * by having been requested more often according to a compact frequency sketch. The main region is a segmented
+ * LRU: entries start on probation and are promoted to the protected segment when requested again.
+ *
+ * This keeps frequently used entries through bursts of one-off requests that would flush a plain LRU cache,
+ * while the window still lets new entries build up a request history before they compete.
+ *
+ * The cache is not thread safe; callers must synchronize access themselves.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class TinyLfuCache<K, V> {
+
+	/**
+	 * Notified when the cache evicts an entry to make room for another. Explicit removals are not reported
+	 *
+	 * @param <K> the key type
+	 * @param <V> the value type
+	 */
+	public interface EvictionListener<K, V> {
+
+		/**
+		 * Report an evicted entry
+		 * @param key the evicted key
+		 * @param value the evicted value
+		 */
+		public void evicted(K key, V value);
+	}
+
+	private final int capacity;
+	private final int windowCapacity;
+	private final int mainCapacity;
+	private final int protectedCapacity;
+
+	//Each segment is kept in LRU order by removing and re-inserting an entry whenever it is used,
+	//so the eldest entry of each is the least recently used
+	private final LinkedHashMap<K, V> window = new LinkedHashMap<>();
+	private final LinkedHashMap<K, V> probation = new LinkedHashMap<>();
+	private final LinkedHashMap<K, V> protectedSegment = new LinkedHashMap<>();
+
+	private final FrequencySketch sketch;
+	private final EvictionListener<K, V> listener;
+
+	private long evictions;
+
+	/**
+	 * Create an empty cache
+	 * @param capacity the most entries to hold at once, or 0 to hold none
+	 * @param listener notified of each eviction, or null
+	 * @throws IllegalArgumentException if the capacity is negative
+	 */
+	public TinyLfuCache(int capacity, EvictionListener<K, V> listener) {
+		if (capacity < 0) throw new IllegalArgumentException("Cache capacity may not be negative");
+		this.capacity = capacity;
+		this.listener = listener;
+
+		//The window is 1% of the cache, and 80% of the main region is protected
+		windowCapacity = capacity == 0 ? 0 : Math.max(1, capacity / 100);
+		mainCapacity = capacity - windowCapacity;
+		protectedCapacity = mainCapacity * 4 / 5;
+
+		sketch = new FrequencySketch(capacity);
+	}
+
+	/**
+	 * Look up a key, counting the request toward its frequency and marking its entry as recently used
+	 * @param key the key
+	 * @return the key's value, or null if it is not cached
+	 */
+	public V get(K key) {
+		sketch.increment(key);
+
+		V value = window.remove(key);
+		if (value != null) {
+			window.put(key, value);
+			return value;
+		}
+
+		value = protectedSegment.remove(key);
+		if (value != null) {
+			protectedSegment.put(key, value);
+			return value;
+		}
+
+		//A second request promotes a probation entry, demoting the least recently used protected entry if needed
+		value = probation.remove(key);
+		if (value != null) {
+			protectedSegment.put(key, value);
+			if (protectedSegment.size() > protectedCapacity) {
+				Map.Entry<K, V> demoted = eldest(protectedSegment);
+				protectedSegment.remove(demoted.getKey());
+				probation.put(demoted.getKey(), demoted.getValue());
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Add or replace an entry. A new entry enters the window, which may push another entry out to compete for
+	 * a place in the main region
+	 * @param key the key
+	 * @param value the value, which may not be null
+	 * @throws NullPointerException if the value is null
+	 */
+	public void put(K key, V value) {
+		if (value == null) throw new NullPointerException();
+
+		//Replace an existing entry where it stands
+		if (replace(window, key, value) || replace(protectedSegment, key, value) || replace(probation, key, value)) return;
+		if (capacity == 0) return;
+
+		window.put(key, value);
+		if (window.size() > windowCapacity) {
+			Map.Entry<K, V> candidate = eldest(window);
+			window.remove(candidate.getKey());
+			admit(candidate.getKey(), candidate.getValue());
+		}
+	}
+
+	/**
+	 * Replace the value of a key if a segment holds it, marking it as recently used
+	 * @param segment the segment to check
+	 * @param key the key
+	 * @param value the new value
+	 * @return true if the segment held the key
+	 */
+	private boolean replace(LinkedHashMap<K, V> segment, K key, V value) {
+		if (segment.remove(key) == null) return false;
+		segment.put(key, value);
+		return true;
+	}
+
+	/**
+	 * Give an entry leaving the window a place in the main region, if it is used more often than the entry
+	 * it would replace. Whichever of the two loses is evicted
+	 * @param key the candidate's key
+	 * @param value the candidate's value
+	 */
+	private void admit(K key, V value) {
+		if (probation.size() + protectedSegment.size() < mainCapacity) {
+			probation.put(key, value);
+			return;
+		}
+		if (mainCapacity == 0) {
+			evict(key, value);
+			return;
+		}
+
+		LinkedHashMap<K, V> victimSegment = probation.isEmpty() ? protectedSegment : probation;
+		Map.Entry<K, V> victim = eldest(victimSegment);
+
+		if (sketch.frequency(key) > sketch.frequency(victim.getKey())) {
+			victimSegment.remove(victim.getKey());
+			evict(victim.getKey(), victim.getValue());
+			probation.put(key, value);
+		}
+		else {
+			evict(key, value);
+		}
+	}
+
+	/**
+	 * Count an eviction and report it to the listener
+	 * @param key the evicted key
+	 * @param value the evicted value
+	 */
+	private void evict(K key, V value) {
+		evictions++;
+		if (listener != null) listener.evicted(key, value);
+	}
+
+	/**
+	 * Get the least recently used entry of a non-empty segment
+	 * @param segment the segment
+	 * @return its eldest entry
+	 */
+	private static <K, V> Map.Entry<K, V> eldest(LinkedHashMap<K, V> segment) {
+		Iterator<Map.Entry<K, V>> entries = segment.entrySet().iterator();
+		return entries.next();
+	}
+
+	/**
+	 * Remove a key without counting it as an eviction
+	 * @param key the key
+	 * @return the key's value, or null if it was not cached
+	 */
+	public V remove(K key) {
+		V value = window.remove(key);
+		if (value == null) value = probation.remove(key);
+		if (value == null) value = protectedSegment.remove(key);
+		return value;
+	}
+
+	/**
+	 * Look up a key without counting a request or changing its recency
+	 * @param key the key
+	 * @return the key's value, or null if it is not cached
+	 */
+	public V peek(K key) {
+		V value = window.get(key);
+		if (value == null) value = probation.get(key);
+		if (value == null) value = protectedSegment.get(key);
+		return value;
+	}
+
+	/**
+	 * Check whether a key is cached, without counting a request or changing its recency
+	 * @param key the key
+	 * @return true if the key is cached
+	 */
+	public boolean containsKey(K key) {
+		return window.containsKey(key) || probation.containsKey(key) || protectedSegment.containsKey(key);
+	}
+
+	/**
+	 * Get every cached key
+	 * @return a new list of the cached keys
+	 */
+	public ArrayList<K> keys() {
+		ArrayList<K> keys = new ArrayList<>(size());
+		keys.addAll(window.keySet());
+		keys.addAll(probation.keySet());
+		keys.addAll(protectedSegment.keySet());
+		return keys;
+	}
+
+	/**
+	 * Remove every entry. The frequency history is kept
+	 */
+	public void clear() {
+		window.clear();
+		probation.clear();
+		protectedSegment.clear();
+	}
+
+	/**
+	 * Get the number of cached entries
+	 * @return the number of entries
+	 */
+	public int size() {
+		return window.size() + probation.size() + protectedSegment.size();
+	}
+
+	/**
+	 * Get the most entries the cache holds at once
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of entries evicted to make room for others
+	 * @return the eviction count
+	 */
+	public long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * A count-min sketch of recent request frequencies, with 4-bit counters packed sixteen to a long.
+	 * Each key is counted in four rows, and its estimate is the smallest of its four counters, which can only
+	 * overstate its true count. Once ten times the cache's capacity has been counted, every counter is halved,
+	 * so that the sketch follows changes in popularity
+	 */
+	static final class FrequencySketch {
+
+		//Multipliers giving each of the four rows an independent hash of the key
+		private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+		//Clears the bit each counter receives from its neighbor when the table is halved
+		private static final long HALF_MASK = 0x7777777777777777L;
+
+		private final long[] table;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		/**
+		 * Create an empty sketch
+		 * @param capacity the capacity of the cache it serves
+		 */
+		FrequencySketch(int capacity) {
+			int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+			table = new long[size];
+			mask = size - 1;
+			sampleSize = 10 * Math.max(16, capacity);
+		}
+
+		/**
+		 * Estimate how often a key has been requested recently
+		 * @param key the key
+		 * @return the estimate, from 0 to 15
+		 */
+		int frequency(Object key) {
+			int hash = spread(key.hashCode());
+			int frequency = 15;
+			for (int row = 0; row < 4; row++) {
+				long count = (table[indexOf(hash, row)] >>> offsetOf(hash, row)) & 0xF;
+				frequency = Math.min(frequency, (int) count);
+			}
+			return frequency;
+		}
+
+		/**
+		 * Count a request for a key
+		 * @param key the key
+		 */
+		void increment(Object key) {
+			int hash = spread(key.hashCode());
+			boolean added = false;
+			for (int row = 0; row < 4; row++) {
+				int index = indexOf(hash, row);
+				int offset = offsetOf(hash, row);
+				if (((table[index] >>> offset) & 0xF) < 15) {
+					table[index] += 1L << offset;
+					added = true;
+				}
+			}
+
+			if (added && ++additions == sampleSize) {
+				for (int i = 0; i < table.length; i++) {
+					table[i] = (table[i] >>> 1) & HALF_MASK;
+				}
+				additions /= 2;
+			}
+		}
+
+		/**
+		 * Get the table slot holding a key's counter for a row
+		 * @param hash the key's spread hash
+		 * @param row the row
+		 * @return the index into the table
+		 */
+		private int indexOf(int hash, int row) {
+			long h = (hash + SEEDS[row]) * SEEDS[row];
+			h += h >>> 32;
+			return (int) h & mask;
+		}
+
+		/**
+		 * Get the bit offset of a key's counter for a row within its table slot. Row r uses counters 4r to 4r + 3
+		 * of the slot, picking one of the four with two bits of the hash
+		 * @param hash the key's spread hash
+		 * @param row the row
+		 * @return the bit offset of the counter
+		 */
+		private static int offsetOf(int hash, int row) {
+			return ((row << 2) + ((hash >>> (row << 3)) & 3)) << 2;
+		}
+
+		/**
+		 * Mix the bits of a hash code so that similar keys land in different slots
+		 * @param hashCode the key's hash code
+		 * @return the mixed hash
+		 */
+		private static int spread(int hashCode) {
+			int h = hashCode * 0x9e3779b9;
+			return h ^ (h >>> 16);
+		}
+	}
+}
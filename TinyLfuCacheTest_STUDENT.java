@@ -0,0 +1,74 @@
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TinyLfuCacheTest_STUDENT {
+	TinyLfuCache<Integer, String> cache;
+	ArrayList<Integer> evicted;
+
+	@Before
+	public void setUp() throws Exception {
+		evicted = new ArrayList<>();
+		cache = new TinyLfuCache<>(100, (key, value) -> evicted.add(key));
+	}
+
+	@Test
+	public void testGetAndPut() {
+		assertNull(cache.get(1));
+		cache.put(1, "one");
+		cache.put(2, "two");
+		assertEquals("one", cache.get(1));
+		assertEquals("two", cache.peek(2));
+
+		cache.put(1, "uno");
+		assertEquals("uno", cache.get(1));
+		assertEquals(2, cache.size());
+
+		assertEquals("two", cache.remove(2));
+		assertFalse(cache.containsKey(2));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testSizeIsBounded() {
+		for (int i = 0; i < 1000; i++) {
+			cache.put(i, "value " + i);
+			assertTrue(cache.size() <= 100);
+		}
+		assertEquals(100, cache.size());
+		assertEquals(900, cache.getEvictionCount());
+		assertEquals(900, evicted.size());
+	}
+
+	@Test
+	public void testFrequentEntriesSurviveScan() {
+		//Make keys 0 through 49 popular
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 50; i++) {
+				if (cache.get(i) == null) cache.put(i, "hot " + i);
+			}
+		}
+
+		//A long scan of keys requested only once would flush an LRU cache
+		for (int i = 1000; i < 5000; i++) {
+			if (cache.get(i) == null) cache.put(i, "cold " + i);
+		}
+
+		int survivors = 0;
+		for (int i = 0; i < 50; i++) {
+			if (cache.containsKey(i)) survivors++;
+		}
+		assertTrue("only " + survivors + " popular entries survived", survivors >= 45);
+	}
+
+	@Test
+	public void testZeroCapacityHoldsNothing() {
+		TinyLfuCache<Integer, String> empty = new TinyLfuCache<>(0, null);
+		empty.put(1, "one");
+		assertNull(empty.get(1));
+		assertEquals(0, empty.size());
+	}
+}
@@ -14,6 +14,13 @@ public class Town implements Comparable<Town> {
 	private ArrayList<Town> adjacentTowns;
 	private Town lastTown;
 	
+	//Geographic position in degrees. NaN when the Town's location is unknown
+	private double latitude = Double.NaN;
+	private double longitude = Double.NaN;
+	
+	//Mean radius of the Earth, in miles
+	static final double EARTH_RADIUS_MILES = 3958.8;
+	
 	/**
 	 * Create a new Town with just a name
 	 * @param name the Town's name
@@ -22,18 +29,36 @@ public class Town implements Comparable<Town> {
 		this.name = name;
 	}
 	
+	/**
+	 * Create a new Town with a name and a geographic position
+	 * @param name the Town's name
+	 * @param latitude the Town's latitude in degrees, from -90 to 90
+	 * @param longitude the Town's longitude in degrees, from -180 to 180
+	 * @throws IllegalArgumentException if the latitude or longitude is out of range
+	 */
+	public Town(String name, double latitude, double longitude) {
+		if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+			throw new IllegalArgumentException("Coordinates out of range: " + latitude + ", " + longitude);
+		}
+		this.name = name;
+		this.latitude = latitude;
+		this.longitude = longitude;
+	}
+	
 	/**
 	 * Copy an existing Town object
 	 * @param templateTown the Town to be copied
 	 */
 	public Town (Town templateTown) {
-		//Deep copy the passed Town's name
-		String name = new String (templateTown.getName());
-		this.name = name;
+		//Strings are immutable, so the copy can share the passed Town's name
+		this.name = templateTown.getName();
 		
 		//Deep copy the passed Town's adjacent Towns list
 		ArrayList<Town> templateTownAdjacents = templateTown.getAdjacentTowns();
 		this.adjacentTowns = templateTownAdjacents;
+		
+		this.latitude = templateTown.latitude;
+		this.longitude = templateTown.longitude;
 	}
 	
 	/**
@@ -72,7 +97,7 @@ public class Town implements Comparable<Town> {
 		if (!(obj instanceof Town)) return false;
 		
 		//If passed Object is a Town with a name matching this Town's name, return true
-		else if (this.toString().equals((obj.toString()))) return true;
+		else if (this == obj || this.name.equals(((Town) obj).name)) return true;
 		
 		//Otherwise, return false
 		else return false;
@@ -94,6 +119,55 @@ public class Town implements Comparable<Town> {
 		this.name = name;
 	}
 
+	/**
+	 * Get this Town's latitude
+	 * @return this Town's latitude in degrees, or NaN if its position is unknown
+	 */
+	public double getLatitude() {
+		return latitude;
+	}
+
+	/**
+	 * Get this Town's longitude
+	 * @return this Town's longitude in degrees, or NaN if its position is unknown
+	 */
+	public double getLongitude() {
+		return longitude;
+	}
+
+	/**
+	 * Check whether this Town's geographic position is known
+	 * @return true if this Town has a latitude and longitude, and false otherwise
+	 */
+	public boolean hasCoordinates() {
+		return !Double.isNaN(latitude);
+	}
+
+	/**
+	 * Find the great-circle distance from this Town to another, which no road between them can be shorter than
+	 * @param other the other Town
+	 * @return the distance in miles, or NaN if either Town's position is unknown
+	 */
+	public double greatCircleMiles(Town other) {
+		return greatCircleMiles(Math.toRadians(latitude), Math.toRadians(longitude),
+				Math.toRadians(other.latitude), Math.toRadians(other.longitude));
+	}
+
+	/**
+	 * Find the great-circle distance between two points with the haversine formula
+	 * @param lat1 the first point's latitude in radians
+	 * @param lon1 the first point's longitude in radians
+	 * @param lat2 the second point's latitude in radians
+	 * @param lon2 the second point's longitude in radians
+	 * @return the distance in miles
+	 */
+	static double greatCircleMiles(double lat1, double lon1, double lat2, double lon2) {
+		double sinLat = Math.sin((lat2 - lat1) / 2);
+		double sinLon = Math.sin((lon2 - lon1) / 2);
+		double a = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+		return 2 * EARTH_RADIUS_MILES * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
 	/**
 	 * Get this Town's list of adjacent Towns
 	 * @return this Town's list of adjacent Towns
@@ -103,7 +177,8 @@ public class Town implements Comparable<Town> {
 	}
 
 	/**
-	 * Get the Town prior to this one in a spanning tree
+	 * Get the Town prior to this one in a spanning tree. TownGraph's searches keep their predecessors
+	 * in a ShortestPathTree and do not set this field
 	 * @return the reference to the Town prior to this one in a spanning tree
 	 */
 	public Town getLastTown() {
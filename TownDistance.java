@@ -0,0 +1,47 @@
+/**
+ * A Town paired with its distance from some other Town, as returned by range and nearest-Town queries
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public class TownDistance {
+
+	private final Town town;
+	private final int distance;
+
+	/**
+	 * Create a pairing of a Town and a distance
+	 * @param town the Town
+	 * @param distance the distance to the Town
+	 */
+	public TownDistance(Town town, int distance) {
+		this.town = town;
+		this.distance = distance;
+	}
+
+	/**
+	 * Get the Town
+	 * @return the Town
+	 */
+	public Town getTown() {
+		return town;
+	}
+
+	/**
+	 * Get the distance to the Town
+	 * @return the distance
+	 */
+	public int getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Generate a String representation of this pairing
+	 * @return the Town's name followed by its distance
+	 */
+	@Override
+	public String toString() {
+		return town + " " + distance;
+	}
+}
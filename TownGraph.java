@@ -1,4 +1,7 @@
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A class for creating a graph of towns and roads, including mileage for the road lengths
@@ -8,22 +11,53 @@ import java.util.*;
  */
 public class TownGraph implements GraphInterface<Town, Road> {
 
-	ArrayList<Town> towns;
-	ArrayList<Road> roads;
+	//Name-keyed index of every Town in the graph, kept in insertion order
+	LinkedHashMap<String, Town> towns;
 	
-	Town[] townArray;
-	int[][] edgeArray;
+	//Adjacency maps: each Town maps its neighboring Towns to the Road joining them.
+	//Roads are undirected, so every Road is recorded under both of its endpoints
+	HashMap<Town, LinkedHashMap<Town, Road>> adjacency;
 	
-	//Distance[i] will hold the shortest distance to townArray[i] 
-	//after calling Dijkstra's Algorithm
-	int[] distance;
+	//The names of the graph's Roads, so Roads with the same name share one String
+	final RoadNames roadNames = new RoadNames();
+	
+	//Number of distinct Roads in the graph
+	int roadCount;
+	
+	//Incremented by every change to the graph's Towns or Roads, or to how its snapshots number them
+	long version;
+	
+	//Compact snapshot used by the searches. Rebuilt lazily once the version moves past it
+	private CompactGraph snapshot;
+	
+	//Contraction hierarchy built by contract(). Only used while it matches the current snapshot
+	private volatile ContractionHierarchy hierarchy;
+	
+	//Landmark index built by prepareLandmarks(). Only used while it matches the current snapshot
+	private volatile LandmarkIndex landmarks;
+	
+	//The tree computed by the most recent call to dijkstraShortestPath, read by getDistance.
+	//Searches never share any other state, so concurrent queries should use shortestPathTree instead
+	private volatile ShortestPathTree lastTree;
+	
+	//How many single-source trees are kept by default, enough for every hub of a typical network
+	static final int DEFAULT_TREE_CACHE_CAPACITY = 64;
+	
+	//Recently computed single-source trees, shared by shortestPathTree and Dijkstra routing
+	private volatile ShortestPathTreeCache treeCache = new ShortestPathTreeCache(DEFAULT_TREE_CACHE_CAPACITY);
+	
+	//The kind of priority queue the searches run on
+	private volatile QueueStrategy queueStrategy = QueueStrategy.BINARY_HEAP;
+	
+	//The order snapshots number the Towns in
+	private VertexOrder vertexOrder = VertexOrder.INSERTION;
 	
 	/**
 	 * Default constructor. Creates an empty graph with no content
 	 */
 	public TownGraph() {
-		towns = new ArrayList<>();
-		roads = new ArrayList<>();
+		towns = new LinkedHashMap<>();
+		adjacency = new HashMap<>();
 	}
 	
 	/**
@@ -38,12 +72,11 @@ public class TownGraph implements GraphInterface<Town, Road> {
 		//If either argument Town is null, return null
 		if (sourceVertex == null || destinationVertex == null) return null;
 		
-		//Iterate through the list of Roads. If a road is found that matches the input, it is returned
-		//Otherwise, it returns false
-		for (Road road : roads) {
-			if (road.equals(new Road(sourceVertex, destinationVertex, ""))) return road;
-		}
-		return null;
+		//Look up the source's adjacency map. The Road is stored under the destination if it exists
+		LinkedHashMap<Town, Road> neighbors = adjacency.get(sourceVertex);
+		if (neighbors == null) return null;
+		
+		return neighbors.get(destinationVertex);
 	}
 
 	/**
@@ -83,11 +116,17 @@ public class TownGraph implements GraphInterface<Town, Road> {
 		if (this.containsEdge(sourceVertex, destinationVertex)) throw new IllegalArgumentException(
 				"The indicated road " + description + " already exists.");
 		
-		//Otherwise, create a new Road object from the argument information
-		Road toAdd = new Road(sourceVertex, destinationVertex, Math.abs(weight), description);
+		//Otherwise, create a new Road object from the argument information. It joins the graph's own
+		//instances of the Towns, so their names are only held once
+		Town source = towns.get(sourceVertex.getName());
+		Town destination = towns.get(destinationVertex.getName());
+		Road toAdd = new Road(source, destination, Math.abs(weight), roadNames.acquire(description));
 		
-		//Add the Road to the graph
-		roads.add(toAdd);
+		//Add the Road to the graph under both of its endpoints
+		adjacency.get(source).put(destination, toAdd);
+		adjacency.get(destination).put(source, toAdd);
+		roadCount++;
+		version++;
 		
 		//Return the added Road
 		return toAdd;
@@ -110,9 +149,11 @@ public class TownGraph implements GraphInterface<Town, Road> {
 		//If the Town or an equivalent is already in the graph, return false
 		if (this.containsVertex(v)) return false;
 		
-		//Otherwise, add the Town
+		//Otherwise, add the Town along with an empty adjacency map
 		try {
-			towns.add(v);
+			towns.put(v.getName(), v);
+			adjacency.put(v, new LinkedHashMap<>());
+			version++;
 			return true;
 		}
 		catch (Exception e) {}
@@ -122,6 +163,58 @@ public class TownGraph implements GraphInterface<Town, Road> {
 		return false;
 	}
 	
+	/**
+	 * Add many Towns and Roads at once, as read from a road file. Roads refer to Towns and names by their
+	 * position in the given arrays. Towns already in the graph are kept as they are, and Roads that addEdge
+	 * would reject, between Towns already joined or from a Town to itself, are skipped.
+	 * The version only moves once, so the whole batch costs a single snapshot rebuild
+	 *
+	 * @param newTowns the Towns the Roads refer to
+	 * @param sources the number of each Road's source Town
+	 * @param destinations the number of each Road's destination Town
+	 * @param weights the length of each Road
+	 * @param descriptions the number of each Road's name
+	 * @param names the Road names
+	 * @param count the number of Roads
+	 * @return the number of Roads added
+	 */
+	int addAll(Town[] newTowns, int[] sources, int[] destinations, int[] weights, int[] descriptions,
+			String[] names, int count) {
+		
+		//Use the graph's own instance of any Town it already has
+		Town[] resolved = new Town[newTowns.length];
+		int added = 0;
+		for (int i = 0; i < newTowns.length; i++) {
+			Town existing = towns.get(newTowns[i].getName());
+			if (existing == null) {
+				existing = newTowns[i];
+				towns.put(existing.getName(), existing);
+				adjacency.put(existing, new LinkedHashMap<>());
+				added++;
+			}
+			resolved[i] = existing;
+		}
+		
+		int roadsAdded = 0;
+		for (int i = 0; i < count; i++) {
+			Town source = resolved[sources[i]];
+			Town destination = resolved[destinations[i]];
+			if (source == destination) continue;
+		
+			LinkedHashMap<Town, Road> neighbors = adjacency.get(source);
+			if (neighbors.containsKey(destination)) continue;
+		
+			Road toAdd = new Road(source, destination, Math.abs(weights[i]), roadNames.acquire(names[descriptions[i]]));
+			neighbors.put(destination, toAdd);
+			adjacency.get(destination).put(source, toAdd);
+			roadsAdded++;
+		}
+		
+		roadCount += roadsAdded;
+		if (added > 0 || roadsAdded > 0) version++;
+		return roadsAdded;
+	}
+	
 	/**
 	 * Retieve a particular Town from this graph
 	 * @param v the Town to be searched for
@@ -129,12 +222,10 @@ public class TownGraph implements GraphInterface<Town, Road> {
 	 */
 	public Town getVertex(Town v) {
 		
-		for (Town town : towns) {
-			if (town.equals(v)) return town;
-		}
-		
-		//If no match is found, return null
-		return null;
+		//Towns are equal by name, so the name index finds the graph's instance directly
+		//If no match is found, this is null
+		if (v == null) return null;
+		return towns.get(v.getName());
 	}
 
 	/**
@@ -148,13 +239,8 @@ public class TownGraph implements GraphInterface<Town, Road> {
 	@Override
 	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
 		
-		//Iterate through the roads list. If a Road is found matching the arguments, return true
-		for (Road road : roads) {
-			if (road.equals(new Road(sourceVertex, destinationVertex, "name"))) return true;
-		}
-		
-		//Otherwise, return false
-		return false;
+		//A Road exists if the source's adjacency map holds an entry for the destination
+		return getEdge(sourceVertex, destinationVertex) != null;
 	}
 
 	/**
@@ -167,15 +253,8 @@ public class TownGraph implements GraphInterface<Town, Road> {
 	@Override
 	public boolean containsVertex(Town v) {
 		
-		//Iterate through the Towns list. If a match is found, return true
-		if (towns.size() > 0) {
-			for (Town town : towns) {
-				if (town.equals(v)) return true;
-			}
-		}
-		
-		//Return false if a match is not found
-		return false;
+		//Check the name index for a matching Town
+		return getVertex(v) != null;
 	}
 
 	/**
@@ -188,18 +267,10 @@ public class TownGraph implements GraphInterface<Town, Road> {
 	 */
 	@Override
 	public Set<Road> edgesOf(Town vertex) {
-		Set<Road> edgeSet = new HashSet<>();
-		
 		if (!this.containsVertex(vertex)) return null;
 		
-		//Iterate through the Roads set.
-		//Any Road found that contains the town is an adjacent Road,
-		//And is added to the return Set
-		for (Road road : roads) {
-			if (road.contains(vertex)) edgeSet.add(road);
-		}
-		
-		return edgeSet;
+		//The Town's adjacency map holds exactly its adjacent Roads
+		return new HashSet<>(adjacency.get(vertex).values());
 	}
 
 	/**
@@ -230,7 +301,7 @@ public class TownGraph implements GraphInterface<Town, Road> {
 		
 		//If all the above checks are good, remove the indicated Road
 		Road toRemove = new Road(sourceVertex, destinationVertex, weight, description);
-		roads.remove(toRemove);
+		unlinkEdge(sourceVertex, destinationVertex);
 		
 		//Return the removed Road
 		return toRemove;
@@ -258,12 +329,26 @@ public class TownGraph implements GraphInterface<Town, Road> {
 
 		//If all the above checks are good, remove the indicated Road
 		Road toRemove = new Road(sourceVertex, destinationVertex, description);
-		roads.remove(toRemove);
+		unlinkEdge(sourceVertex, destinationVertex);
 		
 		//Return the removed Road
 		return toRemove;
 	}
 	
+	/**
+	 * Remove the Road joining two Towns from both of their adjacency maps
+	 * 
+	 * @param sourceVertex one end of the Road
+	 * @param destinationVertex the other end of the Road
+	 */
+	private void unlinkEdge(Town sourceVertex, Town destinationVertex) {
+		Road removed = adjacency.get(sourceVertex).remove(destinationVertex);
+		adjacency.get(destinationVertex).remove(sourceVertex);
+		roadNames.release(removed.getName());
+		roadCount--;
+		version++;
+	}
+	
 	/**
 	 * Remove a specific Road from the graph. Will remove both weighted and unweighted Roads
 	 * 
@@ -301,16 +386,17 @@ public class TownGraph implements GraphInterface<Town, Road> {
 		if (!this.containsVertex(v)) return false;
 		
 		//Otherwise, proceed with removing the Town
-		//Create a set of the Roads connected to the Town
-		Set<Road> roadSet = edgesOf(v);
-		
-		//Remove the Town from the Towns set
-		towns.remove(v);
-		
-		//Iterate through the Road set to remove each Road from the graph
-		for (Road road : roadSet) {
-			roads.remove(road);
+		//Remove the Town from the name index and detach its adjacency map
+		towns.remove(v.getName());
+		LinkedHashMap<Town, Road> neighbors = adjacency.remove(v);
+		
+		//Remove each connected Road from the neighboring Towns' adjacency maps
+		for (Map.Entry<Town, Road> entry : neighbors.entrySet()) {
+			adjacency.get(entry.getKey()).remove(v);
+			roadNames.release(entry.getValue().getName());
 		}
+		roadCount -= neighbors.size();
+		version++;
 		
 		return true;
 	}
@@ -326,134 +412,545 @@ public class TownGraph implements GraphInterface<Town, Road> {
 	@Override
 	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex){		
 		
-		//Call DSP algorithm to generate the tree
-		this.dijkstraShortestPath(sourceVertex);
-		
-		//Start from destination vertex and work backward to build the path
-		ArrayList<Town> backtrace = new ArrayList<>();
-		
-		//Replace the argument destinationVertex with the actual one from the graph
-		//and add the destination to the graph
-		Town dV = getVertex(destinationVertex);
-		backtrace.add(dV);
+		Route route = route(sourceVertex, destinationVertex);
 		
-		//Retrieve the graph's destination vertex matching the argument destination vertex
-		Town previous = dV.getLastTown();
+		//If the destination cannot be reached, there is no path to describe
+		if (route == null) return new ArrayList<>();
 		
-		while (previous != null) {
-			backtrace.add(previous);
-			previous = previous.getLastTown();
-		}
-		
-		//Create a path and add message strings
-		ArrayList<String> path = new ArrayList<>();
-		for (int i = 0; i < backtrace.size() - 1; i++) {
-			
-			//For each vertex, add a String with the following format:
-			// "[Source Town name] via [Road name] to [Destination Town name] [weight]"
-			path.add(backtrace.get(i).getLastTown().toString() + " via " + getEdge(backtrace.get(i), backtrace.get(i).getLastTown())
-					+ " to " + backtrace.get(i).toString() + " " 
-					+ getEdge(backtrace.get(i), backtrace.get(i).getLastTown()).getWeight());
-
-		}
-		
-		//Reverse path, since backtrace searched Towns by reverse order
-		Collections.reverse(path);
-		
-		//When the source is reached, return the completed path
-		return path;
+		return route.toStrings();
 	}
 
 	/**
-	 * Use Dijkstra's Shortest Path algorithm to determine the shortest paths from a given source Town to any other Town in the graph
+	 * Use Dijkstra's Shortest Path algorithm to determine the shortest paths from a given source Town to any other Town in the graph.
+	 * The result is kept for getDistance
 	 * @param sourceVertex the starting Town for the algorithm
 	 */
 	@Override
 	public void dijkstraShortestPath(Town sourceVertex) {
-		//Start by generating a new adjacency matrix
-		generateMatrix();
-		
-		//Generate lists to hold added and unadded Towns
-		ArrayList<Town> added = new ArrayList<>();
-		ArrayList<Town> unadded = new ArrayList<>(towns);
-		distance = new int[towns.size()];
-
-		for (int i = 0; i < towns.size(); i++) {
-			distance[i] = Integer.MAX_VALUE; //Instantiate each element with maximum value to mark unvisited vertices
-		}
-		
-		//Create counter for path length
-		for (Town town : towns) {
-			town.setLastTown(null);
+		lastTree = shortestPathTree(sourceVertex);
+	}
+	
+	/**
+	 * Use Dijkstra's Shortest Path algorithm to compute the shortest paths from a given source Town to every other Town.
+	 * The returned tree holds all of the search's state, so any number of threads may call this at once.
+	 * Trees are cached per source until the graph changes, and concurrent calls for the same source share one search
+	 * 
+	 * @param sourceVertex the starting Town for the algorithm
+	 * @return the shortest path tree rooted at the source
+	 * @throws IllegalArgumentException if the source is not in the graph
+	 */
+	public ShortestPathTree shortestPathTree(Town sourceVertex) {
+		CompactGraph g = getSnapshot();
+		return treeCache.get(g, indexOf(g, sourceVertex), queueStrategy);
+	}
+	
+	/**
+	 * Compute the shortest paths from a source Town out to a radius. The tree cache is neither read nor filled,
+	 * so one-off searches, such as those made while the graph is being edited, cannot push out trees in use
+	 * 
+	 * @param sourceVertex the starting Town
+	 * @param radius the greatest distance the tree must be exact for
+	 * @return a tree with the final distance of every Town within the radius. Farther Towns are unreachable
+	 * in the tree or have a distance at least as long as their real one
+	 * @throws IllegalArgumentException if the source is not in the graph
+	 */
+	ShortestPathTree shortestPathTreeWithin(Town sourceVertex, int radius) {
+		CompactGraph g = getSnapshot();
+		SearchWorkspace workspace = workspace();
+		workspace.dijkstraWithin(g, indexOf(g, sourceVertex), radius);
+		return workspace.toTree();
+	}
+	
+	/**
+	 * Get the cache of single-source shortest path trees, for its hit and miss counts
+	 * @return the tree cache
+	 */
+	public ShortestPathTreeCache getTreeCache() {
+		return treeCache;
+	}
+	
+	/**
+	 * Replace the cache of single-source shortest path trees with an empty one of a different size
+	 * @param capacity the most trees to keep, or 0 to keep none
+	 * @throws IllegalArgumentException if the capacity is negative
+	 */
+	public void setTreeCacheCapacity(int capacity) {
+		treeCache = new ShortestPathTreeCache(capacity);
+	}
+	
+	/**
+	 * Find the shortest route between two Towns with Dijkstra's algorithm. The search stops once the destination
+	 * is settled, unless the source's shortest path tree is already cached, in which case the route is read from it.
+	 * Any number of threads may call this at once
+	 * 
+	 * @param sourceVertex the starting Town
+	 * @param destinationVertex the destination Town
+	 * @return the shortest route, or null if the destination cannot be reached
+	 * @throws IllegalArgumentException if either Town is not in the graph
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex) {
+		return route(sourceVertex, destinationVertex, RoutingMode.DIJKSTRA);
+	}
+	
+	/**
+	 * Find the shortest route between two Towns using a particular search strategy
+	 * 
+	 * @param sourceVertex the starting Town
+	 * @param destinationVertex the destination Town
+	 * @param mode the search strategy to use
+	 * @return the shortest route, or null if the destination cannot be reached
+	 * @throws IllegalArgumentException if either Town is not in the graph
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex, RoutingMode mode) {
+		CompactGraph g = getSnapshot();
+		return route(g, indexOf(g, sourceVertex), indexOf(g, destinationVertex), mode);
+	}
+	
+	/**
+	 * Find the shortest route between two Towns given by handle, using a particular search strategy.
+	 * Handles resolved against the current snapshot are used without looking their Towns up by name
+	 * 
+	 * @param source the handle of the starting Town
+	 * @param destination the handle of the destination Town
+	 * @param mode the search strategy to use
+	 * @return the shortest route, or null if the destination cannot be reached
+	 * @throws IllegalArgumentException if either Town is no longer in the graph
+	 */
+	public Route route(TownHandle source, TownHandle destination, RoutingMode mode) {
+		CompactGraph g = getSnapshot();
+		return route(g, indexOf(g, source), indexOf(g, destination), mode);
+	}
+	
+	/**
+	 * Find the length of the shortest route between two Towns given by handle, using a particular search strategy.
+	 * With Dijkstra's algorithm no route is built: the length is read from the source's shortest path tree if it is
+	 * cached, and otherwise from a search that stops at the destination
+	 * 
+	 * @param source the handle of the starting Town
+	 * @param destination the handle of the destination Town
+	 * @param mode the search strategy to use
+	 * @return the length, or Integer.MAX_VALUE if the destination cannot be reached
+	 * @throws IllegalArgumentException if either Town is no longer in the graph
+	 */
+	public int distance(TownHandle source, TownHandle destination, RoutingMode mode) {
+		CompactGraph g = getSnapshot();
+		int s = indexOf(g, source);
+		int t = indexOf(g, destination);
+		
+		if (mode == RoutingMode.DIJKSTRA) {
+			ShortestPathTree tree = treeCache.peek(g, s);
+			if (tree != null) return tree.distanceOf(t);
+			
+			SearchWorkspace workspace = workspace();
+			workspace.dijkstra(g, s, t);
+			return workspace.distanceOf(t);
 		}
 		
-		//Find sourceVertex's index in the adjacency matrix
-		int sourceIndex = -1;
-		for (int i = 0; i < towns.size(); i++) {
-			if (sourceVertex.equals(towns.get(i))) {
-				sourceIndex = i;
+		Route route = route(g, s, t, mode);
+		return route == null ? Integer.MAX_VALUE : route.getDistance();
+	}
+	
+	/**
+	 * Find the shortest route between two numbered Towns of a snapshot
+	 * 
+	 * @param g the snapshot
+	 * @param source the number of the starting Town
+	 * @param target the number of the destination Town
+	 * @param mode the search strategy to use
+	 * @return the shortest route, or null if the destination cannot be reached
+	 */
+	private Route route(CompactGraph g, int source, int target, RoutingMode mode) {
+		switch (mode) {
+		case CONTRACTION_HIERARCHY:
+			//A hierarchy built from an older version of the graph cannot be trusted
+			ContractionHierarchy ch = hierarchy;
+			if (ch != null && ch.graph == g) {
+				return ch.route(source, target, workspace(), reverseWorkspace());
 			}
-		}
-			
-		//Set starting index's distance to zero in the distance array
-		distance[sourceIndex] = 0;
-		
-		for (int i = 0; i < townArray.length-1; i++) {
-			
-			//Find shortest edge
-			int minIndex = getNextMin(distance, unadded);
-			added.add(townArray[minIndex]);
-			unadded.remove(townArray[minIndex]);
-			
-			//Update distance array to reflect the added edge
-			//If the distance array's value is still equal to MAX_VALUE, it will be updated
-			//Otherwise, if this vertex's distance is less than the distance to the existing edge from source,
-			//it will be updated
-			// (note: this checks for existing edges before updating, so edges of 0 will not be overwritten)
-			for (int j = 0; j < townArray.length; j++) {
-				if (unadded.contains(townArray[j]) && edgeArray[minIndex][j] != Integer.MAX_VALUE) {
-					if (edgeArray[minIndex][j] != 0) {
-						if (distance[minIndex] + edgeArray[minIndex][j] < distance[j]) {
-							distance[j] = distance[minIndex] + edgeArray[minIndex][j];
-							
-							//Set the Town's predecessor
-							townArray[j].setLastTown(townArray[minIndex]);
-						}
-					}
-				}
+			return route(g, source, target, RoutingMode.BIDIRECTIONAL);
+		case BIDIRECTIONAL:
+			return SearchWorkspace.bidirectional(g, source, target, workspace(), reverseWorkspace());
+		case LANDMARKS:
+			LandmarkIndex index = landmarks;
+			if (index != null && index.graph == g) {
+				SearchWorkspace workspace = workspace();
+				workspace.aStar(g, source, target, index);
+				return workspace.routeTo(target);
+			}
+			return route(g, source, target, RoutingMode.ASTAR);
+		case ASTAR:
+			//Without both positions there is no bound to guide the search
+			if (g.hasCoordinates(source) && g.hasCoordinates(target)) {
+				SearchWorkspace workspace = workspace();
+				workspace.aStar(g, source, target, g::geoBound);
+				return workspace.routeTo(target);
 			}
+			return route(g, source, target, RoutingMode.DIJKSTRA);
+		default:
+			//A tree already cached for the source, such as a busy hub's, answers without a search
+			ShortestPathTree tree = treeCache.peek(g, source);
+			if (tree != null) return tree.routeTo(g.towns[target]);
 			
-		}//end while
-		
-	}//end dijkstraShortestPath
+			//Otherwise search only until the destination is settled, without filling the cache
+			SearchWorkspace workspace = workspace();
+			workspace.dijkstra(g, source, target);
+			return workspace.routeTo(target);
+		}
+	}
 	
+	/**
+	 * Get the calling thread's workspace, set up with this graph's kind of priority queue
+	 * @return the workspace
+	 */
+	private SearchWorkspace workspace() {
+		return SearchWorkspace.get().useQueue(queueStrategy);
+	}
 	
 	/**
-	 * Get the next minimum edge from the adjacency matrix.
-	 *
-	 * @param dist the distance array from the graph
-	 * @param unadded the list of Towns not yet added to the MST
+	 * Get the calling thread's second workspace, for the backward half of a bidirectional search,
+	 * set up with this graph's kind of priority queue
+	 * @return the second workspace
+	 */
+	private SearchWorkspace reverseWorkspace() {
+		return SearchWorkspace.getReverse().useQueue(queueStrategy);
+	}
+	
+	/**
+	 * Choose the kind of priority queue the searches run on. Cached shortest path trees are kept,
+	 * since every queue finds the same distances
+	 * @param strategy the kind of queue
+	 */
+	public void setQueueStrategy(QueueStrategy strategy) {
+		if (strategy == null) throw new NullPointerException();
+		queueStrategy = strategy;
+	}
+	
+	/**
+	 * Get the kind of priority queue the searches run on
+	 * @return the kind of queue
+	 */
+	public QueueStrategy getQueueStrategy() {
+		return queueStrategy;
+	}
+	
+	/**
+	 * Choose the order snapshots number the Towns in. Numbering neighboring Towns close together makes searches
+	 * touch less memory and packed snapshot files smaller. The order is applied whenever a snapshot is built,
+	 * including the one saved by saveSnapshot, and a graph loaded from that file keeps its Towns in the saved order.
+	 * Changing the order counts as a change to the graph, so the next search builds a new snapshot and any
+	 * contraction hierarchy, landmarks and cached trees built for the old numbering are dropped
+	 * @param order the order
+	 */
+	public synchronized void setVertexOrder(VertexOrder order) {
+		if (order == null) throw new NullPointerException();
+		if (order == vertexOrder) return;
+		vertexOrder = order;
+		version++;
+	}
+	
+	/**
+	 * Get the order snapshots number the Towns in
+	 * @return the order
+	 */
+	public synchronized VertexOrder getVertexOrder() {
+		return vertexOrder;
+	}
+	
+	/**
+	 * Find the k shortest loopless routes between two Towns, with Yen's algorithm. The routes are distinct,
+	 * and none visits a Town twice
 	 * 
-	 * @return the integer of the index of the next closest Town
+	 * @param sourceVertex the starting Town
+	 * @param destinationVertex the destination Town
+	 * @param k the number of routes wanted
+	 * @return up to k routes, shortest first. Fewer are returned if fewer exist, and none if the destination
+	 * cannot be reached
+	 * @throws IllegalArgumentException if either Town is not in the graph
 	 */
-	private int getNextMin(int[] dist, ArrayList<Town> unadded) {
-		if (unadded.isEmpty()) return -1; //Will throw NoSuchElementException if passed an empty unadded set
+	public ArrayList<Route> kShortestRoutes(Town sourceVertex, Town destinationVertex, int k) {
+		CompactGraph g = getSnapshot();
+		int source = indexOf(g, sourceVertex);
+		int target = indexOf(g, destinationVertex);
+		
+		//The graph is undirected, so the destination's tree gives every Town's distance to the destination.
+		//A tree already cached is used, but a new one is not stored, so it cannot push out the hubs' trees
+		SearchWorkspace workspace = workspace();
+		ShortestPathTree toTarget = treeCache.peek(g, target);
+		if (toTarget == null) {
+			workspace.dijkstra(g, target);
+			toTarget = workspace.toTree();
+		}
+		return KShortestPaths.find(g, source, target, k, toTarget, workspace);
+	}
+	
+	/**
+	 * Find the k shortest loopless paths between two Towns
+	 * 
+	 * @param sourceVertex the starting Town
+	 * @param destinationVertex the destination Town
+	 * @param k the number of paths wanted
+	 * @return up to k paths, shortest first, each described the same way as by shortestPath
+	 * @throws IllegalArgumentException if either Town is not in the graph
+	 */
+	public ArrayList<ArrayList<String>> kShortestPaths(Town sourceVertex, Town destinationVertex, int k) {
+		ArrayList<ArrayList<String>> paths = new ArrayList<>();
+		for (Route route : kShortestRoutes(sourceVertex, destinationVertex, k)) {
+			paths.add(route.toStrings());
+		}
+		return paths;
+	}
+	
+	/**
+	 * Find every Town within a given distance of a source, nearest first. The Towns are found lazily as the
+	 * iterator is advanced, and the search never expands past the radius, so its cost depends on how many Towns
+	 * lie within the radius rather than on the size of the graph
+	 * 
+	 * @param sourceVertex the Town to search outward from
+	 * @param radius the greatest distance to include
+	 * @return an iterator over the Towns within the radius and their distances, in ascending order of distance,
+	 * starting with the source itself at distance 0
+	 * @throws IllegalArgumentException if the source is not in the graph or the radius is negative
+	 */
+	public Iterator<TownDistance> townsWithin(Town sourceVertex, int radius) {
+		CompactGraph g = getSnapshot();
+		return new RangeIterator(g, indexOf(g, sourceVertex), radius);
+	}
+	
+	/**
+	 * Find the Towns closest to a source. The search stops as soon as it has settled k Towns beyond the source
+	 * 
+	 * @param sourceVertex the Town to search outward from
+	 * @param k the number of Towns to find
+	 * @return up to k of the closest Towns other than the source, with their distances, nearest first.
+	 * Fewer are returned if fewer can be reached
+	 * @throws IllegalArgumentException if the source is not in the graph or k is negative
+	 */
+	public ArrayList<TownDistance> nearestTowns(Town sourceVertex, int k) {
+		if (k < 0) throw new IllegalArgumentException("k may not be negative");
 		
-		int minDistance = Integer.MAX_VALUE;
-		int minIndex = -1;
+		Iterator<TownDistance> range = townsWithin(sourceVertex, Integer.MAX_VALUE);
+		ArrayList<TownDistance> nearest = new ArrayList<>(k);
 		
-		//Iterate through the sourceIndex's adjacent edges
-		//Find the shortest edge to a vertex that isn't in the adjacency matrix
-		for (int i = 0; i < dist.length; i++) {
-			if (dist[i] < minDistance && unadded.contains(townArray[i])) {
-					minDistance = dist[i];
-					minIndex = i;
-			}
+		//The first Town out of the search is the source itself
+		range.next();
+		while (nearest.size() < k && range.hasNext()) {
+			nearest.add(range.next());
+		}
+		return nearest;
+	}
+	
+	/**
+	 * Find the nearest of a set of facility Towns to every Town in the graph, with a single search
+	 * seeded from all of the facilities at once
+	 * 
+	 * @param facilities the facility Towns
+	 * @return each Town's nearest facility and the distance to it
+	 * @throws IllegalArgumentException if there are no facilities or a facility is not in the graph
+	 */
+	public FacilityLabels nearestFacilities(List<Town> facilities) {
+		return new FacilityLabels(getSnapshot(), facilities, workspace());
+	}
+	
+	/**
+	 * Build a contraction hierarchy for the current graph, used by RoutingMode.CONTRACTION_HIERARCHY.
+	 * This preprocessing is slow but makes each later query far faster. It must be repeated after the graph changes
+	 * 
+	 * @return the contraction hierarchy
+	 */
+	public ContractionHierarchy contract() {
+		ContractionHierarchy ch = ContractionHierarchy.build(getSnapshot());
+		hierarchy = ch;
+		return ch;
+	}
+	
+	/**
+	 * Choose landmarks for the current graph and compute their distances, used by RoutingMode.LANDMARKS.
+	 * Each landmark costs one search to prepare and one int of memory per Town. It must be repeated after the graph changes
+	 * 
+	 * @param count the number of landmarks
+	 * @return the landmark index
+	 */
+	public LandmarkIndex prepareLandmarks(int count) {
+		LandmarkIndex index = LandmarkIndex.build(getSnapshot(), count);
+		landmarks = index;
+		return index;
+	}
+	
+	/**
+	 * Save the graph, along with its contraction hierarchy and landmarks if they are current, to a binary snapshot file.
+	 * Loading the snapshot skips reading, checking and indexing a road file, and any preprocessing saved with it
+	 * 
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveSnapshot(File file) throws IOException {
+		GraphSnapshot.save(this, file, false);
+	}
+	
+	/**
+	 * Save the graph to a binary snapshot file as saveSnapshot(File) does, optionally with its Roads packed
+	 * into variable-length integers. A packed snapshot is smaller, and a MappedTownGraph over it searches
+	 * the packed Roads directly, so more of the graph fits in memory
+	 * 
+	 * @param file the file to write
+	 * @param packArcs true to pack the Roads
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveSnapshot(File file, boolean packArcs) throws IOException {
+		GraphSnapshot.save(this, file, packArcs);
+	}
+	
+	/**
+	 * Load a graph saved by saveSnapshot
+	 * 
+	 * @param file the snapshot file
+	 * @return the graph, with any contraction hierarchy and landmarks that were saved with it ready for use
+	 * @throws IOException if the file cannot be read, or is not a snapshot, or is damaged
+	 */
+	public static TownGraph loadSnapshot(File file) throws IOException {
+		return GraphSnapshot.load(file);
+	}
+	
+	/**
+	 * Get the contraction hierarchy if it was built from a given snapshot
+	 * 
+	 * @param g the snapshot
+	 * @return the hierarchy, or null if there is none for the snapshot
+	 */
+	ContractionHierarchy hierarchyFor(CompactGraph g) {
+		ContractionHierarchy ch = hierarchy;
+		return ch != null && ch.graph == g ? ch : null;
+	}
+	
+	/**
+	 * Get the landmark index if it was built from a given snapshot
+	 * 
+	 * @param g the snapshot
+	 * @return the index, or null if there is none for the snapshot
+	 */
+	LandmarkIndex landmarksFor(CompactGraph g) {
+		LandmarkIndex index = landmarks;
+		return index != null && index.graph == g ? index : null;
+	}
+	
+	/**
+	 * Install a snapshot and its preprocessing, as loaded from a snapshot file.
+	 * The snapshot must describe the graph's Towns and Roads as they are now
+	 * 
+	 * @param g the snapshot
+	 * @param ch the snapshot's contraction hierarchy, or null
+	 * @param index the snapshot's landmark index, or null
+	 */
+	synchronized void restore(CompactGraph g, ContractionHierarchy ch, LandmarkIndex index) {
+		version = g.version;
+		snapshot = g;
+		hierarchy = ch;
+		landmarks = index;
+	}
+	
+	/**
+	 * Compute the shortest distance between every pair of Towns, in parallel on the common ForkJoinPool
+	 * 
+	 * @return a table of distances, with rows and columns in the snapshot's Town order
+	 * @throws IllegalArgumentException if the graph has too many Towns for the table to fit in an array
+	 */
+	public DistanceTable allPairsDistances() {
+		return DistanceTable.allPairs(getSnapshot(), ForkJoinPool.commonPool(), null);
+	}
+	
+	/**
+	 * Compute the shortest distance from each of a list of source Towns to each of a list of target Towns.
+	 * If a current contraction hierarchy has been built, bucket-based many-to-many search over it answers the
+	 * whole table at once. Otherwise the sources' searches run in parallel, each stopping once every target is settled
+	 * 
+	 * @param sources the source Towns, one per row of the table
+	 * @param targets the target Towns, one per column of the table
+	 * @param pool the pool to run the searches on
+	 * @param listener receives progress reports from the worker threads, or null
+	 * @return a table of distances
+	 * @throws IllegalArgumentException if any Town is not in the graph, or the table would have too many
+	 * entries to fit in an array
+	 */
+	public DistanceTable distanceTable(List<Town> sources, List<Town> targets, ForkJoinPool pool,
+			DistanceTable.ProgressListener listener) {
+		CompactGraph g = getSnapshot();
+		int[] sourceIndexes = indexesOf(g, sources);
+		int[] targetIndexes = indexesOf(g, targets);
+		
+		ContractionHierarchy ch = hierarchy;
+		if (ch != null && ch.graph == g) {
+			DistanceTable table = DistanceTable.subset(ch, sourceIndexes, targetIndexes);
+			if (listener != null) listener.progress(sourceIndexes.length, sourceIndexes.length);
+			return table;
 		}
 		
-		//Return the index of the edge that was located
-		return minIndex;
+		return DistanceTable.subset(g, sourceIndexes, targetIndexes, pool, listener);
+	}
+	
+	/**
+	 * Find the numbers of a list of Towns in a snapshot
+	 * @param g the snapshot
+	 * @param list the Towns to look up
+	 * @return the Towns' numbers, in list order
+	 * @throws IllegalArgumentException if any Town is not in the snapshot
+	 */
+	private static int[] indexesOf(CompactGraph g, List<Town> list) {
+		int[] indexes = new int[list.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = indexOf(g, list.get(i));
+		}
+		return indexes;
+	}
+	
+	/**
+	 * Resolve a Town's name to a handle, so later queries can skip looking it up by name
+	 * @param name the Town's name
+	 * @return the handle, or null if no Town by that name is in the graph
+	 */
+	public TownHandle handleOf(String name) {
+		CompactGraph g = getSnapshot();
+		int v = g.indexOf(name);
+		return v == -1 ? null : new TownHandle(g, v);
+	}
+	
+	/**
+	 * Bring a handle up to date with the graph, so queries with it use its number directly again
+	 * @param handle the handle
+	 * @return the same handle if it is current, a new handle for the same Town if not,
+	 * or null if the Town is no longer in the graph
+	 */
+	public TownHandle refresh(TownHandle handle) {
+		CompactGraph g = getSnapshot();
+		if (handle.graph == g) return handle;
 		
+		int v = g.indexOf(handle.getName());
+		return v == -1 ? null : new TownHandle(g, v);
+	}
+	
+	/**
+	 * Find a handle's Town number in a snapshot
+	 * @param g the snapshot
+	 * @param handle the handle to look up
+	 * @return the Town's number
+	 * @throws IllegalArgumentException if the Town is not in the snapshot
+	 */
+	private static int indexOf(CompactGraph g, TownHandle handle) {
+		int v = handle.indexIn(g);
+		if (v == -1) throw new IllegalArgumentException("The indicated Town is not in the graph.");
+		return v;
+	}
+	
+	/**
+	 * Find a Town's number in a snapshot
+	 * @param g the snapshot
+	 * @param town the Town to look up
+	 * @return the Town's number
+	 * @throws IllegalArgumentException if the Town is not in the snapshot
+	 */
+	private static int indexOf(CompactGraph g, Town town) {
+		int v = g.indexOf(town);
+		if (v == -1) throw new IllegalArgumentException("The indicated Town is not in the graph.");
+		return v;
 	}
 
 	/**
@@ -464,8 +961,16 @@ public class TownGraph implements GraphInterface<Town, Road> {
 	@Override
 	public Set<Road> edgeSet() {
 		
-		//HashSet has a constructor that accepts any Collection object
-		return new HashSet<Road>(roads);
+		Set<Road> edgeSet = new HashSet<>(roadCount * 2);
+		
+		//Every Road appears under both endpoints, so only collect it from its source's map
+		for (Map.Entry<Town, LinkedHashMap<Town, Road>> entry : adjacency.entrySet()) {
+			for (Road road : entry.getValue().values()) {
+				if (road.getSource().equals(entry.getKey())) edgeSet.add(road);
+			}
+		}
+		
+		return edgeSet;
 	}
 
 	/**
@@ -477,66 +982,41 @@ public class TownGraph implements GraphInterface<Town, Road> {
 	public Set<Town> vertexSet() {
 		
 		//HashSet has a constructor that accepts any Collection object
-		return new HashSet<Town>(towns);
-	}
-	
-	/**
-	 * Generate an adjacency matrix of the current Towns and Edges to allow traversal of the graph.
-	 * The matrix consists of an X by X grid of integers, where X is the number of Towns in the graph.
-	 * A value of 0 in the graph indicates no edge, and any other value indicates an edge existing.
-	 * An unweighted graph will populate with 1's, and a weighted graph will populate with the weight
-	 * of the edges.
-	 */
-	private void generateMatrix() {
-		//Create an array of the Town objects and corresponding 2D array for the edges
-		townArray = towns.toArray(new Town[towns.size()]);
-		edgeArray = new int[townArray.length][townArray.length];
-		
-		for (Road road : roads) {
-			//Search the townArray to find the source vertex
-			int i = -1;
-			boolean found = false;
-			while (!found && i < townArray.length) {
-				i++;
-				if (road.getSource().equals(townArray[i])) {
-					found = true;
-				}
-			}
-			
-			//Once source is found, search the townArray again to find the destination vertex
-			int j = -1;
-			found = false;
-			while (!found && i < townArray.length) {
-				j++;
-				if (road.getDestination().equals(townArray[j])) {
-					found = true;
-				}
-			}
-			
-			//Once both source and destination are found, add the edge to the adjacency matrix
-			edgeArray[i][j] = road.getWeight();
-			edgeArray[j][i] = road.getWeight();
+		return new HashSet<Town>(towns.values());
+	}
+	
+	/**
+	 * Get a compact snapshot of the graph for searching. The snapshot is built once per graph version
+	 * and shared by every search until the graph is next changed.
+	 * 
+	 * @return a snapshot of the current graph
+	 */
+	public synchronized CompactGraph getSnapshot() {
+		if (snapshot == null || snapshot.version != version) {
+			snapshot = vertexOrder.apply(new CompactGraph(version, towns, adjacency));
 		}
-		return;
+		return snapshot;
+	}
+	
+	/**
+	 * Get the graph's version number, which changes every time a Town or Road is added or removed
+	 * @return the graph's version number
+	 */
+	public long getVersion() {
+		return version;
 	}
 	
 	/**
 	 * After running Djikstra's algorithm, find the distance to a given destination
-	 * from the destination table 
+	 * from the most recent search's tree
 	 * @param destination the destination Town
-	 * @return the distance from the source to the destination
+	 * @return the distance from the source to the destination, or -1 if the Town was not in the searched graph
+	 * @throws IllegalStateException if dijkstraShortestPath has not been called
 	 */
 	public int getDistance(Town destination) {
-		//find Town index in townArray
-		for (int i = 0; i < towns.size(); i++) {
-			if (towns.get(i).equals(destination)){
-				//When a match is found, return its distance from within the distance array
-				return distance[i];
-			}
-		}
-		
-		//If no match is found, return -1;
-		return -1;
+		ShortestPathTree tree = lastTree;
+		if (tree == null) throw new IllegalStateException("dijkstraShortestPath has not been called");
+		return tree.getDistance(destination);
 	}
 	
 
@@ -2,8 +2,10 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Iterator;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A Manager class for creating and populating a Town Graph object.
@@ -15,9 +17,80 @@ public class TownGraphManager implements TownGraphManagerInterface{
 
 	private TownGraph graph = new TownGraph();
 	
+	//The search strategy used by getPath
+	private volatile RoutingMode routingMode = RoutingMode.DIJKSTRA;
+	
+	//How many paths getPath keeps by default
+	static final int DEFAULT_ROUTE_CACHE_CAPACITY = 1024;
+	
+	//Paths recently returned by getPath, kept up to date by the methods that change the graph
+	private volatile RouteCache routeCache = new RouteCache(DEFAULT_ROUTE_CACHE_CAPACITY);
+	
 	public TownGraphManager() {
 	}
 	
+	/**
+	 * Choose the search strategy used by getPath
+	 * 
+	 * @param mode the search strategy
+	 */
+	public void setRoutingMode(RoutingMode mode) {
+		if (mode == null) throw new NullPointerException();
+		routingMode = mode;
+	}
+	
+	/**
+	 * Build the contraction hierarchy used by RoutingMode.CONTRACTION_HIERARCHY for the graph as it is now
+	 */
+	public void contractGraph() {
+		graph.contract();
+	}
+	
+	/**
+	 * Choose the landmarks used by RoutingMode.LANDMARKS for the graph as it is now
+	 * 
+	 * @param count the number of landmarks. More landmarks use more memory but speed up queries
+	 */
+	public void prepareLandmarks(int count) {
+		graph.prepareLandmarks(count);
+	}
+	
+	/**
+	 * Get the search strategy used by getPath
+	 * 
+	 * @return the search strategy
+	 */
+	public RoutingMode getRoutingMode() {
+		return routingMode;
+	}
+	
+	/**
+	 * Get the graph this manager maintains
+	 * 
+	 * @return the graph
+	 */
+	TownGraph getGraph() {
+		return graph;
+	}
+	
+	/**
+	 * Get the cache of paths returned by getPath, for its hit and miss counts
+	 * 
+	 * @return the path cache
+	 */
+	public RouteCache getRouteCache() {
+		return routeCache;
+	}
+	
+	/**
+	 * Replace the cache of paths returned by getPath with an empty one of a different size
+	 * 
+	 * @param capacity the most paths to keep, or 0 to keep none
+	 */
+	public void setRouteCacheCapacity(int capacity) {
+		routeCache = new RouteCache(capacity);
+	}
+	
 	/**
 	 * Add a Road to the graph
 	 * 
@@ -36,8 +109,20 @@ public class TownGraphManager implements TownGraphManagerInterface{
 			Town t1 = new Town (town1);
 			Town t2 = new Town (town2);
 			
+			//Cached paths the new Road could shorten are found from the distances to its ends beforehand.
+			//A path through the Road is only shorter if both legs to it are, so the searches stop at the
+			//longest cached path less the Road's length, and they bypass the tree cache
+			long oldVersion = graph.getVersion();
+			ShortestPathTree fromT1 = null, fromT2 = null;
+			if (!routeCache.isEmpty() && graph.containsVertex(t1) && graph.containsVertex(t2) && !graph.containsEdge(t1, t2)) {
+				int radius = routeCache.longestDistance() - Math.abs(weight);
+				fromT1 = graph.shortestPathTreeWithin(t1, radius);
+				fromT2 = graph.shortestPathTreeWithin(t2, radius);
+			}
+			
 			//Create the Road to join the two Towns
 			graph.addEdge(t1, t2, weight, roadName);
+			routeCache.roadAdded(town1, town2, Math.abs(weight), fromT1, fromT2, oldVersion, graph.getVersion());
 		
 			return true;
 		}
@@ -72,7 +157,34 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	public boolean addTown(String v) {
 		
 		try {
-			return graph.addVertex(new Town(v));
+			long oldVersion = graph.getVersion();
+			boolean added = graph.addVertex(new Town(v));
+			
+			//A new Town has no Roads yet, so no cached path changes
+			routeCache.unchanged(oldVersion, graph.getVersion());
+			return added;
+		}
+			catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Add a Town with a known geographic position to the graph
+	 * 
+	 * @param v the name of the Town to be added
+	 * @param latitude the Town's latitude in degrees
+	 * @param longitude the Town's longitude in degrees
+	 * 
+	 * @return true if the operation was successful, and false otherwise
+	 */
+	public boolean addTown(String v, double latitude, double longitude) {
+		
+		try {
+			long oldVersion = graph.getVersion();
+			boolean added = graph.addVertex(new Town(v, latitude, longitude));
+			routeCache.unchanged(oldVersion, graph.getVersion());
+			return added;
 		}
 			catch (Exception e) {
 			return false;
@@ -167,7 +279,9 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	public boolean deleteRoadConnection(String town1, String town2, String road) {
 				
 		try {
+			long oldVersion = graph.getVersion();
 			Road temp = graph.removeEdge(new Town(town1), new Town(town2), road);
+			routeCache.roadRemoved(town1, town2, oldVersion, graph.getVersion());
 			
 			//removeEdge may return null if no removal was performed. If so, return false
 			if (temp == null) return false;
@@ -190,7 +304,9 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	public boolean deleteTown(String v) {
 		
 		try {
+			long oldVersion = graph.getVersion();
 			graph.removeVertex(new Town(v));
+			routeCache.townRemoved(v, oldVersion, graph.getVersion());
 			return true;
 		}
 		catch (Exception e) {
@@ -237,7 +353,8 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	}
 	
 	/**
-	 * Generate an ArrayList of the shortest path from town 1 to town 2, specifying distance in miles
+	 * Generate an ArrayList of the shortest path from town 1 to town 2, specifying distance in miles.
+	 * Answers are cached, so repeated queries for a popular pair skip the search
 	 * 
 	 * @param town1 the name of town 1
 	 * @param town2 the name of town 2
@@ -246,23 +363,42 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 */
 	public ArrayList<String> getPath(String town1, String town2) {
 		try {
-			ArrayList<String> path = graph.shortestPath(new Town(town1), new Town(town2));
+			RouteCache cache = routeCache;
+			long version = graph.getVersion();
 			
-			//If the distance is the maximum integer, no path exists and method terminates
-			if (graph.getDistance(new Town(town2)) == Integer.MAX_VALUE) return null;
+			RouteCache.CachedPath cached = cache.get(town1, town2, version);
+			if (cached != null) return cached.copyPath();
 			
-			//Because strings are immutable, create a return list and append the word " miles" 
-			//to each String to indicate unit of measure
-			ArrayList<String> returnPath = new ArrayList<>();
-			for (String str : path) {
-				returnPath.add(new String (str + " miles"));
-			}
+			//Each query searches in its own thread's workspace, so concurrent calls never share search state
+			Route route = graph.route(new Town(town1), new Town(town2), routingMode);
+			return describe(cache, town1, town2, version, route);
+		}
+		//If something goes wrong, return null
+		catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Generate an ArrayList of the shortest path between two Towns given by handle, laid out like getPath(String, String)
+	 * and sharing its cache. Handles skip looking the Towns up by name, so callers making many queries should
+	 * resolve each name once with getTownHandle
+	 * 
+	 * @param town1 the handle of town 1
+	 * @param town2 the handle of town 2
+	 * 
+	 * @return an ArrayList of roads connecting the two towns together, or null if there is no path
+	 */
+	public ArrayList<String> getPath(TownHandle town1, TownHandle town2) {
+		try {
+			RouteCache cache = routeCache;
+			long version = graph.getVersion();
 			
-			//Finally, add a String for the total mileage
-			String str = String.format("Total miles: %d miles", graph.getDistance(new Town(town2)));
-			returnPath.add(str);
+			RouteCache.CachedPath cached = cache.get(town1.getName(), town2.getName(), version);
+			if (cached != null) return cached.copyPath();
 			
-			return returnPath;
+			Route route = graph.route(town1, town2, routingMode);
+			return describe(cache, town1.getName(), town2.getName(), version, route);
 		}
 		//If something goes wrong, return null
 		catch (Exception e) {
@@ -270,47 +406,273 @@ public class TownGraphManager implements TownGraphManagerInterface{
 		}
 	}
 	
+	/**
+	 * Lay out a route the way getPath returns it, and cache the answer
+	 * 
+	 * @param cache the cache to add the answer to
+	 * @param town1 the name of town 1
+	 * @param town2 the name of town 2
+	 * @param version the graph version the route was found in
+	 * @param route the route, or null if there is no path
+	 * 
+	 * @return the lines of the path, or null if there is no path
+	 */
+	private static ArrayList<String> describe(RouteCache cache, String town1, String town2, long version, Route route) {
+		
+		//If the route is null, no path exists and method terminates
+		if (route == null) {
+			cache.put(town1, town2, version, null, Integer.MAX_VALUE, null);
+			return null;
+		}
+		
+		//Append the word " miles" to each leg to indicate unit of measure
+		ArrayList<String> returnPath = route.toStrings(" miles");
+		
+		//Finally, add a String for the total mileage
+		returnPath.add("Total miles: " + route.getDistance() + " miles");
+		
+		//Remember the Towns along the path, so the entry can be invalidated when one of its Roads changes
+		ArrayList<Town> stops = route.getTowns();
+		String[] names = new String[stops.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = stops.get(i).getName();
+		}
+		cache.put(town1, town2, version, returnPath, route.getDistance(), names);
+		
+		return returnPath;
+	}
+	
+	/**
+	 * Find the length of the shortest path between two Towns given by handle. No path is laid out,
+	 * so this is the cheapest query for callers that only need the distance
+	 * 
+	 * @param town1 the handle of town 1
+	 * @param town2 the handle of town 2
+	 * 
+	 * @return the length in miles, Integer.MAX_VALUE if there is no path, or -1 if either Town is no longer in the graph
+	 */
+	public int getDistance(TownHandle town1, TownHandle town2) {
+		try {
+			return graph.distance(town1, town2, routingMode);
+		}
+		catch (Exception e) {
+			return -1;
+		}
+	}
+	
+	/**
+	 * Resolve a Town's name to a handle once, for use with getPath and getDistance. A handle stays usable as
+	 * the graph changes, but is fastest until then; pass it to refreshTownHandle afterward to make it fast again
+	 * 
+	 * @param name the name of the Town
+	 * 
+	 * @return the handle, or null if the Town is not in the graph
+	 */
+	public TownHandle getTownHandle(String name) {
+		return graph.handleOf(name);
+	}
+	
+	/**
+	 * Bring a handle up to date after the graph has changed
+	 * 
+	 * @param handle the handle
+	 * 
+	 * @return an up-to-date handle for the same Town, or null if the Town is no longer in the graph
+	 */
+	public TownHandle refreshTownHandle(TownHandle handle) {
+		try {
+			return graph.refresh(handle);
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Generate up to k alternative paths from town 1 to town 2, shortest first. Each is laid out like getPath,
+	 * with a final line for its total mileage, and no two take the same roads
+	 * 
+	 * @param town1 the name of town 1
+	 * @param town2 the name of town 2
+	 * @param k the number of paths wanted
+	 * 
+	 * @return the paths, which is empty if there is no path, or null if either town is not in the graph
+	 */
+	public ArrayList<ArrayList<String>> getAlternativePaths(String town1, String town2, int k) {
+		try {
+			ArrayList<ArrayList<String>> paths = new ArrayList<>();
+			for (Route route : graph.kShortestRoutes(new Town(town1), new Town(town2), k)) {
+				ArrayList<String> path = route.toStrings(" miles");
+				path.add("Total miles: " + route.getDistance() + " miles");
+				paths.add(path);
+			}
+			return paths;
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Find every town within a given number of miles of a town, nearest first. Towns are found as the
+	 * iterator is advanced, so stopping early saves the rest of the search
+	 * 
+	 * @param town the name of the town to search outward from
+	 * @param miles the greatest distance to include
+	 * 
+	 * @return an iterator over the towns within range and their distances, starting with the town itself,
+	 * or null if the town is not in the graph or the distance is negative
+	 */
+	public Iterator<TownDistance> getTownsWithin(String town, int miles) {
+		try {
+			return graph.townsWithin(new Town(town), miles);
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Find the towns closest to a town
+	 * 
+	 * @param town the name of the town to search outward from
+	 * @param k the number of towns to find
+	 * 
+	 * @return up to k of the closest other towns and their distances, nearest first,
+	 * or null if the town is not in the graph or k is negative
+	 */
+	public ArrayList<TownDistance> getNearestTowns(String town, int k) {
+		try {
+			return graph.nearestTowns(new Town(town), k);
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Find the nearest of a set of facility towns, such as depots, to every town in the graph
+	 * 
+	 * @param facilities the names of the facility towns
+	 * 
+	 * @return each town's nearest facility and its distance, or null if the list is empty
+	 * or names a town not in the graph
+	 */
+	public FacilityLabels getNearestFacilities(List<String> facilities) {
+		try {
+			return graph.nearestFacilities(toTowns(facilities));
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Compute the shortest distance in miles from each of a list of towns to each of another list of towns
+	 * 
+	 * @param sources the names of the starting towns
+	 * @param targets the names of the destination towns
+	 * 
+	 * @return a matrix whose entry [i][j] is the distance from sources[i] to targets[j], or -1 if there is no path;
+	 * null if any town is not in the graph
+	 */
+	@Override
+	public int[][] getDistanceMatrix(List<String> sources, List<String> targets) {
+		try {
+			DistanceTable table = graph.distanceTable(toTowns(sources), toTowns(targets), ForkJoinPool.commonPool(), null);
+			
+			int[][] matrix = new int[table.rows()][table.columns()];
+			for (int i = 0; i < matrix.length; i++) {
+				for (int j = 0; j < matrix[i].length; j++) {
+					int distance = table.get(i, j);
+					matrix[i][j] = distance == Integer.MAX_VALUE ? -1 : distance;
+				}
+			}
+			return matrix;
+		}
+		//If something goes wrong, such as an unknown town, return null
+		catch (Exception e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Convert a list of town names to Towns
+	 * 
+	 * @param names the town names
+	 * @return a list of Towns with those names
+	 */
+	private static List<Town> toTowns(List<String> names) {
+		ArrayList<Town> list = new ArrayList<>(names.size());
+		for (String name : names) {
+			list.add(new Town(name));
+		}
+		return list;
+	}
+	
 	/**
 	 * Create a town graph from an indicated file.
 	 * Each line should be its own road list, in the format of
 	 * [Road name],[Distance];[Source Town Name];[Destination Town Name]
+	 * or, to give each Town's position in degrees,
+	 * [Road name],[Distance];[Source Town Name],[Latitude],[Longitude];[Destination Town Name],[Latitude],[Longitude]
+	 * A Town's position is taken from the first line it appears on
 	 * @param file the file used for populating the town graph
 	 * @throws FileNotFoundException if the file is not found
-	 * @throws IOException if there is a problem in the file that is read
+	 * @throws IOException if there is a problem in the file that is read. The message gives the line number,
+	 * and nothing is added to the graph
 	 */
 	public void populateTownGraph(File file) throws FileNotFoundException, IOException{
 		
-		@SuppressWarnings("resource") //Gets closed following while loop but Eclipse won't catch it
-		Scanner scan = new Scanner(file); //Will throw FileNotFoundException if file is not found
+		//Read the whole file before changing the graph, so an improperly formatted line adds nothing
+		RoadFileReader reader = RoadFileReader.read(file); //Will throw FileNotFoundException if file is not found
 		
-		String[] line;
+		//Add every Town and Road in one step. The path cache notices the new version and empties itself
+		reader.addTo(graph);
+	}
+	
+	/**
+	 * Create a town graph from an indicated file, parsing it on several threads.
+	 * The file is in the same format as for populateTownGraph(File), and the graph built is the same:
+	 * Towns, positions and Roads are added in file order, and a Road between Towns that are already joined is skipped
+	 * @param file the file used for populating the town graph
+	 * @param pool the pool that parses the file
+	 * @throws FileNotFoundException if the file is not found
+	 * @throws IOException if there is a problem in the file that is read. The message gives the line number
+	 * of the first problem, and nothing is added to the graph
+	 */
+	public void populateTownGraph(File file, ForkJoinPool pool) throws FileNotFoundException, IOException{
 		
-		while (scan.hasNextLine()) {
-			
-			//Convert each line into tokens
-			String toAdd = scan.nextLine().replaceAll(",", ";");
-			line = toAdd.split(";");
-			
-			//Check that the line is of the proper length. If not, throw Exception
-			if (line.length != 4) throw new IOException("Input file is improperly formatted");
-			
-			//Add Towns to the graph. Should be tokens 3 and 4 in each line 
-			this.addTown(line[2]);
-			this.addTown(line[3]);
-			
-			//Add Roads to the graph. Throw an Exception if improperly formatted
-			try {
-				this.addRoad(line[2], line[3], new Integer(line[1]), line[0]);
-			}
-			//ClassCastException will be thrown if the second item is not an Integer
-			catch (ClassCastException e) {
-				
-				throw new IOException ("Input file is improperly formatted");
-			}
-		}
+		//Parse chunks of the file concurrently, then merge them in file order before changing the graph
+		RoadFileReader reader = RoadFileReader.read(file, pool);
+		
+		reader.addTo(graph);
+	}
+	
+	/**
+	 * Save the town graph to a binary snapshot file, along with its contraction hierarchy and landmarks
+	 * if they were prepared for the graph as it is now
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveSnapshot(File file) throws IOException {
+		graph.saveSnapshot(file);
+	}
+	
+	/**
+	 * Replace the town graph with one saved by saveSnapshot. This is far faster than populateTownGraph,
+	 * and any contraction hierarchy and landmarks saved with the graph are ready for use
+	 * @param file the snapshot file
+	 * @throws IOException if the file cannot be read, or is not a snapshot, or is damaged.
+	 * The current graph is kept if so
+	 */
+	public void loadSnapshot(File file) throws IOException {
+		TownGraph loaded = TownGraph.loadSnapshot(file);
+		loaded.setQueueStrategy(graph.getQueueStrategy());
+		graph = loaded;
 		
-		//At end of file, close Scanner
-		scan.close();
+		//Paths from the old graph could be mistaken for the new graph's, which may share its version number
+		routeCache.reset(loaded.getVersion());
 	}
 
 }
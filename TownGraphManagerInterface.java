@@ -87,4 +87,15 @@ public interface TownGraphManagerInterface {
 	 */
 	public ArrayList<String> getPathSets(String town1, String town2);
 	
+	/**
+	 * Computes the shortest distance from each of a list of towns to each of another list of towns.
+	 * The searches are shared across targets, so this is far faster than one getPathSets call per pair.
+	 * Routes for any pair can then be fetched on demand with getPathSets
+	 * @param sources names of the starting towns
+	 * @param targets names of the destination towns
+	 * @return a matrix whose entry [i][j] is the distance from sources[i] to targets[j], or -1 if
+	 * no path connects them; null if any town is not in the graph
+	 */
+	public int[][] getDistanceMatrix(List<String> sources, List<String> targets);
+	
 }
@@ -3,8 +3,12 @@ import static org.junit.Assert.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.After;
 import org.junit.Before;
@@ -122,6 +126,47 @@ public class TownGraphManagerTest_STUDENT {
 		assertEquals("Total miles: 103 miles", list.get(3));
 	}
 	
+	@Test
+	public void testGetPathBidirectional() {
+		graph.setRoutingMode(RoutingMode.BIDIRECTIONAL);
+		ArrayList<String> list = graph.getPath("Town 7", "Town 2");
+		
+		assertEquals("Town 7 via Road 7 to Town 5 33 miles", list.get(0));
+		assertEquals("Town 5 via Road 6 to Town 1 25 miles", list.get(1));
+		assertEquals("Town 1 via Road 1 to Town 2 45 miles", list.get(2));
+		assertEquals("Total miles: 103 miles", list.get(3));
+		
+		assertNull(graph.getPath("Town 0", "Town 2"));
+	}
+	
+	@Test
+	public void testTownHandles() {
+		TownHandle town7 = graph.getTownHandle("Town 7");
+		TownHandle town2 = graph.getTownHandle("Town 2");
+		assertNull(graph.getTownHandle("NotATown"));
+		assertEquals("Town 7", town7.getName());
+		
+		assertEquals(graph.getPath("Town 7", "Town 2"), graph.getPath(town7, town2));
+		assertEquals(103, graph.getDistance(town7, town2));
+		graph.setRoutingMode(RoutingMode.BIDIRECTIONAL);
+		assertEquals(103, graph.getDistance(town7, town2));
+		assertEquals(Integer.MAX_VALUE, graph.getDistance(town7, graph.getTownHandle("Town 0")));
+		
+		//Handles keep working as the graph changes, and refreshing them keeps the same Town
+		graph.addRoad("Town 7", "Town 2", 50, "Road 8");
+		assertEquals(50, graph.getDistance(town7, town2));
+		TownHandle refreshed = graph.refreshTownHandle(town7);
+		assertNotSame(town7, refreshed);
+		assertSame(refreshed, graph.refreshTownHandle(refreshed));
+		assertEquals("Town 7 via Road 8 to Town 2 50 miles", graph.getPath(refreshed, town2).get(0));
+		
+		//A deleted Town's handle no longer answers
+		graph.deleteTown("Town 2");
+		assertNull(graph.getPath(town7, town2));
+		assertEquals(-1, graph.getDistance(town7, town2));
+		assertNull(graph.refreshTownHandle(town2));
+	}
+	
 	@Test
 	public void testGetPathSets() {
 		ArrayList<String> list = graph.getPathSets("Town 1", "Town 5");
@@ -150,6 +195,243 @@ public class TownGraphManagerTest_STUDENT {
 		assertEquals("Town 7", graph.getTown("Town 7").toString());
 	}
 	
+	@Test
+	public void testPopulateTownGraphWithCoordinates() throws IOException {
+		File file = File.createTempFile("towns", ".txt");
+		file.deleteOnExit();
+		
+		try (java.io.PrintWriter out = new java.io.PrintWriter(file)) {
+			out.println("I-94,283;Detroit,42.3314,-83.0458;Chicago,41.8781,-87.6298");
+			out.println("I-65,183;Chicago,41.8781,-87.6298;Indianapolis,39.7684,-86.1581");
+			out.println("Back Road,500;Detroit;Indianapolis");
+		}
+		
+		graph = new TownGraphManager();
+		graph.populateTownGraph(file);
+		graph.setRoutingMode(RoutingMode.ASTAR);
+		
+		assertTrue(graph.getTown("Chicago").hasCoordinates());
+		assertEquals(41.8781, graph.getTown("Chicago").getLatitude(), 0.0001);
+		
+		ArrayList<String> list = graph.getPath("Detroit", "Indianapolis");
+		assertEquals("Detroit via I-94 to Chicago 283 miles", list.get(0));
+		assertEquals("Chicago via I-65 to Indianapolis 183 miles", list.get(1));
+		assertEquals("Total miles: 466 miles", list.get(2));
+	}
+	
+	@Test
+	public void testGetDistanceMatrix() {
+		List<String> sources = Arrays.asList("Town 1", "Town 2");
+		List<String> targets = Arrays.asList("Town 3", "Town 6", "Town 0", "Town 2");
+		int[][] expected = { { 20, 40, -1, 45 }, { 43, 85, -1, 0 } };
+		
+		assertArrayEquals(expected, graph.getDistanceMatrix(sources, targets));
+		
+		//The contraction hierarchy gives the same matrix
+		graph.contractGraph();
+		assertArrayEquals(expected, graph.getDistanceMatrix(sources, targets));
+		
+		assertNull(graph.getDistanceMatrix(sources, Arrays.asList("NotATown")));
+	}
+	
+	@Test
+	public void testGetTownsWithin() {
+		Iterator<TownDistance> range = graph.getTownsWithin("Town 1", 40);
+		assertEquals("Town 1 0", range.next().toString());
+		assertEquals("Town 3 20", range.next().toString());
+		assertEquals("Town 5 25", range.next().toString());
+		assertEquals("Town 6 40", range.next().toString());
+		assertFalse(range.hasNext());
+		
+		assertNull(graph.getTownsWithin("NotATown", 40));
+	}
+	
+	@Test
+	public void testGetNearestTownsAndFacilities() {
+		ArrayList<TownDistance> nearest = graph.getNearestTowns("Town 1", 2);
+		assertEquals("Town 3 20", nearest.get(0).toString());
+		assertEquals("Town 5 25", nearest.get(1).toString());
+		assertNull(graph.getNearestTowns("NotATown", 2));
+		
+		FacilityLabels labels = graph.getNearestFacilities(Arrays.asList("Town 2", "Town 7"));
+		assertEquals("Town 2", labels.getNearestFacility(new Town("Town 3")).getName());
+		assertEquals("Town 7", labels.getNearestFacility(new Town("Town 6")).getName());
+		assertEquals(48, labels.getDistance(new Town("Town 6")));
+		assertNull(labels.getNearestFacility(new Town("Town 0")));
+		assertNull(graph.getNearestFacilities(Arrays.asList("NotATown")));
+	}
+	
+	@Test
+	public void testGetAlternativePaths() {
+		ArrayList<ArrayList<String>> paths = graph.getAlternativePaths("Town 2", "Town 1", 3);
+		assertEquals(2, paths.size());
+		assertEquals("Town 2 via Road 1 to Town 1 45 miles", paths.get(0).get(0));
+		assertEquals("Total miles: 45 miles", paths.get(0).get(1));
+		assertEquals("Town 2 via Road 2 to Town 3 43 miles", paths.get(1).get(0));
+		assertEquals("Total miles: 63 miles", paths.get(1).get(2));
+		
+		assertTrue(graph.getAlternativePaths("Town 2", "Town 0", 3).isEmpty());
+		assertNull(graph.getAlternativePaths("Town 2", "NotATown", 3));
+	}
+	
+	@Test
+	public void testAlternativePathsBypassTreeCache() {
+		ShortestPathTreeCache trees = graph.getGraph().getTreeCache();
+		int size = trees.size();
+		
+		//The destination's tree is grown for the query alone and not stored
+		assertEquals(2, graph.getAlternativePaths("Town 2", "Town 1", 3).size());
+		assertEquals(2, graph.getAlternativePaths("Town 6", "Town 3", 3).size());
+		assertEquals(size, trees.size());
+		assertEquals(0, trees.getMissCount());
+	}
+	
+	@Test
+	public void testRouteCacheHits() {
+		ArrayList<String> first = graph.getPath("Town 2", "Town 6");
+		ArrayList<String> second = graph.getPath("Town 2", "Town 6");
+		assertEquals(first, second);
+		assertNull(graph.getPath("Town 2", "Town 0"));
+		assertNull(graph.getPath("Town 2", "Town 0"));
+		
+		RouteCache cache = graph.getRouteCache();
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		
+		//Changing a returned path does not change the cached one
+		second.clear();
+		assertEquals(first, graph.getPath("Town 2", "Town 6"));
+	}
+	
+	@Test
+	public void testRouteCacheTargetedInvalidation() {
+		graph.getPath("Town 2", "Town 6");
+		graph.getPath("Town 4", "Town 7");
+		graph.getPath("Town 3", "Town 2");
+		graph.getPath("Town 2", "Town 0");
+		RouteCache cache = graph.getRouteCache();
+		assertEquals(4, cache.size());
+		
+		//Only the path over Road 4 is dropped
+		graph.deleteRoadConnection("Town 5", "Town 6", "Road 4");
+		assertEquals(3, cache.size());
+		assertNull(graph.getPath("Town 2", "Town 6"));
+		
+		//New Roads that reconnect Town 6 and Town 0 drop only their unreachable entries
+		graph.addRoad("Town 3", "Town 6", 1, "Road 8");
+		graph.addRoad("Town 0", "Town 4", 1, "Road 9");
+		assertEquals(2, cache.size());
+		assertEquals("Total miles: 44 miles", graph.getPath("Town 2", "Town 6").get(2));
+		assertEquals("Total miles: 105 miles", graph.getPath("Town 2", "Town 0").get(4));
+		
+		//A shortcut drops the Town 4 to Town 7 and Town 2 to Town 0 paths it shortens, and keeps the other two
+		graph.addRoad("Town 1", "Town 4", 5, "Road 10");
+		assertEquals(2, cache.size());
+		assertEquals("Total miles: 51 miles", graph.getPath("Town 2", "Town 0").get(3));
+		assertEquals("Town 4 via Road 10 to Town 1 5 miles", graph.getPath("Town 4", "Town 7").get(0));
+		
+		//Paths through a removed Town are dropped, and the rest are kept
+		long hits = cache.getHitCount();
+		graph.deleteTown("Town 1");
+		assertEquals("Town 4 via Road 3 to Town 5 34 miles", graph.getPath("Town 4", "Town 7").get(0));
+		assertEquals("Town 3 via Road 2 to Town 2 43 miles", graph.getPath("Town 3", "Town 2").get(0));
+		assertEquals(hits + 1, cache.getHitCount());
+	}
+	
+	@Test
+	public void testAddRoadBypassesTreeCache() {
+		graph.getPath("Town 2", "Town 6");
+		ShortestPathTreeCache trees = graph.getGraph().getTreeCache();
+		trees.clear();
+		
+		//Checking the cached path against a new Road searches from its ends without caching their trees
+		graph.addRoad("Town 2", "Town 6", 60, "Road 8");
+		assertEquals(0, trees.size());
+		assertEquals(0, trees.getMissCount());
+		assertEquals("Total miles: 60 miles", graph.getPath("Town 2", "Town 6").get(1));
+	}
+	
+	@Test
+	public void testPopulateTownGraphParallel() throws IOException {
+		File file = File.createTempFile("towns", ".txt");
+		file.deleteOnExit();
+		
+		try (java.io.PrintWriter out = new java.io.PrintWriter(file)) {
+			out.println("I-94,283;Detroit;Chicago");
+			out.println("I-65,183;Chicago;Indianapolis");
+			out.println("Back Road,500;Indianapolis;Detroit");
+		}
+		
+		graph = new TownGraphManager();
+		graph.populateTownGraph(file, ForkJoinPool.commonPool());
+		
+		ArrayList<String> list = graph.getPath("Detroit", "Indianapolis");
+		assertEquals("Detroit via I-94 to Chicago 283 miles", list.get(0));
+		assertEquals("Chicago via I-65 to Indianapolis 183 miles", list.get(1));
+	}
+	
+	@Test
+	public void testSnapshotRoundTrip() throws IOException {
+		File file = File.createTempFile("towns", ".snapshot");
+		file.deleteOnExit();
+		
+		graph.contractGraph();
+		graph.saveSnapshot(file);
+		
+		//A manager that has cached paths for a graph of a newer version still caches after loading
+		TownGraphManager other = new TownGraphManager();
+		for (int i = 0; i < 20; i++) {
+			other.addTown("Other " + i);
+		}
+		other.getPath("Other 0", "Other 1");
+		other.loadSnapshot(file);
+		other.setRoutingMode(RoutingMode.CONTRACTION_HIERARCHY);
+		
+		assertEquals(graph.allRoads(), other.allRoads());
+		assertEquals(graph.allTowns(), other.allTowns());
+		assertFalse(other.containsTown("Other 0"));
+		
+		ArrayList<String> path = other.getPath("Town 1", "Town 6");
+		assertEquals(graph.getPath("Town 1", "Town 6"), path);
+		assertEquals(path, other.getPath("Town 1", "Town 6"));
+		assertEquals(1, other.getRouteCache().getHitCount());
+	}
+	
+	@Test(expected = IOException.class)
+	public void testPopulateTownGraphBadDistance() throws IOException {
+		File file = File.createTempFile("towns", ".txt");
+		file.deleteOnExit();
+		
+		try (java.io.PrintWriter out = new java.io.PrintWriter(file)) {
+			out.println("I-94,far;Detroit;Chicago");
+		}
+		
+		new TownGraphManager().populateTownGraph(file);
+	}
+	
+	@Test
+	public void testPopulateTownGraphReportsLine() throws IOException {
+		File file = File.createTempFile("towns", ".txt");
+		file.deleteOnExit();
+		
+		try (java.io.PrintWriter out = new java.io.PrintWriter(file)) {
+			out.println("I-94,283;Detroit;Chicago");
+			out.println("I-65,183;Chicago;Indianapolis;Louisville");
+		}
+		
+		TownGraphManager manager = new TownGraphManager();
+		try {
+			manager.populateTownGraph(file);
+			fail("Expected an IOException");
+		}
+		catch (IOException e) {
+			assertTrue(e.getMessage().contains("line 2"));
+		}
+		
+		//A bad line leaves the graph as it was
+		assertFalse(manager.containsTown("Detroit"));
+	}
+	
 	@Test
 	public void testPopulateTownGraph() {
 		File file = new File("US Towns(1).txt");
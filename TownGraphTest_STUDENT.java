@@ -52,6 +52,40 @@ public class TownGraphTest_STUDENT {
 		assertTrue(graph.containsEdge(towns[5], towns[1]));
 	}
 	
+	@Test
+	public void testRoadNamesAreShared() {
+		//Two Roads named with separate but equal Strings end up holding the same one
+		Road first = graph.addEdge(towns[0], towns[2], 7, new String("Main Street"));
+		Road second = graph.addEdge(towns[3], towns[5], 9, new String("Main Street"));
+		assertEquals("Main Street", second.getName());
+		assertSame(first.getName(), second.getName());
+		
+		//Roads join the graph's own Towns, whatever instances they were added with
+		Road third = graph.addEdge(new Town("Town 0"), new Town("Town 5"), 3, "Main Street");
+		assertSame(towns[0], third.getSource());
+		assertSame(towns[5], third.getDestination());
+	}
+	
+	@Test
+	public void testRoadNamesDoNotAccumulate() {
+		int names = graph.roadNames.size();
+		
+		//A name is forgotten once the last Road using it is removed
+		for (int i = 0; i < 1000; i++) {
+			graph.addEdge(towns[0], towns[2], 7, "Detour " + i);
+			graph.removeEdge(towns[0], towns[2], 7, "Detour " + i);
+		}
+		assertEquals(names, graph.roadNames.size());
+		
+		graph.addEdge(towns[0], towns[2], 7, "Road 0");
+		graph.removeEdge(towns[0], towns[1], 14, "Road 0");
+		assertEquals(names, graph.roadNames.size());
+		
+		//Removing a Town removes the names only its Roads used
+		graph.removeVertex(towns[5]);
+		assertEquals(names - 1, graph.roadNames.size());
+	}
+	
 	@Test
 	public void testAddVertex() {
 		Set<Town> set = graph.vertexSet();
@@ -112,6 +146,14 @@ public class TownGraphTest_STUDENT {
 	
 	@Test
 	public void testGetDistance() {
+		try {
+			graph.getDistance(towns[1]);
+			fail("Expected an IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+			//Expected
+		}
+		
 		graph.dijkstraShortestPath(towns[0]);
 		
 		assertEquals(graph.getDistance(towns[1]), 14, 0.1);
@@ -161,6 +203,17 @@ public class TownGraphTest_STUDENT {
 		assertEquals(4, graph.vertexSet().size());
 	}
 	
+	@Test
+	public void testRemoveVertexRemovesRoads() {
+		assertTrue(graph.removeVertex(towns[1]));
+		
+		assertEquals(4, graph.edgeSet().size());
+		assertFalse(graph.containsEdge(towns[0], towns[1]));
+		assertFalse(graph.containsEdge(towns[5], towns[1]));
+		assertEquals(0, graph.edgesOf(towns[5]).size());
+		assertNull(graph.edgesOf(towns[1]));
+	}
+	
 	@Test
 	public void testShortestPath() {
 		ArrayList<String> path = graph.shortestPath(towns[0], towns[3]);
@@ -174,6 +227,113 @@ public class TownGraphTest_STUDENT {
 		assertTrue(path.contains("Town 1 via Road 6 to Town 5 5"));
 	}
 	
+	@Test
+	public void testShortestPathTreesAreIndependent() {
+		ShortestPathTree fromOne = graph.shortestPathTree(towns[1]);
+		ShortestPathTree fromZero = graph.shortestPathTree(towns[0]);
+		
+		//Computing a second tree leaves the first one intact
+		assertEquals(67, fromOne.getDistance(towns[3]));
+		assertEquals(53, fromZero.getDistance(towns[3]));
+		assertEquals(towns[4], fromZero.getPredecessor(towns[3]));
+		assertEquals(towns[0], fromOne.getPredecessor(towns[4]));
+		assertNull(fromOne.getPredecessor(towns[1]));
+		
+		Route route = fromOne.routeTo(towns[3]);
+		assertEquals(3, route.size());
+		assertEquals(67, route.getDistance());
+		assertEquals("Town 1 via Road 0 to Town 0 14", route.toStrings().get(0));
+	}
+	
+	@Test
+	public void testRoutingModesAgree() {
+		for (Town source : towns) {
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			
+			for (Town destination : towns) {
+				Route route = graph.route(source, destination, RoutingMode.BIDIRECTIONAL);
+				assertEquals(tree.getDistance(destination), route.getDistance());
+				assertEquals(source, route.getSource());
+				assertEquals(destination, route.getDestination());
+				assertEquals(tree.getDistance(destination),
+						graph.route(source, destination, RoutingMode.DIJKSTRA).getDistance());
+			}
+		}
+		
+		assertEquals(graph.shortestPath(towns[3], towns[5]),
+				graph.route(towns[3], towns[5], RoutingMode.BIDIRECTIONAL).toStrings());
+	}
+	
+	@Test
+	public void testRadixHeapAgrees() {
+		graph.setQueueStrategy(QueueStrategy.RADIX_HEAP);
+		graph.setTreeCacheCapacity(0);
+		assertEquals(QueueStrategy.RADIX_HEAP, graph.getQueueStrategy());
+		
+		for (Town source : towns) {
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			
+			for (Town destination : towns) {
+				int expected = tree.getDistance(destination);
+				graph.setQueueStrategy(QueueStrategy.BINARY_HEAP);
+				assertEquals(expected, graph.shortestPathTree(source).getDistance(destination));
+				graph.setQueueStrategy(QueueStrategy.RADIX_HEAP);
+				
+				Route route = graph.route(source, destination, RoutingMode.BIDIRECTIONAL);
+				assertEquals(expected, route == null ? Integer.MAX_VALUE : route.getDistance());
+			}
+		}
+	}
+	
+	@Test
+	public void testAStar() {
+		//Four Towns along a line of latitude, a degree of longitude (about 69 miles) apart
+		TownGraph geo = new TownGraph();
+		Town[] stops = new Town[4];
+		for (int i = 0; i < stops.length; i++) {
+			stops[i] = new Town("Stop " + i, 0, i);
+			geo.addVertex(stops[i]);
+		}
+		Town detour = new Town("Detour");
+		geo.addVertex(detour);
+		
+		geo.addEdge(stops[0], stops[1], 70, "Road 0");
+		geo.addEdge(stops[1], stops[2], 70, "Road 1");
+		geo.addEdge(stops[2], stops[3], 70, "Road 2");
+		geo.addEdge(stops[0], detour, 150, "Road 3");
+		geo.addEdge(detour, stops[3], 150, "Road 4");
+		
+		Route route = geo.route(stops[0], stops[3], RoutingMode.ASTAR);
+		assertEquals(210, route.getDistance());
+		assertEquals(3, route.size());
+		
+		//A Town without coordinates falls back to Dijkstra
+		assertEquals(150, geo.route(stops[0], detour, RoutingMode.ASTAR).getDistance());
+		
+		//The original graph has no coordinates at all
+		assertEquals(graph.route(towns[3], towns[5]).getDistance(),
+				graph.route(towns[3], towns[5], RoutingMode.ASTAR).getDistance());
+	}
+	
+	@Test
+	public void testSnapshotVersioning() {
+		CompactGraph snapshot = graph.getSnapshot();
+		assertEquals(6, snapshot.size());
+		assertEquals(14, snapshot.arcCount());
+		
+		//Queries reuse the snapshot until the graph changes
+		graph.dijkstraShortestPath(towns[0]);
+		assertSame(snapshot, graph.getSnapshot());
+		
+		graph.removeEdge(towns[4], towns[0], "Road 4");
+		CompactGraph rebuilt = graph.getSnapshot();
+		assertNotSame(snapshot, rebuilt);
+		assertEquals(12, rebuilt.arcCount());
+		
+		graph.dijkstraShortestPath(towns[0]);
+		assertEquals(67, graph.getDistance(towns[4]));
+	}
+	
 	@Test
 	public void testVertexSet() {
 		Set<Town> set = graph.vertexSet();
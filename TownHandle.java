@@ -0,0 +1,66 @@
+/**
+ * A Town resolved once against a graph, so later queries can skip looking it up by name. A handle remembers the
+ * Town's number in the snapshot it was resolved against, and queries on that snapshot use the number directly,
+ * with no hashing and no allocation. Handles never go wrong when the graph changes: a query against a newer
+ * snapshot looks the Town up by name again, and a handle can be refreshed to make later queries fast again.
+ *
+ * Handles are immutable, so any number of threads may share one.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public final class TownHandle {
+
+	//The graph's own Town instance
+	final Town town;
+
+	//The snapshot the handle was resolved against, and the Town's number in it
+	final CompactGraph graph;
+	final int index;
+
+	/**
+	 * Create a handle for a Town in a snapshot
+	 * @param graph the snapshot
+	 * @param index the Town's number in the snapshot
+	 */
+	TownHandle(CompactGraph graph, int index) {
+		this.town = graph.towns[index];
+		this.graph = graph;
+		this.index = index;
+	}
+
+	/**
+	 * Get the Town
+	 * @return the Town this handle stands for
+	 */
+	public Town getTown() {
+		return town;
+	}
+
+	/**
+	 * Get the Town's name
+	 * @return the Town's name
+	 */
+	public String getName() {
+		return town.getName();
+	}
+
+	/**
+	 * Get the Town's number in a snapshot
+	 * @param g the snapshot
+	 * @return the Town's number, or -1 if it is not in the snapshot
+	 */
+	int indexIn(CompactGraph g) {
+		return g == graph ? index : g.indexOf(town.getName());
+	}
+
+	/**
+	 * Generate a String representing this handle
+	 * @return the Town's name
+	 */
+	@Override
+	public String toString() {
+		return town.getName();
+	}
+}
@@ -52,6 +52,26 @@ public class TownTest_STUDENT {
 		assertEquals(town2, town1.getLastTown());
 	}
 	
+	@Test
+	public void testCoordinates() {
+		Town detroit = new Town("Detroit", 42.3314, -83.0458);
+		Town chicago = new Town("Chicago", 41.8781, -87.6298);
+		
+		assertTrue(detroit.hasCoordinates());
+		assertFalse(town1.hasCoordinates());
+		assertEquals(42.3314, new Town(detroit).getLatitude(), 0.0001);
+		assertEquals(detroit, town1);
+		
+		//Detroit to Chicago is about 237 miles as the crow flies
+		assertEquals(237, detroit.greatCircleMiles(chicago), 2);
+		assertTrue(Double.isNaN(detroit.greatCircleMiles(town2)));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testCoordinatesOutOfRange() {
+		new Town("Nowhere", 95, 0);
+	}
+	
 	@Test
 	public void testGetName() {
 		assertEquals("Detroit", town1.getName());
@@ -0,0 +1,182 @@
+import java.util.Arrays;
+
+/**
+ * The orders a TownGraph can number its Towns in when it builds a snapshot. Searches read a Town's arcs and then
+ * the search state of each neighbor, so numbering neighbors close together keeps those reads on the same cache
+ * lines and memory pages, and keeps the target differences in packed snapshot arcs small.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public enum VertexOrder {
+
+	/**
+	 * The order the Towns were added to the graph, such as the order they first appear in a road file
+	 */
+	INSERTION {
+		@Override
+		int[] order(CompactGraph g) {
+			int[] order = new int[g.size()];
+			for (int v = 0; v < order.length; v++) {
+				order[v] = v;
+			}
+			return order;
+		}
+	},
+
+	/**
+	 * Cuthill-McKee order: a breadth-first search from a Town of least degree, visiting each Town's neighbors
+	 * from least to greatest degree, so every Town is numbered close to its neighbors. Each part of the graph
+	 * that is not joined to the rest is numbered in turn
+	 */
+	BREADTH_FIRST {
+		@Override
+		int[] order(CompactGraph g) {
+			int n = g.size();
+
+			//Towns by degree, with ties kept in number order
+			long[] byDegree = new long[n];
+			for (int v = 0; v < n; v++) {
+				byDegree[v] = ((long) degree(g, v) << 32) | v;
+			}
+			Arrays.sort(byDegree);
+
+			int[] order = new int[n];
+			boolean[] numbered = new boolean[n];
+			long[] neighbors = new long[16];
+			int head = 0;
+			int tail = 0;
+
+			for (long start : byDegree) {
+				int root = (int) start;
+				if (numbered[root]) continue;
+				numbered[root] = true;
+				order[tail++] = root;
+
+				//The queue is the order itself: Towns are numbered as they are first reached
+				while (head < tail) {
+					int u = order[head++];
+					int count = 0;
+					for (int arc = g.offsets[u]; arc < g.offsets[u + 1]; arc++) {
+						int v = g.targets[arc];
+						if (numbered[v]) continue;
+						numbered[v] = true;
+						if (count == neighbors.length) neighbors = Arrays.copyOf(neighbors, count * 2);
+						neighbors[count++] = ((long) degree(g, v) << 32) | v;
+					}
+
+					Arrays.sort(neighbors, 0, count);
+					for (int i = 0; i < count; i++) {
+						order[tail++] = (int) neighbors[i];
+					}
+				}
+			}
+			return order;
+		}
+	},
+
+	/**
+	 * The order Towns fall along a Hilbert curve drawn over their positions, which keeps Towns that are close on
+	 * the map close in number. Towns without a position follow the rest, in the order they were added.
+	 * If no Town has a position, this is the same as BREADTH_FIRST
+	 */
+	HILBERT {
+		@Override
+		int[] order(CompactGraph g) {
+			int n = g.size();
+			if (g.latitude == null) return BREADTH_FIRST.order(g);
+
+			//The bounding box of the known positions
+			double minLatitude = Double.POSITIVE_INFINITY;
+			double maxLatitude = Double.NEGATIVE_INFINITY;
+			double minLongitude = Double.POSITIVE_INFINITY;
+			double maxLongitude = Double.NEGATIVE_INFINITY;
+			for (int v = 0; v < n; v++) {
+				if (!g.hasCoordinates(v)) continue;
+				minLatitude = Math.min(minLatitude, g.latitude[v]);
+				maxLatitude = Math.max(maxLatitude, g.latitude[v]);
+				minLongitude = Math.min(minLongitude, g.longitude[v]);
+				maxLongitude = Math.max(maxLongitude, g.longitude[v]);
+			}
+			double latitudeScale = HILBERT_SIDE / Math.max(maxLatitude - minLatitude, Double.MIN_NORMAL);
+			double longitudeScale = HILBERT_SIDE / Math.max(maxLongitude - minLongitude, Double.MIN_NORMAL);
+
+			//Sort the placed Towns by their distance along the curve, with ties kept in number order
+			long[] keys = new long[n];
+			int placed = 0;
+			for (int v = 0; v < n; v++) {
+				if (!g.hasCoordinates(v)) continue;
+				int x = (int) Math.min(HILBERT_SIDE - 1, (g.longitude[v] - minLongitude) * longitudeScale);
+				int y = (int) Math.min(HILBERT_SIDE - 1, (g.latitude[v] - minLatitude) * latitudeScale);
+				keys[placed++] = (hilbertIndex(x, y) << 32) | v;
+			}
+			Arrays.sort(keys, 0, placed);
+
+			int[] order = new int[n];
+			for (int i = 0; i < placed; i++) {
+				order[i] = (int) keys[i];
+			}
+			for (int v = 0, next = placed; v < n; v++) {
+				if (!g.hasCoordinates(v)) order[next++] = v;
+			}
+			return order;
+		}
+	};
+
+	//Cells along each side of the grid the Hilbert curve is drawn on
+	private static final int HILBERT_SIDE = 1 << 15;
+
+	/**
+	 * Choose the new order of a snapshot's Towns
+	 * @param g the snapshot, numbered in insertion order
+	 * @return the old numbers of the Towns, in their new order
+	 */
+	abstract int[] order(CompactGraph g);
+
+	/**
+	 * Renumber a snapshot's Towns in this order
+	 * @param g the snapshot, numbered in insertion order
+	 * @return the renumbered snapshot, or the same snapshot for INSERTION
+	 */
+	CompactGraph apply(CompactGraph g) {
+		return this == INSERTION ? g : g.renumber(order(g));
+	}
+
+	/**
+	 * Get a Town's degree
+	 * @param g the snapshot
+	 * @param v the Town's number
+	 * @return the number of Roads that touch it
+	 */
+	private static int degree(CompactGraph g, int v) {
+		return g.offsets[v + 1] - g.offsets[v];
+	}
+
+	/**
+	 * Find how far along the Hilbert curve a grid cell lies
+	 * @param x the cell's column, from 0 to HILBERT_SIDE - 1
+	 * @param y the cell's row, from 0 to HILBERT_SIDE - 1
+	 * @return the number of cells before it along the curve
+	 */
+	static long hilbertIndex(int x, int y) {
+		long d = 0;
+		for (int s = HILBERT_SIDE / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+
+			//Rotate the quadrant so the curve inside it runs the right way
+			if (ry == 0) {
+				if (rx == 1) {
+					x = HILBERT_SIDE - 1 - x;
+					y = HILBERT_SIDE - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+}
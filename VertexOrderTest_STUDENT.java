@@ -0,0 +1,173 @@
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class VertexOrderTest_STUDENT {
+	TownGraph graph;
+	Town[] towns = new Town[80];
+
+	@Before
+	public void setUp() throws Exception {
+		graph = new TownGraph();
+		Random random = new Random(31);
+
+		//Most Towns have positions, and the last few are joined to nothing
+		for (int i = 0; i < towns.length; i++) {
+			String name = "Town " + i;
+			towns[i] = i % 5 == 4 ? new Town(name) : new Town(name, 40 + random.nextDouble(), -90 + random.nextDouble());
+			graph.addVertex(towns[i]);
+		}
+
+		int roads = 0;
+		while (roads < 200) {
+			int a = random.nextInt(75);
+			int b = random.nextInt(75);
+			if (a == b || graph.containsEdge(towns[a], towns[b])) continue;
+			graph.addEdge(towns[a], towns[b], 1 + random.nextInt(80), "Road " + roads++);
+		}
+	}
+
+	@Test
+	public void testOrdersArePermutations() {
+		CompactGraph g = graph.getSnapshot();
+		for (VertexOrder order : VertexOrder.values()) {
+			int[] permutation = order.order(g);
+			boolean[] seen = new boolean[g.size()];
+			assertEquals(g.size(), permutation.length);
+			for (int v : permutation) {
+				assertFalse(seen[v]);
+				seen[v] = true;
+			}
+		}
+	}
+
+	@Test
+	public void testRenumberedSnapshotsAgree() {
+		CompactGraph insertion = graph.getSnapshot();
+		ArrayList<Integer> expected = new ArrayList<>();
+		for (Town source : new Town[] { towns[0], towns[33], towns[79] }) {
+			ShortestPathTree tree = graph.shortestPathTree(source);
+			for (Town town : towns) {
+				expected.add(tree.getDistance(town));
+			}
+		}
+
+		for (VertexOrder order : VertexOrder.values()) {
+			graph.setVertexOrder(order);
+			CompactGraph g = graph.getSnapshot();
+			assertEquals(insertion.arcCount(), g.arcCount());
+			for (Town town : towns) {
+				assertSame(town, g.getTown(g.indexOf(town)));
+			}
+
+			//Trees cached under the old numbering must not be reused
+			ArrayList<Integer> actual = new ArrayList<>();
+			for (Town source : new Town[] { towns[0], towns[33], towns[79] }) {
+				ShortestPathTree tree = graph.shortestPathTree(source);
+				for (Town town : towns) {
+					actual.add(tree.getDistance(town));
+				}
+			}
+			assertEquals(expected, actual);
+
+			//Every search strategy runs over the renumbered snapshot
+			int distance = graph.shortestPathTree(towns[3]).getDistance(towns[60]);
+			for (RoutingMode mode : RoutingMode.values()) {
+				Route route = graph.route(towns[3], towns[60], mode);
+				if (distance == Integer.MAX_VALUE) assertNull(route);
+				else assertEquals(distance, route.getDistance());
+			}
+		}
+	}
+
+	@Test
+	public void testChangingOrderChangesVersion() {
+		long version = graph.getVersion();
+		graph.setVertexOrder(VertexOrder.INSERTION);
+		assertEquals(version, graph.getVersion());
+		graph.setVertexOrder(VertexOrder.HILBERT);
+		assertEquals(version + 1, graph.getVersion());
+		assertEquals(VertexOrder.HILBERT, graph.getVertexOrder());
+	}
+
+	@Test
+	public void testNeighborsAreNumberedCloser() {
+		TownGraph grid = RoutingBenchmark.grid(30, new Random(4));
+		long insertion = arcSpan(grid.getSnapshot());
+		grid.setVertexOrder(VertexOrder.BREADTH_FIRST);
+		long breadthFirst = arcSpan(grid.getSnapshot());
+		grid.setVertexOrder(VertexOrder.HILBERT);
+		long hilbert = arcSpan(grid.getSnapshot());
+
+		assertTrue(breadthFirst * 4 < insertion);
+		assertTrue(hilbert * 4 < insertion);
+	}
+
+	@Test
+	public void testHilbertWithoutPositions() {
+		TownGraph unplaced = new TownGraph();
+		for (int i = 0; i < 10; i++) {
+			unplaced.addVertex(new Town("Town " + i));
+			if (i > 0) unplaced.addEdge(new Town("Town " + i), new Town("Town " + (i - 1)), 5, "Road " + i);
+		}
+		CompactGraph g = unplaced.getSnapshot();
+		assertArrayEquals(VertexOrder.BREADTH_FIRST.order(g), VertexOrder.HILBERT.order(g));
+	}
+
+	@Test
+	public void testHilbertCurveIsContinuous() {
+		//The curve's first 64 cells fill the 8 by 8 corner, each next to the one before
+		int[][] cells = new int[64][];
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				long d = VertexOrder.hilbertIndex(x, y);
+				assertTrue(d < 64);
+				assertNull(cells[(int) d]);
+				cells[(int) d] = new int[] { x, y };
+			}
+		}
+		for (int d = 1; d < 64; d++) {
+			assertEquals(1, Math.abs(cells[d][0] - cells[d - 1][0]) + Math.abs(cells[d][1] - cells[d - 1][1]));
+		}
+	}
+
+	@Test
+	public void testSnapshotKeepsOrder() throws IOException {
+		File file = File.createTempFile("graph", ".snapshot");
+		file.deleteOnExit();
+		try {
+			graph.setVertexOrder(VertexOrder.HILBERT);
+			CompactGraph g = graph.getSnapshot();
+			graph.saveSnapshot(file, true);
+
+			TownGraph loaded = TownGraph.loadSnapshot(file);
+			assertArrayEquals(g.towns, loaded.getSnapshot().towns);
+			assertArrayEquals(g.targets, loaded.getSnapshot().targets);
+			assertEquals(graph.shortestPath(towns[1], towns[50]), loaded.shortestPath(towns[1], towns[50]));
+		}
+		finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Add up how far apart in number the two ends of each arc are
+	 * @param g the snapshot
+	 * @return the total difference
+	 */
+	private static long arcSpan(CompactGraph g) {
+		long total = 0;
+		for (int v = 0; v < g.size(); v++) {
+			for (int arc = g.offsets[v]; arc < g.offsets[v + 1]; arc++) {
+				total += Math.abs(g.targets[arc] - v);
+			}
+		}
+		return total;
+	}
+}
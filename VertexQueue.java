@@ -0,0 +1,58 @@
+/**
+ * A priority queue of vertex indices keyed by integer distance, as used by the shortest path searches.
+ * Each vertex appears in the queue at most once, and pushing a vertex that is already queued
+ * lowers its key in place.
+ *
+ * @author Mike Meyers
+ * @version 1.0
+ *
+ */
+public interface VertexQueue {
+
+	/**
+	 * Insert a vertex with the given key, or lower its key if it is already queued.
+	 * A key that is not lower than the vertex's current key is ignored.
+	 *
+	 * @param vertex the vertex index
+	 * @param newKey the vertex's priority
+	 */
+	public void push(int vertex, int newKey);
+
+	/**
+	 * Remove and return the vertex with the lowest key
+	 * @return the vertex with the lowest key
+	 * @throws java.util.NoSuchElementException if the queue is empty
+	 */
+	public int poll();
+
+	/**
+	 * Get the lowest key in the queue without removing its vertex
+	 * @return the lowest key in the queue
+	 * @throws java.util.NoSuchElementException if the queue is empty
+	 */
+	public int peekKey();
+
+	/**
+	 * Check whether a vertex is currently queued
+	 * @param vertex the vertex index
+	 * @return true if the vertex is queued, and false otherwise
+	 */
+	public boolean contains(int vertex);
+
+	/**
+	 * Check whether the queue is empty
+	 * @return true if no vertices are queued, and false otherwise
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * Get the number of queued vertices
+	 * @return the number of queued vertices
+	 */
+	public int size();
+
+	/**
+	 * Remove every vertex, in time proportional to the number queued
+	 */
+	public void clear();
+}